@@ -1,9 +1,11 @@
 package com.sacred;
 
+import com.sacred.balance.config.BalanceRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.retry.annotation.EnableRetry;
 import org.springframework.scheduling.annotation.EnableScheduling;
 
@@ -12,6 +14,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 @EnableRetry
 @EnableAspectJAutoProxy
 @EnableScheduling
+@ImportRuntimeHints(BalanceRuntimeHints.class)
 public class BalanceCalculationApplication {
 
     public static void main(String[] args) {
@@ -5,9 +5,12 @@ import com.sacred.balance.model.ApiResponse;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
 
 @Aspect
 @Component
@@ -25,15 +28,27 @@ public class ExceptionHandlingAspect {
         } catch (BusinessException e) {
             logger.warn("Business exception in {}: code={}, message={}",
                        joinPoint.getSignature().getName(), e.getCode(), e.getMessage());
-            return ApiResponse.error(e.getCode(), e.getMessage());
+            return errorResponse(joinPoint, e.getCode(), e.getMessage(), e);
         } catch (IllegalArgumentException e) {
             logger.warn("Illegal argument exception in {}: {}",
                        joinPoint.getSignature().getName(), e.getMessage());
-            return ApiResponse.error(400, "Invalid request: " + e.getMessage());
+            return errorResponse(joinPoint, 400, "Invalid request: " + e.getMessage(), e);
         } catch (Exception e) {
             logger.error("Unexpected exception in {}: {}",
                         joinPoint.getSignature().getName(), e.getMessage(), e);
-            return ApiResponse.error(500, "Internal server error: " + e.getMessage());
+            return errorResponse(joinPoint, 500, "Internal server error: " + e.getMessage(), e);
         }
     }
+
+    /**
+     * 返回值为 ApiResponse 时包装为错误响应；其他返回类型（如流式导出）无法承载 ApiResponse，转为对应HTTP状态码
+     */
+    private Object errorResponse(ProceedingJoinPoint joinPoint, int code, String message, Exception cause) {
+        Class<?> returnType = ((MethodSignature) joinPoint.getSignature()).getReturnType();
+        if (returnType.isAssignableFrom(ApiResponse.class)) {
+            return ApiResponse.error(code, message);
+        }
+        HttpStatus status = HttpStatus.resolve(code);
+        throw new ResponseStatusException(status != null ? status : HttpStatus.INTERNAL_SERVER_ERROR, message, cause);
+    }
 }
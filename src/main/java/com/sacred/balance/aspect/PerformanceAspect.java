@@ -23,32 +23,36 @@ public class PerformanceAspect {
      */
     @Around("execution(* com.sacred.balance.controller..*(..))")
     public Object logExecutionTime(ProceedingJoinPoint joinPoint) throws Throwable {
-        long startTime = System.currentTimeMillis();
-        String methodName = joinPoint.getSignature().getName();
-        String className = joinPoint.getTarget().getClass().getSimpleName();
+        long startTime = System.nanoTime();
 
-        // 记录方法参数
-        Object[] args = joinPoint.getArgs();
-        if (args.length > 0) {
-            try {
-                logger.debug("Entering method: {}.{} with args: {}", className, methodName,
-                           objectMapper.writeValueAsString(args));
-            } catch (Exception e) {
-                logger.debug("Entering method: {}.{} with args: {}", className, methodName, args);
+        // 记录方法参数（仅DEBUG级别开启时才序列化参数）
+        if (logger.isDebugEnabled()) {
+            String methodName = joinPoint.getSignature().getName();
+            String className = joinPoint.getTarget().getClass().getSimpleName();
+            Object[] args = joinPoint.getArgs();
+            if (args.length > 0) {
+                try {
+                    logger.debug("Entering method: {}.{} with args: {}", className, methodName,
+                               objectMapper.writeValueAsString(args));
+                } catch (Exception e) {
+                    logger.debug("Entering method: {}.{} with args: {}", className, methodName, args);
+                }
+            } else {
+                logger.debug("Entering method: {}.{}", className, methodName);
             }
-        } else {
-            logger.debug("Entering method: {}.{}", className, methodName);
         }
 
         try {
             Object result = joinPoint.proceed();
-            long endTime = System.currentTimeMillis();
-            logger.info("Method: {}.{} executed in {} ms", className, methodName, (endTime - startTime));
+            if (logger.isInfoEnabled()) {
+                logger.info("Method: {}.{} executed in {} ms", joinPoint.getTarget().getClass().getSimpleName(),
+                           joinPoint.getSignature().getName(), (System.nanoTime() - startTime) / 1_000_000);
+            }
             return result;
         } catch (Exception e) {
-            long endTime = System.currentTimeMillis();
             logger.error("Exception in method: {}.{} executed in {} ms, Exception: {}",
-                        className, methodName, (endTime - startTime), e.getMessage(), e);
+                        joinPoint.getTarget().getClass().getSimpleName(), joinPoint.getSignature().getName(),
+                        (System.nanoTime() - startTime) / 1_000_000, e.getMessage(), e);
             throw e;
         }
     }
@@ -0,0 +1,58 @@
+package com.sacred.balance.cli;
+
+import com.sacred.balance.model.ImportResult;
+import com.sacred.balance.service.AccountImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * 命令行批量导入账户，导入完成后退出进程
+ * 用法：java -jar app.jar --spring.main.web-application-type=none --import-accounts=files/accounts.csv [--warm-cache=false]
+ */
+@Component
+public class AccountImportCommand implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountImportCommand.class);
+
+    private static final String IMPORT_OPTION = "import-accounts";
+    private static final String WARM_CACHE_OPTION = "warm-cache";
+
+    @Autowired
+    private AccountImportService accountImportService;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+
+        int exitCode = 0;
+        try {
+            Path file = Path.of(args.getOptionValues(IMPORT_OPTION).get(0));
+            boolean warmCache = !args.containsOption(WARM_CACHE_OPTION)
+                || Boolean.parseBoolean(args.getOptionValues(WARM_CACHE_OPTION).get(0));
+            logger.info("Importing accounts from {}", file.toAbsolutePath());
+
+            ImportResult result = accountImportService.importAccounts(file, warmCache);
+            logger.info("Imported {} accounts in {} ms ({} rows/s)",
+                       result.getRowsImported(), result.getElapsedMillis(), result.getRowsPerSecond());
+        } catch (Exception e) {
+            logger.error("Account import command failed: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+
+        int code = exitCode;
+        System.exit(SpringApplication.exit(applicationContext, () -> code));
+    }
+}
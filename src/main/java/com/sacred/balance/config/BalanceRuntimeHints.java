@@ -0,0 +1,91 @@
+package com.sacred.balance.config;
+
+import com.sacred.balance.aspect.ExceptionHandlingAspect;
+import com.sacred.balance.aspect.PerformanceAspect;
+import com.sacred.balance.logging.JsonLineEncoder;
+import com.sacred.balance.logging.RingBufferAppender;
+import com.sacred.balance.logging.SamplingTurboFilter;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.AccountLimits;
+import com.sacred.balance.model.AccountReconciliation;
+import com.sacred.balance.model.ApiResponse;
+import com.sacred.balance.model.BalanceChangeEvent;
+import com.sacred.balance.model.BalanceCheckpoint;
+import com.sacred.balance.model.BatchJob;
+import com.sacred.balance.model.BatchJobChunk;
+import com.sacred.balance.model.BatchJobProgress;
+import com.sacred.balance.model.BatchResult;
+import com.sacred.balance.model.DatabaseDiagnostics;
+import com.sacred.balance.model.ImportResult;
+import com.sacred.balance.model.OutboxEvent;
+import com.sacred.balance.model.PartitionMaintenanceResult;
+import com.sacred.balance.model.PointInTimeBalance;
+import com.sacred.balance.model.ReconciliationDiscrepancy;
+import com.sacred.balance.model.ReconciliationReport;
+import com.sacred.balance.model.ReconciliationRun;
+import com.sacred.balance.model.StatementEntry;
+import com.sacred.balance.model.StatementPage;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * GraalVM native image 的可达性元数据
+ * AOT能从控制器签名推断大部分JSON类型，但泛型 ApiResponse<T> 的 data、切面序列化的参数、
+ * Redis JDK序列化的缓存值和AspectJ切面方法无法静态推断，在此显式登记。
+ */
+public class BalanceRuntimeHints implements RuntimeHintsRegistrar {
+
+    // Jackson 读写的接口模型（Lombok生成的getter/setter需要反射）
+    private static final Class<?>[] API_MODELS = {
+        ApiResponse.class, Transaction.class, TransactionResult.class, BatchResult.class, AccountBalance.class,
+        AccountLimits.class, PointInTimeBalance.class, StatementPage.class, StatementEntry.class, ImportResult.class,
+        PartitionMaintenanceResult.class, ReconciliationReport.class, ReconciliationRun.class,
+        ReconciliationDiscrepancy.class, BalanceChangeEvent.class, DatabaseDiagnostics.class, BatchJobProgress.class
+    };
+
+    // JPA实体，Hibernate通过反射访问字段和无参构造器
+    private static final Class<?>[] ENTITIES = {
+        Account.class, Transaction.class, OutboxEvent.class, BalanceCheckpoint.class,
+        AccountReconciliation.class, ReconciliationRun.class, ReconciliationDiscrepancy.class, BatchJob.class,
+        BatchJobChunk.class
+    };
+
+    // JdkSerializationRedisSerializer 写入的缓存值（账户缓存）及其字段类型
+    private static final Class<?>[] SERIALIZED = {
+        Account.class, Long.class, Number.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), API_MODELS);
+
+        for (Class<?> entity : ENTITIES) {
+            hints.reflection().registerType(entity,
+                MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        for (Class<?> type : SERIALIZED) {
+            hints.serialization().registerType(TypeReference.of(type));
+        }
+
+        // logback-spring.xml 中由 Joran 按类名创建并通过 setter 配置的日志组件
+        for (Class<?> component : new Class<?>[] {RingBufferAppender.class, JsonLineEncoder.class, SamplingTurboFilter.class}) {
+            hints.reflection().registerType(component,
+                MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                MemberCategory.INVOKE_PUBLIC_METHODS);
+        }
+
+        // AspectJ注解风格的切面：通知方法按名称反射调用
+        for (Class<?> aspect : new Class<?>[] {ExceptionHandlingAspect.class, PerformanceAspect.class}) {
+            hints.reflection().registerType(aspect, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.sacred.balance.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+/**
+ * 按CPU核数和Redis连接池大小设定数据库连接池（balance.datasource.auto-size=true 时生效，prod profile 默认开启）
+ * 连接数取 核数 * 2 + 磁盘数（PostgreSQL 的经验公式）；转账在持有数据库连接时访问Redis，
+ * 配置了Lettuce连接池时连接数不超过其上限，否则多出的连接只是在等待Redis。
+ * 显式配置的 spring.datasource.hikari.maximum-pool-size 优先。
+ */
+@Configuration
+public class DataSourcePoolConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourcePoolConfig.class);
+
+    @Bean
+    static BeanPostProcessor dataSourcePoolSizer(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource
+                    && environment.getProperty("balance.datasource.auto-size", Boolean.class, false)
+                    && !environment.containsProperty("spring.datasource.hikari.maximum-pool-size")) {
+                    int size = poolSize(
+                        Runtime.getRuntime().availableProcessors(),
+                        environment.getProperty("balance.datasource.spindles", Integer.class, 1),
+                        environment.getProperty("spring.data.redis.lettuce.pool.max-active", Integer.class, 0));
+                    // 固定大小的连接池，避免突发流量时临时建立连接
+                    dataSource.setMaximumPoolSize(size);
+                    dataSource.setMinimumIdle(size);
+                    logger.info("Database connection pool sized to {} connections", size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * @param cores CPU核数
+     * @param spindles 数据库的有效磁盘数（SSD按1计）
+     * @param redisPoolSize Lettuce连接池上限，0或负数表示未使用连接池（共享连接）
+     */
+    static int poolSize(int cores, int spindles, int redisPoolSize) {
+        int size = cores * 2 + Math.max(spindles, 0);
+        if (redisPoolSize > 0) {
+            size = Math.min(size, redisPoolSize);
+        }
+        return Math.max(size, 2);
+    }
+}
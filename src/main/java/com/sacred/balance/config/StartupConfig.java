@@ -0,0 +1,56 @@
+package com.sacred.balance.config;
+
+import com.sacred.balance.controller.TransactionController;
+import com.sacred.balance.service.AccountService;
+import com.sacred.balance.service.TransactionService;
+import jakarta.annotation.PostConstruct;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 启动优化配置（startup profile 开启 spring.main.lazy-initialization 时生效）
+ * 懒加载会让定时任务、事件监听和启动时初始化的bean直到第一次被注入才创建，任务不会注册；
+ * 这些bean和转账链路上的bean保持立即创建，其余（对账、导出、导入、订阅等管理功能）首次使用时再创建。
+ */
+@Configuration
+public class StartupConfig {
+
+    // 转账链路，首笔转账不应承担这些bean的创建开销
+    private static final Set<Class<?>> TRANSFER_PATH = Set.of(
+        TransactionController.class, TransactionService.class, AccountService.class);
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerStartupBeans() {
+        return (beanName, beanDefinition, beanType) -> {
+            if (beanType == null) {
+                return false;
+            }
+            Class<?> userType = ClassUtils.getUserClass(beanType);
+            return TRANSFER_PATH.contains(userType)
+                || ApplicationRunner.class.isAssignableFrom(userType)
+                || hasStartupMethods(userType);
+        };
+    }
+
+    private static boolean hasStartupMethods(Class<?> type) {
+        if (!type.getName().startsWith("com.sacred.")) {
+            return false;
+        }
+        AtomicBoolean found = new AtomicBoolean();
+        ReflectionUtils.doWithMethods(type, method -> found.set(true), method ->
+            AnnotatedElementUtils.hasAnnotation(method, Scheduled.class)
+                || AnnotatedElementUtils.hasAnnotation(method, EventListener.class)
+                || AnnotatedElementUtils.hasAnnotation(method, PostConstruct.class));
+        return found.get();
+    }
+}
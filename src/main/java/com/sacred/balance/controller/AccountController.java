@@ -0,0 +1,137 @@
+package com.sacred.balance.controller;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.AccountLimits;
+import com.sacred.balance.model.ApiResponse;
+import com.sacred.balance.model.PointInTimeBalance;
+import com.sacred.balance.model.StatementEntry;
+import com.sacred.balance.model.StatementPage;
+import com.sacred.balance.service.AccountService;
+import com.sacred.balance.service.AccountStatementService;
+import com.sacred.balance.service.BalanceCheckpointService;
+import com.sacred.balance.service.BalanceQueryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/accounts")
+public class AccountController {
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private AccountStatementService accountStatementService;
+
+    @Autowired
+    private BalanceCheckpointService balanceCheckpointService;
+
+    @Autowired
+    private AccountService accountService;
+
+    /**
+     * 查询账户余额（读缓存）
+     */
+    @GetMapping("/{accountNumber}/balance")
+    public ApiResponse<AccountBalance> getBalance(@PathVariable String accountNumber) {
+        AccountBalance balance = balanceQueryService.getBalance(accountNumber)
+            .orElseThrow(() -> new BusinessException(404, "Account not found: " + accountNumber));
+        return ApiResponse.success(balance);
+    }
+
+    /**
+     * 查询账户在指定时刻的余额（最近检查点 + 区间内交易）
+     */
+    @GetMapping(value = "/{accountNumber}/balance", params = "at")
+    public ApiResponse<PointInTimeBalance> getBalanceAt(
+            @PathVariable String accountNumber,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ApiResponse.success(balanceCheckpointService.getBalanceAt(accountNumber, at));
+    }
+
+    /**
+     * 批量查询账户余额（读缓存）
+     */
+    @PostMapping("/balances")
+    public ApiResponse<List<AccountBalance>> getBalances(@RequestBody List<String> accountNumbers) {
+        return ApiResponse.success(balanceQueryService.getBalances(accountNumbers));
+    }
+
+    /**
+     * 设置账户的透支额度、最低余额和冻结金额，之后的扣款在条件更新中按新额度校验
+     */
+    @PutMapping("/{accountNumber}/limits")
+    public ApiResponse<AccountLimits> updateLimits(@PathVariable String accountNumber, @RequestBody AccountLimits limits) {
+        if (limits.getOverdraftLimit() < 0 || limits.getHeldAmount() < 0) {
+            throw new BusinessException(400, "Overdraft limit and held amount must not be negative");
+        }
+        if (!accountService.updateLimits(accountNumber, limits)) {
+            throw new BusinessException(404, "Account not found: " + accountNumber);
+        }
+        return ApiResponse.success("Account limits updated", limits);
+    }
+
+    /**
+     * 分页查询账户流水，按时间倒序；翻页时传入上一页返回的 nextCursor
+     */
+    @GetMapping("/{accountNumber}/transactions")
+    public ApiResponse<StatementPage> getTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + AccountStatementService.DEFAULT_PAGE_SIZE) int limit) {
+        return ApiResponse.success(accountStatementService.getStatement(accountNumber, from, to, cursor, limit));
+    }
+
+    /**
+     * 以CSV流式导出时间范围内的全部流水，边查边写，不在内存中累积
+     */
+    @GetMapping(value = "/{accountNumber}/transactions/export", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @PathVariable String accountNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        accountStatementService.requireAccount(accountNumber);
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            writer.write("id,transactionId,direction,counterparty,amount,timestamp\n");
+            accountStatementService.exportStatement(accountNumber, from, to, entries -> {
+                try {
+                    for (StatementEntry entry : entries) {
+                        writer.append(String.valueOf(entry.getId())).append(',')
+                              .append(entry.getTransactionId()).append(',')
+                              .append(entry.getDirection()).append(',')
+                              .append(entry.getCounterparty()).append(',')
+                              .append(String.valueOf(entry.getAmount())).append(',')
+                              .append(String.valueOf(entry.getTimestamp())).append('\n');
+                    }
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.parseMediaType("text/csv"))
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + accountNumber + "-transactions.csv\"")
+            .body(body);
+    }
+}
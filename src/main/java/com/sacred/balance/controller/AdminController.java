@@ -0,0 +1,63 @@
+package com.sacred.balance.controller;
+
+import com.sacred.balance.model.ApiResponse;
+import com.sacred.balance.model.ImportResult;
+import com.sacred.balance.model.PartitionMaintenanceResult;
+import com.sacred.balance.model.ReconciliationReport;
+import com.sacred.balance.service.AccountImportService;
+import com.sacred.balance.service.ReconciliationService;
+import com.sacred.balance.service.TransactionPartitionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private AccountImportService accountImportService;
+
+    @Autowired
+    private TransactionPartitionService transactionPartitionService;
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    /**
+     * 批量导入账户CSV，请求体以流的方式读取，不整体加载到内存
+     */
+    @PostMapping(value = "/accounts/import", consumes = {"text/csv", "text/plain", "application/octet-stream"})
+    public ApiResponse<ImportResult> importAccounts(InputStream body,
+                                                    @RequestParam(defaultValue = "true") boolean warmCache)
+            throws IOException {
+        ImportResult result = accountImportService.importAccounts(body, warmCache);
+        return ApiResponse.success("Accounts imported successfully", result);
+    }
+
+    /**
+     * 立即执行一次交易表分区维护（预创建分区、归档过期分区）
+     */
+    @PostMapping("/transactions/partitions/maintain")
+    public ApiResponse<PartitionMaintenanceResult> maintainPartitions() {
+        return ApiResponse.success("Partition maintenance completed", transactionPartitionService.maintain());
+    }
+
+    /**
+     * 立即执行一次余额对账
+     */
+    @PostMapping("/reconciliation/run")
+    public ApiResponse<ReconciliationReport> runReconciliation() {
+        return ApiResponse.success("Reconciliation completed", reconciliationService.reconcile());
+    }
+
+    /**
+     * 查询最近一次对账报告
+     */
+    @GetMapping("/reconciliation/latest")
+    public ApiResponse<ReconciliationReport> getLatestReconciliation() {
+        return ApiResponse.success(reconciliationService.getLatestReport());
+    }
+}
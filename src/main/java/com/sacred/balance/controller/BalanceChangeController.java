@@ -0,0 +1,27 @@
+package com.sacred.balance.controller;
+
+import com.sacred.balance.service.BalanceChangeStreamService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/balance-changes")
+public class BalanceChangeController {
+
+    @Autowired
+    private BalanceChangeStreamService balanceChangeStreamService;
+
+    /**
+     * 以SSE订阅余额变更；断线重连时浏览器会自动带上 Last-Event-ID，也可以用 from 参数显式指定续传位置
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) List<String> accounts,
+                             @RequestParam(required = false) String from,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return balanceChangeStreamService.subscribe(accounts, from != null ? from : lastEventId);
+    }
+}
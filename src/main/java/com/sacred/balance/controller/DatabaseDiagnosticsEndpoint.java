@@ -0,0 +1,24 @@
+package com.sacred.balance.controller;
+
+import com.sacred.balance.model.DatabaseDiagnostics;
+import com.sacred.balance.service.DatabaseDiagnosticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * 数据库诊断的 Actuator 端点：GET /actuator/dbdiagnostics（prod profile 中开放）
+ */
+@Component
+@Endpoint(id = "dbdiagnostics")
+public class DatabaseDiagnosticsEndpoint {
+
+    @Autowired
+    private DatabaseDiagnosticsService databaseDiagnosticsService;
+
+    @ReadOperation
+    public DatabaseDiagnostics diagnostics() {
+        return databaseDiagnosticsService.collect();
+    }
+}
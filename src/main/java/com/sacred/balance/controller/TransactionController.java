@@ -2,16 +2,21 @@ package com.sacred.balance.controller;
 
 import com.sacred.balance.exception.BusinessException;
 import com.sacred.balance.model.ApiResponse;
+import com.sacred.balance.model.BatchJobProgress;
 import com.sacred.balance.model.BatchResult;
 import com.sacred.balance.model.Transaction;
 import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.service.BatchJobService;
+import com.sacred.balance.service.ExecutionLanes;
+import com.sacred.balance.service.TransactionIdGenerator;
+import com.sacred.balance.service.TransactionIngestion;
 import com.sacred.balance.service.TransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -22,20 +27,41 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Autowired
+    private BatchJobService batchJobService;
+
+    @Autowired
+    private TransactionIngestion transactionIngestion;
+
+    // 未指定 netting 参数时批量接口是否使用轧差模式
+    @Value("${balance.batch.netting-default:false}")
+    private boolean nettingDefault;
+
     @PostMapping("/single")
     public ApiResponse<TransactionResult> processTransaction(@RequestBody Transaction transaction) {
-        logger.info("Processing transaction request. Source: {}, Destination: {}, Amount: {}",
-                   transaction.getSourceAccount(), transaction.getDestinationAccount(), transaction.getAmount());
+        if (logger.isDebugEnabled()) {
+            logger.debug("Processing transaction request. Source: {}, Destination: {}, Amount: {}",
+                        transaction.getSourceAccount(), transaction.getDestinationAccount(), transaction.getAmount());
+        }
 
         // 确保交易有ID
         if (transaction.getTransactionId() == null) {
-            transaction.setTransactionId(UUID.randomUUID().toString());
+            transaction.setTransactionId(transactionIdGenerator.nextId());
         }
 
-        TransactionResult result = transactionService.processTransaction(transaction);
+        // 启用接入环时由转出账户所在分区的消费线程记账，否则在请求线程上执行
+        TransactionResult result = transactionIngestion.isEnabled()
+            ? transactionIngestion.process(transaction)
+            : executionLanes.interactive(transaction, () -> transactionService.processTransaction(transaction));
 
         if (result.isSuccess()) {
-            logger.info("Transaction processed successfully. Transaction ID: {}", result.getTransactionId());
+            logger.debug("Transaction processed successfully. Transaction ID: {}", result.getTransactionId());
             return ApiResponse.success("Transaction processed successfully", result);
         } else {
             logger.warn("Transaction processing failed. Transaction ID: {}, Error: {}",
@@ -64,22 +90,53 @@ public class TransactionController {
     }
 
     /**
-     * 提交批量处理
+     * 提交批量处理，netting=true 时按账户轧差，每个账户只写一次余额
+     * 大批量或指定了 batchId 的批量按可恢复任务分块处理，同一 batchId 重新提交时跳过已完成的块
      */
     @PostMapping("/batch")
-    public ApiResponse<BatchResult> processBatchTransactions(@RequestBody Transaction[] transactions) {
+    public ApiResponse<BatchResult> processBatchTransactions(@RequestBody Transaction[] transactions,
+                                                             @RequestParam(required = false) Boolean netting,
+                                                             @RequestParam(required = false) String batchId) {
         if (transactions == null || transactions.length == 0) {
             throw new BusinessException(400, "Transactions are required");
         }
 
-        // 为没有ID的交易生成ID
+        boolean netted = netting != null ? netting : nettingDefault;
+        String jobId = null;
+        if (batchJobService.isJob(batchId, transactions.length)) {
+            // 未指定 batchId 时由客户端提供的交易ID推导，重新提交同一批交易可以续上之前的进度
+            jobId = batchId != null ? batchId : BatchJobService.batchIdOf(transactions);
+            if (jobId == null) {
+                jobId = transactionIdGenerator.nextId();
+            }
+        }
+
+        // 为没有ID的交易生成ID（批量任务把生成的ID随交易一起持久化，接管后沿用）
         for (Transaction transaction : transactions) {
             if (transaction.getTransactionId() == null) {
-                transaction.setTransactionId(UUID.randomUUID().toString());
+                transaction.setTransactionId(transactionIdGenerator.nextId());
             }
         }
 
-        BatchResult result = transactionService.processBatchTransactions(transactions);
+        // 批量请求在批量通道的线程上执行，不占用交互通道的连接预算
+        String job = jobId;
+        BatchResult result = executionLanes.bulk(() -> {
+            if (job != null) {
+                return batchJobService.submit(job, transactions, netted);
+            }
+            return netted
+                ? transactionService.processBatchNetted(transactions)
+                : transactionService.processBatchTransactions(transactions);
+        });
         return ApiResponse.success("Batch transactions processed successfully", result);
     }
+
+    /**
+     * 批量任务进度，results=true 时附带已完成块的逐笔结果
+     */
+    @GetMapping("/batch/{batchId}")
+    public ApiResponse<BatchJobProgress> getBatchProgress(@PathVariable String batchId,
+                                                          @RequestParam(defaultValue = "false") boolean results) {
+        return ApiResponse.success("Batch progress retrieved", batchJobService.getProgress(batchId, results));
+    }
 }
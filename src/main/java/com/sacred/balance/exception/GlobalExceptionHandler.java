@@ -4,9 +4,11 @@ import com.sacred.balance.model.ApiResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestControllerAdvice
 public class GlobalExceptionHandler {
@@ -33,6 +35,16 @@ public class GlobalExceptionHandler {
         return ApiResponse.error(400, "Invalid request: " + e.getMessage());
     }
 
+    /**
+     * 处理带状态码的异常（如流式导出、SSE接口在切面中转换的业务异常）：保留原状态码，不写响应体，
+     * 这类接口的响应类型（text/csv、text/event-stream）无法承载 ApiResponse
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Void> handleResponseStatusException(ResponseStatusException e) {
+        logger.warn("Response status exception: status={}, message={}", e.getStatusCode(), e.getReason());
+        return ResponseEntity.status(e.getStatusCode()).build();
+    }
+
     /**
      * 处理通用异常
      */
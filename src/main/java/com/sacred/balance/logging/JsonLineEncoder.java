@@ -0,0 +1,112 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.encoder.EncoderBase;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * 每个事件编码为一行JSON：{"ts":毫秒,"level":..,"logger":..,"thread":..,"msg":..,"mdc":{..},"stack":..}
+ * 字段固定，直接拼接字符串，不经过pattern解析和反射序列化；日志平台按字段检索，不再需要正则解析
+ */
+public class JsonLineEncoder extends EncoderBase<ILoggingEvent> {
+
+    private static final byte[] EMPTY = new byte[0];
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // 线程内复用的缓冲区，只在后台写出线程中使用时不产生竞争
+    private final ThreadLocal<StringBuilder> buffers = ThreadLocal.withInitial(() -> new StringBuilder(512));
+
+    @Override
+    public byte[] headerBytes() {
+        return EMPTY;
+    }
+
+    @Override
+    public byte[] encode(ILoggingEvent event) {
+        StringBuilder json = buffers.get();
+        json.setLength(0);
+        json.append("{\"ts\":").append(event.getTimeStamp());
+        json.append(",\"level\":\"").append(event.getLevel().toString()).append('"');
+        field(json, "logger", event.getLoggerName());
+        field(json, "thread", event.getThreadName());
+        field(json, "msg", event.getFormattedMessage());
+
+        Map<String, String> mdc = event.getMDCPropertyMap();
+        if (mdc != null && !mdc.isEmpty()) {
+            json.append(",\"mdc\":{");
+            boolean first = true;
+            for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                string(json, entry.getKey());
+                json.append(':');
+                string(json, entry.getValue());
+            }
+            json.append('}');
+        }
+
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            field(json, "stack", ThrowableProxyUtil.asString(throwable));
+        }
+        json.append("}\n");
+
+        byte[] bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+        if (json.capacity() > 64 * 1024) {
+            // 偶尔的大堆栈不让缓冲区一直占用大块内存
+            buffers.remove();
+        }
+        return bytes;
+    }
+
+    @Override
+    public byte[] footerBytes() {
+        return EMPTY;
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        json.append(",\"").append(name).append("\":");
+        string(json, value);
+    }
+
+    static void string(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,69 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.Appender;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * 把环形缓冲区appender和采样过滤器的计数注册为指标，日志开销和丢弃量随其他指标一起监控
+ * 只在使用了这些组件的日志配置（logback-spring.xml 中的 prod profile）下注册
+ */
+@Component
+public class LoggingMetrics {
+
+    private static final Level[] LEVELS = {Level.TRACE, Level.DEBUG, Level.INFO, Level.WARN, Level.ERROR};
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            return;
+        }
+
+        Map<RingBufferAppender, Boolean> ringBuffers = new IdentityHashMap<>();
+        for (ch.qos.logback.classic.Logger logger : context.getLoggerList()) {
+            for (Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders(); it.hasNext(); ) {
+                if (it.next() instanceof RingBufferAppender appender) {
+                    ringBuffers.put(appender, true);
+                }
+            }
+        }
+        for (RingBufferAppender appender : ringBuffers.keySet()) {
+            String name = appender.getName();
+            for (Level level : LEVELS) {
+                FunctionCounter.builder("balance.logging.dropped", appender, a -> a.getDropped(level))
+                    .tag("appender", name).tag("level", level.toString())
+                    .description("Log events dropped because the ring buffer was full").register(meterRegistry);
+            }
+            FunctionCounter.builder("balance.logging.written", appender, RingBufferAppender::getWritten)
+                .tag("appender", name).register(meterRegistry);
+            Gauge.builder("balance.logging.queue.size", appender, RingBufferAppender::size)
+                .tag("appender", name).description("Log events waiting in the ring buffer").register(meterRegistry);
+            Gauge.builder("balance.logging.queue.capacity", appender, RingBufferAppender::getCapacity)
+                .tag("appender", name).register(meterRegistry);
+        }
+
+        for (TurboFilter filter : context.getTurboFilterList()) {
+            if (filter instanceof SamplingTurboFilter sampling) {
+                FunctionCounter.builder("balance.logging.sampled", sampling, SamplingTurboFilter::getSampledOut)
+                    .tag("logger", sampling.getLogger())
+                    .description("Log events skipped by sampling").register(meterRegistry);
+            }
+        }
+    }
+}
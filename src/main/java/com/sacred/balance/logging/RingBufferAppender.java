@@ -0,0 +1,250 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.UnsynchronizedAppenderBase;
+import ch.qos.logback.core.spi.AppenderAttachable;
+import ch.qos.logback.core.spi.AppenderAttachableImpl;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 无锁环形缓冲区异步appender：请求线程只做一次CAS把事件放入固定大小的环，由单个后台线程写入下游appender
+ * 环满时直接丢弃并按级别计数，请求线程从不因日志阻塞；WARN及以上级别满时最多自旋 warnSpinMillis 等待空位
+ * 槽位序号的做法同 Vyukov 有界队列：序号等于写入位置时可写，等于写入位置+1时可读
+ */
+public class RingBufferAppender extends UnsynchronizedAppenderBase<ILoggingEvent>
+        implements AppenderAttachable<ILoggingEvent> {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final AppenderAttachableImpl<ILoggingEvent> appenders = new AppenderAttachableImpl<>();
+
+    // 环的大小，取不小于该值的2的幂
+    private int bufferSize = 8192;
+    // 停止时等待剩余事件写出的最长时间
+    private int maxFlushTime = 1000;
+    // WARN及以上级别在环满时等待空位的最长时间，0表示同样直接丢弃
+    private int warnSpinMillis = 10;
+
+    private AtomicReferenceArray<ILoggingEvent> events;
+    private AtomicLongArray sequences;
+    private int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    // 按级别统计的丢弃数：TRACE, DEBUG, INFO, WARN, ERROR
+    private final LongAdder[] dropped = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private final LongAdder written = new LongAdder();
+
+    private Thread worker;
+
+    @Override
+    public void start() {
+        if (isStarted()) {
+            return;
+        }
+        if (!appenders.iteratorForAppenders().hasNext()) {
+            addError("No appender attached to ring buffer appender [" + name + "]");
+            return;
+        }
+        int capacity = Integer.highestOneBit(Math.max(bufferSize - 1, 1)) << 1;
+        events = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        mask = capacity - 1;
+
+        super.start();
+        worker = new Thread(this::drainLoop, "log-ring-" + name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!isStarted()) {
+            return;
+        }
+        super.stop();
+        LockSupport.unpark(worker);
+        try {
+            worker.join(maxFlushTime);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            addWarn("Ring buffer appender [" + name + "] did not flush within " + maxFlushTime + " ms, "
+                + size() + " events discarded");
+        }
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // 在调用线程中固定格式化消息、MDC和线程名，之后由后台线程写出
+        event.prepareForDeferredProcessing();
+        if (offer(event)) {
+            return;
+        }
+        if (warnSpinMillis > 0 && event.getLevel().isGreaterOrEqual(Level.WARN)) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(warnSpinMillis);
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+                if (offer(event)) {
+                    return;
+                }
+            }
+        }
+        dropped[levelIndex(event.getLevel())].increment();
+    }
+
+    private boolean offer(ILoggingEvent event) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    events.lazySet(index, event);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 该槽位上一轮的事件还未写出，环已满
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    private ILoggingEvent poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        ILoggingEvent event = events.get(index);
+        events.lazySet(index, null);
+        sequences.lazySet(index, position + mask + 1);
+        head = position + 1;
+        return event;
+    }
+
+    private void drainLoop() {
+        while (true) {
+            ILoggingEvent event = poll();
+            if (event != null) {
+                appenders.appendLoopOnAppenders(event);
+                written.increment();
+            } else if (isStarted()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static int levelIndex(Level level) {
+        switch (level.toInt()) {
+            case Level.TRACE_INT:
+                return 0;
+            case Level.DEBUG_INT:
+                return 1;
+            case Level.INFO_INT:
+                return 2;
+            case Level.WARN_INT:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * 环中等待写出的事件数
+     */
+    public int size() {
+        return events == null ? 0 : (int) Math.max(0, tail.get() - head);
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public long getDropped(Level level) {
+        return dropped[levelIndex(level)].sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public int getMaxFlushTime() {
+        return maxFlushTime;
+    }
+
+    public void setMaxFlushTime(int maxFlushTime) {
+        this.maxFlushTime = maxFlushTime;
+    }
+
+    public int getWarnSpinMillis() {
+        return warnSpinMillis;
+    }
+
+    public void setWarnSpinMillis(int warnSpinMillis) {
+        this.warnSpinMillis = warnSpinMillis;
+    }
+
+    @Override
+    public void addAppender(Appender<ILoggingEvent> appender) {
+        appenders.addAppender(appender);
+    }
+
+    @Override
+    public Iterator<Appender<ILoggingEvent>> iteratorForAppenders() {
+        return appenders.iteratorForAppenders();
+    }
+
+    @Override
+    public Appender<ILoggingEvent> getAppender(String name) {
+        return appenders.getAppender(name);
+    }
+
+    @Override
+    public boolean isAttached(Appender<ILoggingEvent> appender) {
+        return appenders.isAttached(appender);
+    }
+
+    @Override
+    public void detachAndStopAllAppenders() {
+        appenders.detachAndStopAllAppenders();
+    }
+
+    @Override
+    public boolean detachAppender(Appender<ILoggingEvent> appender) {
+        return appenders.detachAppender(appender);
+    }
+
+    @Override
+    public boolean detachAppender(String name) {
+        return appenders.detachAppender(name);
+    }
+}
@@ -0,0 +1,78 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按logger采样：名称以 logger 开头、级别不高于 level 的日志每 sampleRate 条只保留1条
+ * 在创建日志事件之前判断，被采样掉的日志不做格式化；WARN和ERROR的默认配置下不受影响
+ * isInfoEnabled() 这类不带消息的判断和低于logger生效级别的日志不计入采样，保证调用方的级别判断照常通过
+ */
+public class SamplingTurboFilter extends TurboFilter {
+
+    private String logger;
+    private Level level = Level.INFO;
+    private int sampleRate = 100;
+
+    private final AtomicLong counter = new AtomicLong();
+    private final LongAdder sampledOut = new LongAdder();
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (format == null || sampleRate <= 1 || level.toInt() > this.level.toInt()
+            || !level.isGreaterOrEqual(logger.getEffectiveLevel()) || !logger.getName().startsWith(this.logger)) {
+            return FilterReply.NEUTRAL;
+        }
+        if (counter.getAndIncrement() % sampleRate == 0) {
+            return FilterReply.NEUTRAL;
+        }
+        sampledOut.increment();
+        return FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (logger == null || logger.isEmpty()) {
+            addError("No logger set for sampling filter [" + getName() + "]");
+            return;
+        }
+        super.start();
+    }
+
+    /**
+     * 被采样丢弃的日志条数
+     */
+    public long getSampledOut() {
+        return sampledOut.sum();
+    }
+
+    public String getLogger() {
+        return logger;
+    }
+
+    public void setLogger(String logger) {
+        this.logger = logger;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public void setLevel(Level level) {
+        this.level = level;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+}
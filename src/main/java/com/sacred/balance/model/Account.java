@@ -22,6 +22,22 @@ public class Account implements Serializable {
     @Column(name = "balance")
     private double balance;
 
+    // 余额版本号，每次余额变更递增，供查询方判断数据新旧
+    @Column(name = "version", columnDefinition = "bigint default 0 not null")
+    private long version;
+
+    // 透支额度，余额最低可到 最低余额 - 透支额度
+    @Column(name = "overdraftLimit", columnDefinition = "double precision default 0 not null")
+    private double overdraftLimit;
+
+    // 最低余额
+    @Column(name = "minimumBalance", columnDefinition = "double precision default 0 not null")
+    private double minimumBalance;
+
+    // 冻结金额，不可转出
+    @Column(name = "heldAmount", columnDefinition = "double precision default 0 not null")
+    private double heldAmount;
+
     public Account() {}
 
     public Account(String accountNumber, double balance) {
@@ -29,4 +45,11 @@ public class Account implements Serializable {
         this.balance = balance;
     }
 
+    /**
+     * 转出后余额不得低于的下限：最低余额 - 透支额度 + 冻结金额
+     */
+    public double debitFloor() {
+        return minimumBalance - overdraftLimit + heldAmount;
+    }
+
 }
@@ -0,0 +1,23 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 账户余额视图，只包含查询所需字段，不加载JPA实体
+ */
+@Data
+public class AccountBalance implements Serializable {
+    private String accountNumber;
+    private double balance;
+    private long version;
+
+    public AccountBalance() {}
+
+    public AccountBalance(String accountNumber, double balance, long version) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.version = version;
+    }
+}
@@ -0,0 +1,21 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+/**
+ * 账户额度：转出后余额不得低于 minimumBalance - overdraftLimit + heldAmount
+ */
+@Data
+public class AccountLimits {
+    private double overdraftLimit;
+    private double minimumBalance;
+    private double heldAmount;
+
+    public AccountLimits() {}
+
+    public AccountLimits(double overdraftLimit, double minimumBalance, double heldAmount) {
+        this.overdraftLimit = overdraftLimit;
+        this.minimumBalance = minimumBalance;
+        this.heldAmount = heldAmount;
+    }
+}
@@ -0,0 +1,36 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 账户对账基线：截至 watermarkId（含）的交易流水推算出的账户余额
+ * 下次对账只需在基线上累加 watermarkId 之后的流水
+ */
+@Data
+@Entity
+@Table(name = "account_reconciliation")
+public class AccountReconciliation implements Serializable {
+    @Id
+    @Column(name = "accountNumber")
+    private String accountNumber;
+
+    @Column(name = "balance")
+    private double balance;
+
+    // 基线已包含的最大交易ID
+    @Column(name = "watermarkId")
+    private long watermarkId;
+
+    // watermarkId 之后的交易 timestamp 均不早于该时间（已扣除提交延迟余量），用于限定索引扫描范围
+    @Column(name = "watermarkTime")
+    private LocalDateTime watermarkTime;
+
+    @Column(name = "reconciledAt")
+    private LocalDateTime reconciledAt;
+
+    public AccountReconciliation() {}
+}
@@ -0,0 +1,48 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.Map;
+
+/**
+ * 余额变更事件，写入Redis Stream供下游订阅
+ * Stream中字段名使用单字母以压缩体积：a=账号 d=变动金额 b=变动后余额 s=序号（账户版本号） t=交易ID ts=时间（毫秒）
+ */
+@Data
+public class BalanceChangeEvent implements Serializable {
+    // Stream消息ID，可作为续传偏移量
+    private String id;
+    private String accountNumber;
+    private double delta;
+    private double balance;
+    // 账户内单调递增，下游可据此去重和排序
+    private long sequence;
+    private String transactionId;
+    private long timestamp;
+
+    public BalanceChangeEvent() {}
+
+    public BalanceChangeEvent(String accountNumber, double delta, double balance, long sequence,
+                              String transactionId, long timestamp) {
+        this.accountNumber = accountNumber;
+        this.delta = delta;
+        this.balance = balance;
+        this.sequence = sequence;
+        this.transactionId = transactionId;
+        this.timestamp = timestamp;
+    }
+
+    public static BalanceChangeEvent fromFields(String id, Map<?, ?> fields) {
+        BalanceChangeEvent event = new BalanceChangeEvent();
+        event.setId(id);
+        event.setAccountNumber(String.valueOf(fields.get("a")));
+        event.setDelta(Double.parseDouble(String.valueOf(fields.get("d"))));
+        event.setBalance(Double.parseDouble(String.valueOf(fields.get("b"))));
+        event.setSequence(Long.parseLong(String.valueOf(fields.get("s"))));
+        Object transactionId = fields.get("t");
+        event.setTransactionId(transactionId != null ? String.valueOf(transactionId) : null);
+        event.setTimestamp(Long.parseLong(String.valueOf(fields.get("ts"))));
+        return event;
+    }
+}
@@ -0,0 +1,41 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 账户余额检查点：checkpointTime 之前（不含）的全部交易入账后的余额
+ * 只为检查点区间内有交易的账户生成，无交易的区间沿用上一个检查点
+ */
+@Data
+@Entity
+@Table(name = "balance_checkpoints",
+       indexes = {
+           @Index(name = "idx_checkpoint_account_time", columnList = "accountNumber, checkpointTime", unique = true),
+           @Index(name = "idx_checkpoint_time", columnList = "checkpointTime")
+       })
+public class BalanceCheckpoint implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "accountNumber")
+    private String accountNumber;
+
+    @Column(name = "checkpointTime")
+    private LocalDateTime checkpointTime;
+
+    @Column(name = "balance")
+    private double balance;
+
+    public BalanceCheckpoint() {}
+
+    public BalanceCheckpoint(String accountNumber, LocalDateTime checkpointTime, double balance) {
+        this.accountNumber = accountNumber;
+        this.checkpointTime = checkpointTime;
+        this.balance = balance;
+    }
+}
@@ -0,0 +1,84 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.springframework.data.domain.Persistable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 服务端批量任务：提交的交易按固定大小分块持久化，逐块处理并记录游标
+ * 处理中的实例持有租约并在每块完成后续约；实例崩溃后租约过期，任一实例都可以接管，从游标处继续。
+ */
+@Data
+@Entity
+@Table(name = "batch_jobs",
+       indexes = @Index(name = "idx_batch_job_status_lease", columnList = "status, leaseUntil"))
+public class BatchJob implements Persistable<String>, Serializable {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @Column(name = "batchId")
+    private String batchId;
+
+    @Column(name = "status")
+    private String status;
+
+    // 是否按账户轧差处理每一块
+    @Column(name = "netted")
+    private boolean netted;
+
+    @Column(name = "totalTransactions")
+    private int totalTransactions;
+
+    @Column(name = "chunkSize")
+    private int chunkSize;
+
+    @Column(name = "totalChunks")
+    private int totalChunks;
+
+    // 下一个待处理的块序号，之前的块均已完成
+    @Column(name = "nextChunk")
+    private int nextChunk;
+
+    @Column(name = "successfulTransactions")
+    private int successfulTransactions;
+
+    @Column(name = "failedTransactions")
+    private int failedTransactions;
+
+    // 当前处理该任务的实例
+    @Column(name = "owner")
+    private String owner;
+
+    // 租约到期时间（毫秒），过期后其他实例可以接管
+    @Column(name = "leaseUntil")
+    private long leaseUntil;
+
+    @Column(name = "createdAt")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updatedAt")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "finishedAt")
+    private LocalDateTime finishedAt;
+
+    // 新建的任务按 persist 插入：并发创建同一批次时主键冲突，而不是 merge 覆盖已有任务的游标和计数
+    @Transient
+    private boolean created;
+
+    public BatchJob() {}
+
+    @Override
+    public String getId() {
+        return batchId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+}
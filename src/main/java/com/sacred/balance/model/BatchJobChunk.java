@@ -0,0 +1,48 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 批量任务的一块：提交时写入该块的交易（JSON），处理完成后写入逐笔结果（JSON）
+ */
+@Data
+@Entity
+@Table(name = "batch_job_chunks",
+       uniqueConstraints = @UniqueConstraint(name = "uk_batch_chunk", columnNames = {"batchId", "chunkIndex"}))
+public class BatchJobChunk implements Serializable {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batchId")
+    private String batchId;
+
+    @Column(name = "chunkIndex")
+    private int chunkIndex;
+
+    @Column(name = "transactionCount")
+    private int transactionCount;
+
+    @Column(name = "transactions", columnDefinition = "text")
+    private String transactions;
+
+    // 未完成时为空
+    @Column(name = "results", columnDefinition = "text")
+    private String results;
+
+    @Column(name = "successfulTransactions")
+    private int successfulTransactions;
+
+    @Column(name = "failedTransactions")
+    private int failedTransactions;
+
+    @Column(name = "completedAt")
+    private LocalDateTime completedAt;
+
+    public BatchJobChunk() {}
+}
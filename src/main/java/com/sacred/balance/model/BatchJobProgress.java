@@ -0,0 +1,27 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 批量任务进度，results 只在查询时要求返回结果才填充（已完成块的逐笔结果）
+ */
+@Data
+public class BatchJobProgress {
+    private String batchId;
+    private String status;
+    private boolean netted;
+    private int totalTransactions;
+    private int totalChunks;
+    private int completedChunks;
+    private int successfulTransactions;
+    private int failedTransactions;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+    private List<TransactionResult> results;
+
+    public BatchJobProgress() {}
+}
@@ -0,0 +1,35 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class DatabaseDiagnostics {
+    // 连接池当前状态
+    private int maxPoolSize;
+    private int activeConnections;
+    private int idleConnections;
+    private int pendingThreads;
+    // 获取连接的等待时间（进程启动以来）
+    private long connectionAcquireCount;
+    private double connectionAcquireMeanMillis;
+    private double connectionAcquireMaxMillis;
+    // Hibernate 查询计划缓存命中率，未开启统计时为 -1
+    private long statementCacheHits;
+    private long statementCacheMisses;
+    private double statementCacheHitRate = -1;
+    private long preparedStatements;
+    // 最大执行时间超过阈值的查询，按最大执行时间从大到小
+    private List<SlowQuery> slowQueries = new ArrayList<>();
+
+    @Data
+    public static class SlowQuery {
+        private String query;
+        private long executions;
+        private long avgMillis;
+        private long maxMillis;
+        private long rows;
+    }
+}
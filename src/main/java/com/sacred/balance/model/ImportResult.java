@@ -0,0 +1,17 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+@Data
+public class ImportResult {
+    private long rowsRead;
+    private long rowsImported;
+    private long rowsSkipped;
+    private long rowsRejected;
+    private int chunks;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+
+    public ImportResult() {}
+
+}
@@ -0,0 +1,75 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 事务发件箱记录：与余额更新在同一数据库事务中写入，由 OutboxRelay 按ID顺序批量同步到Redis后删除
+ * BALANCE_CHANGE 携带变更后的账户快照，用于刷新账户缓存、余额视图并发布余额变更事件；
+ * TRANSACTION_PROCESSED 只携带交易ID，用于写入幂等“已处理”标记
+ */
+@Data
+@Entity
+@Table(name = "outbox_events")
+public class OutboxEvent implements Serializable {
+
+    public static final String BALANCE_CHANGE = "BALANCE_CHANGE";
+    public static final String TRANSACTION_PROCESSED = "TRANSACTION_PROCESSED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "eventType", length = 32, nullable = false)
+    private String eventType;
+
+    @Column(name = "accountId")
+    private Long accountId;
+
+    @Column(name = "accountNumber")
+    private String accountNumber;
+
+    // 变更后的余额
+    @Column(name = "balance")
+    private double balance;
+
+    // 本次变动金额
+    @Column(name = "delta")
+    private double delta;
+
+    // 变更后的账户版本号
+    @Column(name = "accountVersion")
+    private long accountVersion;
+
+    @Column(name = "transactionId")
+    private String transactionId;
+
+    // 写入时间（毫秒）
+    @Column(name = "createdAt")
+    private long createdAt;
+
+    public OutboxEvent() {}
+
+    public static OutboxEvent balanceChange(Account account, double delta, String transactionId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(BALANCE_CHANGE);
+        event.setAccountId(account.getId());
+        event.setAccountNumber(account.getAccountNumber());
+        event.setBalance(account.getBalance());
+        event.setDelta(delta);
+        event.setAccountVersion(account.getVersion());
+        event.setTransactionId(transactionId);
+        event.setCreatedAt(System.currentTimeMillis());
+        return event;
+    }
+
+    public static OutboxEvent transactionProcessed(String transactionId) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(TRANSACTION_PROCESSED);
+        event.setTransactionId(transactionId);
+        event.setCreatedAt(System.currentTimeMillis());
+        return event;
+    }
+}
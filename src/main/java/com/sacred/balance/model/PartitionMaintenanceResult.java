@@ -0,0 +1,15 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class PartitionMaintenanceResult {
+    // 交易表是否为分区表；非分区表时不做任何处理
+    private boolean partitioned;
+    private List<String> createdPartitions = new ArrayList<>();
+    private List<String> archivedPartitions = new ArrayList<>();
+    private long elapsedMillis;
+}
@@ -0,0 +1,25 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+public class PointInTimeBalance implements Serializable {
+    private String accountNumber;
+    // at 之前（不含）的全部交易入账后的余额
+    private double balance;
+    private LocalDateTime at;
+    // 计算所基于的检查点时间，为空表示没有检查点、由当前余额倒推
+    private LocalDateTime checkpointTime;
+
+    public PointInTimeBalance() {}
+
+    public PointInTimeBalance(String accountNumber, double balance, LocalDateTime at, LocalDateTime checkpointTime) {
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.at = at;
+        this.checkpointTime = checkpointTime;
+    }
+}
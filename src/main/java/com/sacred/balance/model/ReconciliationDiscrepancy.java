@@ -0,0 +1,43 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+
+@Data
+@Entity
+@Table(name = "reconciliation_discrepancies",
+       indexes = {
+           @Index(name = "idx_discrepancy_run", columnList = "runId")
+       })
+public class ReconciliationDiscrepancy implements Serializable {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "runId")
+    private Long runId;
+
+    @Column(name = "accountNumber")
+    private String accountNumber;
+
+    // 基线 + 流水推算出的余额
+    @Column(name = "expectedBalance")
+    private double expectedBalance;
+
+    @Column(name = "actualBalance")
+    private double actualBalance;
+
+    @Column(name = "difference")
+    private double difference;
+
+    public ReconciliationDiscrepancy() {}
+
+    public ReconciliationDiscrepancy(String accountNumber, double expectedBalance, double actualBalance) {
+        this.accountNumber = accountNumber;
+        this.expectedBalance = expectedBalance;
+        this.actualBalance = actualBalance;
+        this.difference = actualBalance - expectedBalance;
+    }
+}
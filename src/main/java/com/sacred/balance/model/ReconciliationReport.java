@@ -0,0 +1,20 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class ReconciliationReport implements Serializable {
+    private ReconciliationRun run;
+    // 按差额绝对值从大到小，最多保留 balance.reconciliation.max-reported 条
+    private List<ReconciliationDiscrepancy> discrepancies;
+
+    public ReconciliationReport() {}
+
+    public ReconciliationReport(ReconciliationRun run, List<ReconciliationDiscrepancy> discrepancies) {
+        this.run = run;
+        this.discrepancies = discrepancies;
+    }
+}
@@ -0,0 +1,54 @@
+package com.sacred.balance.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+@Entity
+@Table(name = "reconciliation_runs")
+public class ReconciliationRun implements Serializable {
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "status")
+    private String status;
+
+    @Column(name = "startedAt")
+    private LocalDateTime startedAt;
+
+    @Column(name = "finishedAt")
+    private LocalDateTime finishedAt;
+
+    // 本次对账的交易ID水位
+    @Column(name = "watermarkId")
+    private long watermarkId;
+
+    @Column(name = "accountsChecked")
+    private long accountsChecked;
+
+    // 首次出现、以当前余额作为基线的账户数
+    @Column(name = "accountsInitialized")
+    private long accountsInitialized;
+
+    @Column(name = "discrepancies")
+    private long discrepancies;
+
+    @Column(name = "totalAbsDifference")
+    private double totalAbsDifference;
+
+    @Column(name = "elapsedMillis")
+    private long elapsedMillis;
+
+    @Column(name = "message", length = 1000)
+    private String message;
+
+    public ReconciliationRun() {}
+}
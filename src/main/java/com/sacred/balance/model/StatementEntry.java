@@ -0,0 +1,32 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+@Data
+public class StatementEntry implements Serializable {
+    public static final String DEBIT = "DEBIT";
+    public static final String CREDIT = "CREDIT";
+
+    private Long id;
+    private String transactionId;
+    // 相对于查询账户的方向：转出为 DEBIT，转入为 CREDIT
+    private String direction;
+    private String counterparty;
+    private double amount;
+    private LocalDateTime timestamp;
+
+    public StatementEntry() {}
+
+    public StatementEntry(Transaction transaction, String accountNumber) {
+        this.id = transaction.getId();
+        this.transactionId = transaction.getTransactionId();
+        boolean debit = accountNumber.equals(transaction.getSourceAccount());
+        this.direction = debit ? DEBIT : CREDIT;
+        this.counterparty = debit ? transaction.getDestinationAccount() : transaction.getSourceAccount();
+        this.amount = transaction.getAmount();
+        this.timestamp = transaction.getTimestamp();
+    }
+}
@@ -0,0 +1,22 @@
+package com.sacred.balance.model;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.List;
+
+@Data
+public class StatementPage implements Serializable {
+    private String accountNumber;
+    private List<StatementEntry> entries;
+    // 下一页游标，为空表示没有更多记录
+    private String nextCursor;
+
+    public StatementPage() {}
+
+    public StatementPage(String accountNumber, List<StatementEntry> entries, String nextCursor) {
+        this.accountNumber = accountNumber;
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+}
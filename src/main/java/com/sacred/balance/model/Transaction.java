@@ -12,8 +12,9 @@ import java.time.LocalDateTime;
 @Table(name = "transactions",
        indexes = {
            @Index(name = "idx_transaction_id", columnList = "transactionId"),
-           @Index(name = "idx_source_account", columnList = "sourceAccount"),
-           @Index(name = "idx_destination_account", columnList = "destinationAccount"),
+           // 账户流水键集分页使用 (账户, timestamp, id) 组合索引，同时覆盖按账户的单列查询
+           @Index(name = "idx_source_account_ts", columnList = "sourceAccount, timestamp, id"),
+           @Index(name = "idx_destination_account_ts", columnList = "destinationAccount, timestamp, id"),
            @Index(name = "idx_timestamp", columnList = "timestamp")
        })
 public class Transaction implements Serializable {
@@ -1,12 +1,58 @@
 package com.sacred.balance.repository;
 
 import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByAccountNumber(String accountNumber);
+
+    boolean existsByAccountNumber(String accountNumber);
+
+    /**
+     * 按账号批量查询余额视图（构造器投影，不产生托管实体）
+     */
+    @Query("select new com.sacred.balance.model.AccountBalance(a.accountNumber, a.balance, a.version) " +
+           "from Account a where a.accountNumber in :accountNumbers")
+    List<AccountBalance> findBalancesByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    List<Account> findByAccountNumberIn(Collection<String> accountNumbers);
+
+    /**
+     * 按账号顺序加行锁读取账户，多个批次以相同顺序加锁，避免相互死锁
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.accountNumber in :accountNumbers order by a.accountNumber")
+    List<Account> findAllForUpdate(@Param("accountNumbers") Collection<String> accountNumbers);
+
+    /**
+     * 在额度内扣款：额度校验与扣款是同一条条件更新，不满足时不更新任何行（返回0）
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Account a set a.balance = a.balance - :amount, a.version = a.version + 1 " +
+           "where a.accountNumber = :accountNumber " +
+           "and a.balance - :amount >= a.minimumBalance - a.overdraftLimit + a.heldAmount")
+    int debitWithinLimits(@Param("accountNumber") String accountNumber, @Param("amount") double amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Account a set a.balance = a.balance + :amount, a.version = a.version + 1 " +
+           "where a.accountNumber = :accountNumber")
+    int credit(@Param("accountNumber") String accountNumber, @Param("amount") double amount);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Account a set a.overdraftLimit = :overdraftLimit, a.minimumBalance = :minimumBalance, " +
+           "a.heldAmount = :heldAmount where a.accountNumber = :accountNumber")
+    int updateLimits(@Param("accountNumber") String accountNumber, @Param("overdraftLimit") double overdraftLimit,
+                     @Param("minimumBalance") double minimumBalance, @Param("heldAmount") double heldAmount);
 }
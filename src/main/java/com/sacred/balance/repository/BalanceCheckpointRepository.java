@@ -0,0 +1,34 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+
+    Optional<BalanceCheckpoint> findTopByAccountNumberAndCheckpointTimeLessThanEqualOrderByCheckpointTimeDesc(
+        String accountNumber, LocalDateTime time);
+
+    Optional<BalanceCheckpoint> findTopByAccountNumberAndCheckpointTimeGreaterThanOrderByCheckpointTimeAsc(
+        String accountNumber, LocalDateTime time);
+
+    /**
+     * 批量查询各账户不晚于 time 的最近检查点
+     */
+    @Query("select c from BalanceCheckpoint c where c.accountNumber in :accountNumbers and c.checkpointTime = " +
+           "(select max(c2.checkpointTime) from BalanceCheckpoint c2 " +
+           " where c2.accountNumber = c.accountNumber and c2.checkpointTime <= :time)")
+    List<BalanceCheckpoint> findLatestByAccountNumberIn(@Param("accountNumbers") Collection<String> accountNumbers,
+                                                       @Param("time") LocalDateTime time);
+
+    @Query("select max(c.checkpointTime) from BalanceCheckpoint c")
+    LocalDateTime findLatestCheckpointTime();
+}
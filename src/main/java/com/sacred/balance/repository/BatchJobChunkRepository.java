@@ -0,0 +1,26 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.BatchJobChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BatchJobChunkRepository extends JpaRepository<BatchJobChunk, Long> {
+
+    Optional<BatchJobChunk> findByBatchIdAndChunkIndex(String batchId, int chunkIndex);
+
+    List<BatchJobChunk> findByBatchIdAndChunkIndexLessThanOrderByChunkIndexAsc(String batchId, int chunkIndex);
+
+    @Modifying
+    @Transactional
+    @Query("delete from BatchJobChunk c where c.batchId in :batchIds")
+    int deleteByBatchIdIn(@Param("batchIds") Collection<String> batchIds);
+}
@@ -0,0 +1,37 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.BatchJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface BatchJobRepository extends JpaRepository<BatchJob, String> {
+
+    /**
+     * 租约未被其他实例持有（无主、属于自己或已过期）时取得或续约，返回1表示成功
+     */
+    @Modifying
+    @Transactional
+    @Query("update BatchJob j set j.owner = :owner, j.leaseUntil = :leaseUntil " +
+           "where j.batchId = :batchId and j.status = 'RUNNING' " +
+           "and (j.owner is null or j.owner = :owner or j.leaseUntil < :now)")
+    int acquireLease(@Param("batchId") String batchId, @Param("owner") String owner,
+                     @Param("leaseUntil") long leaseUntil, @Param("now") long now);
+
+    /**
+     * 租约已过期、需要接管的任务
+     */
+    @Query("select j.batchId from BatchJob j where j.status = 'RUNNING' and j.leaseUntil < :now order by j.createdAt")
+    List<String> findAbandoned(@Param("now") long now, Pageable pageable);
+
+    @Query("select j.batchId from BatchJob j where j.status = 'COMPLETED' and j.finishedAt < :before")
+    List<String> findFinishedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+}
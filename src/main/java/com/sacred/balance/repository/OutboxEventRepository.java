@@ -0,0 +1,17 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.OutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    /**
+     * 按写入顺序取最早的一批
+     */
+    List<OutboxEvent> findAllByOrderByIdAsc(Pageable pageable);
+}
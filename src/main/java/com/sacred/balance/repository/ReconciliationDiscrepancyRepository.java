@@ -0,0 +1,12 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.ReconciliationDiscrepancy;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ReconciliationDiscrepancyRepository extends JpaRepository<ReconciliationDiscrepancy, Long> {
+    List<ReconciliationDiscrepancy> findByRunIdOrderByIdAsc(Long runId);
+}
@@ -0,0 +1,14 @@
+package com.sacred.balance.repository;
+
+import com.sacred.balance.model.ReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ReconciliationRunRepository extends JpaRepository<ReconciliationRun, Long> {
+    Optional<ReconciliationRun> findTopByStatusOrderByIdDesc(String status);
+
+    Optional<ReconciliationRun> findTopByOrderByIdDesc();
+}
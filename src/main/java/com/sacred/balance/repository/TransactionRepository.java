@@ -1,9 +1,118 @@
 package com.sacred.balance.repository;
 
 import com.sacred.balance.model.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+
+    boolean existsByTransactionId(String transactionId);
+
+    /**
+     * 按ID中解析出的时间窗口查询，配合 timestamp 范围裁剪扫描的索引页（分区表时裁剪分区）
+     */
+    boolean existsByTransactionIdAndTimestampBetween(String transactionId, LocalDateTime from, LocalDateTime to);
+
+    /**
+     * 转出流水的键集分页，按 (timestamp, id) 倒序取严格早于 (beforeTimestamp, beforeId) 的记录
+     * 冗余的 timestamp <= :beforeTimestamp 条件让 idx_source_account_ts 直接定位到游标位置，翻到多深都不需要跳过前面的行
+     */
+    @Query("select t from Transaction t where t.sourceAccount = :accountNumber " +
+           "and t.timestamp >= :from and t.timestamp <= :beforeTimestamp " +
+           "and (t.timestamp < :beforeTimestamp or t.id < :beforeId) " +
+           "order by t.timestamp desc, t.id desc")
+    List<Transaction> findDebitsBefore(@Param("accountNumber") String accountNumber,
+                                       @Param("from") LocalDateTime from,
+                                       @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                       @Param("beforeId") long beforeId,
+                                       Pageable pageable);
+
+    /**
+     * 转入流水的键集分页，使用 idx_destination_account_ts
+     */
+    @Query("select t from Transaction t where t.destinationAccount = :accountNumber " +
+           "and t.timestamp >= :from and t.timestamp <= :beforeTimestamp " +
+           "and (t.timestamp < :beforeTimestamp or t.id < :beforeId) " +
+           "order by t.timestamp desc, t.id desc")
+    List<Transaction> findCreditsBefore(@Param("accountNumber") String accountNumber,
+                                        @Param("from") LocalDateTime from,
+                                        @Param("beforeTimestamp") LocalDateTime beforeTimestamp,
+                                        @Param("beforeId") long beforeId,
+                                        Pageable pageable);
+
+    /**
+     * 单个账户在 [from, to) 内的转出合计
+     */
+    @Query("select coalesce(sum(t.amount), 0.0) from Transaction t where t.sourceAccount = :accountNumber " +
+           "and t.timestamp >= :from and t.timestamp < :to")
+    double sumDebits(@Param("accountNumber") String accountNumber,
+                     @Param("from") LocalDateTime from,
+                     @Param("to") LocalDateTime to);
+
+    /**
+     * 单个账户在 [from, to) 内的转入合计
+     */
+    @Query("select coalesce(sum(t.amount), 0.0) from Transaction t where t.destinationAccount = :accountNumber " +
+           "and t.timestamp >= :from and t.timestamp < :to")
+    double sumCredits(@Param("accountNumber") String accountNumber,
+                      @Param("from") LocalDateTime from,
+                      @Param("to") LocalDateTime to);
+
+    /**
+     * from 之后（含）最早的交易时间，没有时返回 null；按 idx_timestamp 取第一条
+     */
+    @Query("select min(t.timestamp) from Transaction t where t.timestamp >= :from")
+    LocalDateTime findFirstTimestampSince(@Param("from") LocalDateTime from);
+
+    /**
+     * [from, to) 内按转出账户汇总，按 idx_timestamp 扫描区间内的交易；返回 [账号, 合计]
+     */
+    @Query("select t.sourceAccount, sum(t.amount) from Transaction t " +
+           "where t.timestamp >= :from and t.timestamp < :to group by t.sourceAccount")
+    List<Object[]> sumDebitsByAccount(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * [from, to) 内按转入账户汇总；返回 [账号, 合计]
+     */
+    @Query("select t.destinationAccount, sum(t.amount) from Transaction t " +
+           "where t.timestamp >= :from and t.timestamp < :to group by t.destinationAccount")
+    List<Object[]> sumCreditsByAccount(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    /**
+     * 指定账户在 from 之后（含）的转出合计；返回 [账号, 合计]
+     */
+    @Query("select t.sourceAccount, sum(t.amount) from Transaction t " +
+           "where t.sourceAccount in :accountNumbers and t.timestamp >= :from group by t.sourceAccount")
+    List<Object[]> sumDebitsSince(@Param("accountNumbers") Collection<String> accountNumbers,
+                                  @Param("from") LocalDateTime from);
+
+    /**
+     * 指定账户在 from 之后（含）的转入合计；返回 [账号, 合计]
+     */
+    @Query("select t.destinationAccount, sum(t.amount) from Transaction t " +
+           "where t.destinationAccount in :accountNumbers and t.timestamp >= :from group by t.destinationAccount")
+    List<Object[]> sumCreditsSince(@Param("accountNumbers") Collection<String> accountNumbers,
+                                   @Param("from") LocalDateTime from);
+
+    /**
+     * from 之后（含）转出笔数最多的账户，按 idx_timestamp 扫描；返回 [账号, 笔数]
+     */
+    @Query("select t.sourceAccount, count(t) from Transaction t " +
+           "where t.timestamp >= :from group by t.sourceAccount order by count(t) desc")
+    List<Object[]> countDebitsByAccountSince(@Param("from") LocalDateTime from, Pageable pageable);
+
+    /**
+     * from 之后（含）转入笔数最多的账户；返回 [账号, 笔数]
+     */
+    @Query("select t.destinationAccount, count(t) from Transaction t " +
+           "where t.timestamp >= :from group by t.destinationAccount order by count(t) desc")
+    List<Object[]> countCreditsByAccountSince(@Param("from") LocalDateTime from, Pageable pageable);
 }
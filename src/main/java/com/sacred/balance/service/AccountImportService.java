@@ -0,0 +1,292 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.ImportResult;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 账户批量导入服务
+ * 流式读取CSV，按批次通过 COPY FROM STDIN 写入临时表再合并到 accounts，导入后管道预热Redis缓存
+ */
+@Service
+public class AccountImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AccountImportService.class);
+
+    // 临时表，按批次COPY后合并，重复账号跳过
+    private static final String CREATE_STAGE_SQL =
+        "CREATE TEMP TABLE IF NOT EXISTS account_import_stage " +
+        "(account_number VARCHAR(255), balance FLOAT8) ON COMMIT DELETE ROWS";
+    private static final String COPY_STAGE_SQL =
+        "COPY account_import_stage (account_number, balance) FROM STDIN WITH (FORMAT csv)";
+    private static final String MERGE_STAGE_SQL =
+        "INSERT INTO accounts (account_number, balance, version) " +
+        "SELECT account_number, balance, 0 FROM account_import_stage " +
+        "ON CONFLICT (account_number) DO NOTHING RETURNING id, account_number, balance";
+    // 非PostgreSQL数据库（如测试用H2）退化为JDBC批量插入
+    private static final String INSERT_SQL =
+        "INSERT INTO accounts (account_number, balance, version) VALUES (?, ?, 0)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    // 每批次行数
+    @Value("${balance.import.chunk-size:50000}")
+    private int chunkSize;
+
+    // 预热账户缓存的过期时间，与 @Cacheable 缓存保持一致
+    @Value("${spring.cache.redis.time-to-live:1800000}")
+    private long cacheTimeToLiveMillis;
+
+    public ImportResult importAccounts(Path file, boolean warmCache) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return importAccounts(in, warmCache);
+        }
+    }
+
+    /**
+     * 导入 "id,accountNumber,balance" 或 "accountNumber,balance" 格式的CSV，内存占用与文件大小无关
+     */
+    public ImportResult importAccounts(InputStream in, boolean warmCache) throws IOException {
+        long startTime = System.currentTimeMillis();
+        ImportResult result = new ImportResult();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+             Connection connection = dataSource.getConnection()) {
+            boolean postgres = connection.isWrapperFor(PGConnection.class);
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            if (postgres) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(CREATE_STAGE_SQL);
+                }
+                connection.commit();
+            }
+
+            int accountColumn = -1;
+            int balanceColumn = -1;
+            List<String> accountNumbers = new ArrayList<>(chunkSize);
+            double[] balances = new double[chunkSize];
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] columns = line.split(",", -1);
+                if (accountColumn < 0) {
+                    accountColumn = indexOf(columns, "accountNumber");
+                    balanceColumn = indexOf(columns, "balance");
+                    if (accountColumn >= 0 && balanceColumn >= 0) {
+                        // 表头行
+                        continue;
+                    }
+                    // 无表头时取最后两列
+                    accountColumn = columns.length - 2;
+                    balanceColumn = columns.length - 1;
+                }
+
+                result.setRowsRead(result.getRowsRead() + 1);
+                if (columns.length <= Math.max(accountColumn, balanceColumn) || accountColumn < 0) {
+                    result.setRowsRejected(result.getRowsRejected() + 1);
+                    continue;
+                }
+                String accountNumber = columns[accountColumn].trim();
+                double balance;
+                try {
+                    balance = Double.parseDouble(columns[balanceColumn].trim());
+                } catch (NumberFormatException e) {
+                    result.setRowsRejected(result.getRowsRejected() + 1);
+                    continue;
+                }
+                if (accountNumber.isEmpty() || accountNumber.indexOf('"') >= 0) {
+                    result.setRowsRejected(result.getRowsRejected() + 1);
+                    continue;
+                }
+
+                balances[accountNumbers.size()] = balance;
+                accountNumbers.add(accountNumber);
+                if (accountNumbers.size() == chunkSize) {
+                    flushChunk(connection, postgres, accountNumbers, balances, warmCache, result, startTime);
+                }
+            }
+            if (!accountNumbers.isEmpty()) {
+                flushChunk(connection, postgres, accountNumbers, balances, warmCache, result, startTime);
+            }
+            connection.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+            logger.error("Account import failed after {} rows: {}", result.getRowsRead(), e.getMessage(), e);
+            throw new BusinessException(500, "Account import failed: " + e.getMessage(), e);
+        }
+
+        result.setElapsedMillis(System.currentTimeMillis() - startTime);
+        result.setRowsPerSecond(rowsPerSecond(result.getRowsImported(), result.getElapsedMillis()));
+        logger.info("Account import completed. Read: {}, Imported: {}, Skipped: {}, Rejected: {}, Elapsed: {} ms, Rate: {} rows/s",
+                   result.getRowsRead(), result.getRowsImported(), result.getRowsSkipped(),
+                   result.getRowsRejected(), result.getElapsedMillis(), result.getRowsPerSecond());
+        return result;
+    }
+
+    /**
+     * 写入一个批次并提交，然后预热该批次的缓存
+     */
+    private void flushChunk(Connection connection, boolean postgres, List<String> accountNumbers, double[] balances,
+                            boolean warmCache, ImportResult result, long startTime) throws SQLException {
+        List<Account> imported;
+        try {
+            imported = postgres
+                ? copyChunk(connection, accountNumbers, balances)
+                : insertChunk(connection, accountNumbers, balances);
+            connection.commit();
+        } catch (SQLException | IOException e) {
+            connection.rollback();
+            throw e instanceof SQLException ? (SQLException) e : new SQLException(e.getMessage(), e);
+        }
+
+        result.setChunks(result.getChunks() + 1);
+        result.setRowsImported(result.getRowsImported() + imported.size());
+        result.setRowsSkipped(result.getRowsSkipped() + accountNumbers.size() - imported.size());
+        accountNumbers.clear();
+
+        if (warmCache && !imported.isEmpty()) {
+            warmCache(imported);
+        }
+        logger.info("Account import chunk {} committed. Imported so far: {}, Rate: {} rows/s",
+                   result.getChunks(), result.getRowsImported(),
+                   rowsPerSecond(result.getRowsImported(), System.currentTimeMillis() - startTime));
+    }
+
+    private List<Account> copyChunk(Connection connection, List<String> accountNumbers, double[] balances)
+            throws SQLException, IOException {
+        StringBuilder csv = new StringBuilder(accountNumbers.size() * 32);
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            csv.append('"').append(accountNumbers.get(i)).append('"').append(',').append(balances[i]).append('\n');
+        }
+
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        copyManager.copyIn(COPY_STAGE_SQL, new StringReader(csv.toString()));
+
+        List<Account> imported = new ArrayList<>(accountNumbers.size());
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(MERGE_STAGE_SQL)) {
+            while (rs.next()) {
+                Account account = new Account(rs.getString(2), rs.getDouble(3));
+                account.setId(rs.getLong(1));
+                imported.add(account);
+            }
+        }
+        return imported;
+    }
+
+    private List<Account> insertChunk(Connection connection, List<String> accountNumbers, double[] balances)
+            throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (PreparedStatement query = connection.prepareStatement(
+                "SELECT account_number FROM accounts WHERE account_number = ?")) {
+            for (String accountNumber : accountNumbers) {
+                query.setString(1, accountNumber);
+                try (ResultSet rs = query.executeQuery()) {
+                    if (rs.next()) {
+                        existing.add(accountNumber);
+                    }
+                }
+            }
+        }
+
+        List<Account> imported = new ArrayList<>(accountNumbers.size());
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            for (int i = 0; i < accountNumbers.size(); i++) {
+                String accountNumber = accountNumbers.get(i);
+                if (!existing.add(accountNumber)) {
+                    continue;
+                }
+                insert.setString(1, accountNumber);
+                insert.setDouble(2, balances[i]);
+                insert.addBatch();
+                imported.add(new Account(accountNumber, balances[i]));
+            }
+            insert.executeBatch();
+        }
+        return imported;
+    }
+
+    /**
+     * 管道写入账户缓存（带ID的实体）和余额视图
+     */
+    @SuppressWarnings("unchecked")
+    private void warmCache(List<Account> accounts) {
+        List<AccountBalance> views = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            views.add(new AccountBalance(account.getAccountNumber(), account.getBalance(), account.getVersion()));
+        }
+        balanceQueryService.cacheBalances(views);
+
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration expiration = Expiration.from(cacheTimeToLiveMillis, TimeUnit.MILLISECONDS);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Account account : accounts) {
+                if (account.getId() == null) {
+                    continue;
+                }
+                connection.stringCommands().set(
+                    AccountService.accountCacheKey(account.getAccountNumber()).getBytes(StandardCharsets.UTF_8),
+                    valueSerializer.serialize(account),
+                    expiration,
+                    RedisStringCommands.SetOption.upsert());
+            }
+            return null;
+        });
+    }
+
+    private static int indexOf(String[] columns, String name) {
+        for (int i = 0; i < columns.length; i++) {
+            if (name.equalsIgnoreCase(columns[i].trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static long rowsPerSecond(long rows, long elapsedMillis) {
+        return elapsedMillis > 0 ? rows * 1000 / elapsedMillis : rows;
+    }
+}
@@ -1,13 +1,13 @@
 package com.sacred.balance.service;
 
 import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountLimits;
 import com.sacred.balance.repository.AccountRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
@@ -26,17 +26,25 @@ public class AccountService {
     private AccountRepository accountRepository;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private TransactionOutbox transactionOutbox;
+
+    // 账户缓存键前缀，与 @Cacheable 生成的键一致
+    public static final String ACCOUNT_CACHE_KEY_PREFIX = "accounts::";
 
     // 并发本地锁控制
     private final ConcurrentHashMap<String, ReentrantLock> accountLocks = new ConcurrentHashMap<>();
 
-    @Cacheable(value = "accounts", key = "#accountNumber")
+    // 账户缓存键以账号作为 hash tag，与余额视图落在同一个槽
+    @Cacheable(value = "accounts", key = "'{' + #accountNumber + '}'")
     public Optional<Account> findByAccountNumber(String accountNumber) {
         logger.debug("Finding account by account number: {}", accountNumber);
         return accountRepository.findByAccountNumber(accountNumber);
     }
 
+    public static String accountCacheKey(String accountNumber) {
+        return ACCOUNT_CACHE_KEY_PREFIX + "{" + accountNumber + "}";
+    }
+
     /**
      * 维护帐户锁，更新余额加锁操作
      */
@@ -47,6 +55,70 @@ public class AccountService {
         backoff = @Backoff(delay = 100, multiplier = 2)
     )
     public boolean updateBalance(String accountNumber, double amount) {
+        return doUpdateBalance(accountNumber, amount, null);
+    }
+
+    /**
+     * 更新余额并关联交易ID，变更事件中携带该交易ID
+     */
+    @Transactional
+    @Retryable(
+        value = {OptimisticLockingFailureException.class},
+        maxAttempts = 3,
+        backoff = @Backoff(delay = 100, multiplier = 2)
+    )
+    public boolean updateBalance(String accountNumber, double amount, String transactionId) {
+        return doUpdateBalance(accountNumber, amount, transactionId);
+    }
+
+    /**
+     * 在额度内扣款，返回扣款后的账户；余额扣减后低于 最低余额 - 透支额度 + 冻结金额，或账户不存在时不更新，返回空
+     * 校验与扣款是同一条条件更新，并发扣款由数据库行锁串行，不会透支，也不需要事先读取账户
+     */
+    @Transactional
+    public Optional<Account> debit(String accountNumber, double amount, String transactionId) {
+        if (accountRepository.debitWithinLimits(accountNumber, amount) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(changed(accountNumber, -amount, transactionId));
+    }
+
+    /**
+     * 入账，返回入账后的账户；账户不存在时返回空
+     */
+    @Transactional
+    public Optional<Account> credit(String accountNumber, double amount, String transactionId) {
+        if (accountRepository.credit(accountNumber, amount) == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(changed(accountNumber, amount, transactionId));
+    }
+
+    public boolean exists(String accountNumber) {
+        return accountRepository.existsByAccountNumber(accountNumber);
+    }
+
+    /**
+     * 设置账户的透支额度、最低余额和冻结金额，只影响之后的扣款
+     */
+    @Transactional
+    public boolean updateLimits(String accountNumber, AccountLimits limits) {
+        return accountRepository.updateLimits(accountNumber, limits.getOverdraftLimit(),
+            limits.getMinimumBalance(), limits.getHeldAmount()) == 1;
+    }
+
+    /**
+     * 读取刚被本事务更新的账户（行锁已由更新持有），写入发件箱
+     */
+    private Account changed(String accountNumber, double amount, String transactionId) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+            .orElseThrow(() -> new IllegalStateException("Account disappeared after update: " + accountNumber));
+        // 账户缓存、余额视图和变更事件随本事务写入发件箱，提交后由中继同步到Redis
+        transactionOutbox.balanceChanged(account, amount, transactionId);
+        return account;
+    }
+
+    private boolean doUpdateBalance(String accountNumber, double amount, String transactionId) {
         ReentrantLock lock = accountLocks.computeIfAbsent(accountNumber, k -> new ReentrantLock());
 
         lock.lock();
@@ -56,13 +128,16 @@ public class AccountService {
                 Account account = accountOpt.get();
                 double oldBalance = account.getBalance();
                 account.setBalance(account.getBalance() + amount);
+                account.setVersion(account.getVersion() + 1);
                 accountRepository.save(account);
 
-                // 手动将更新后的账户信息放入缓存
-                redisTemplate.opsForValue().set("accounts::" + accountNumber, account);
+                // 账户缓存、余额视图和变更事件随本事务写入发件箱，提交后由中继同步到Redis
+                transactionOutbox.balanceChanged(account, amount, transactionId);
 
-                logger.info("Account balance updated. Account: {}, Old Balance: {}, Amount: {}, New Balance: {}",
-                           accountNumber, oldBalance, amount, account.getBalance());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Account balance updated. Account: {}, Old Balance: {}, Amount: {}, New Balance: {}",
+                                accountNumber, oldBalance, amount, account.getBalance());
+                }
                 return true;
             } else {
                 logger.warn("Account not found for balance update: {}", accountNumber);
@@ -0,0 +1,161 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.StatementEntry;
+import com.sacred.balance.model.StatementPage;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 账户流水查询
+ * 按 (timestamp, id) 倒序键集分页：转出、转入分别走各自的组合索引各取一页，在内存中归并；
+ * 每页开销只与页大小有关，与翻页深度无关
+ */
+@Service
+public class AccountStatementService {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    // 导出时每次查询的行数
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    /**
+     * 查询一页流水
+     * @param from 起始时间（含），为空不限
+     * @param to 结束时间（不含），为空不限
+     * @param cursor 上一页返回的 nextCursor，为空从最新记录开始
+     */
+    public StatementPage getStatement(String accountNumber, LocalDateTime from, LocalDateTime to,
+                                      String cursor, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new BusinessException(400, "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        requireAccount(accountNumber);
+
+        Position position = cursor != null && !cursor.isEmpty()
+            ? decodeCursor(cursor)
+            : new Position(to != null ? to : LATEST, Long.MIN_VALUE);
+        List<StatementEntry> entries = fetch(accountNumber, from != null ? from : EARLIEST, position, limit + 1);
+
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            StatementEntry last = entries.get(limit - 1);
+            nextCursor = encodeCursor(last.getTimestamp(), last.getId());
+        }
+        return new StatementPage(accountNumber, new ArrayList<>(entries), nextCursor);
+    }
+
+    /**
+     * 按页顺序遍历时间范围内的全部流水，每页单独查询，不长时间占用数据库连接
+     */
+    public void exportStatement(String accountNumber, LocalDateTime from, LocalDateTime to,
+                                Consumer<List<StatementEntry>> pageConsumer) {
+        LocalDateTime lowerBound = from != null ? from : EARLIEST;
+        Position position = new Position(to != null ? to : LATEST, Long.MIN_VALUE);
+        while (true) {
+            List<StatementEntry> entries = fetch(accountNumber, lowerBound, position, EXPORT_PAGE_SIZE);
+            if (entries.isEmpty()) {
+                return;
+            }
+            pageConsumer.accept(entries);
+            if (entries.size() < EXPORT_PAGE_SIZE) {
+                return;
+            }
+            StatementEntry last = entries.get(entries.size() - 1);
+            position = new Position(last.getTimestamp(), last.getId());
+        }
+    }
+
+    public void requireAccount(String accountNumber) {
+        if (balanceQueryService.getBalance(accountNumber).isEmpty()) {
+            throw new BusinessException(404, "Account not found: " + accountNumber);
+        }
+    }
+
+    /**
+     * 转出、转入各取 size 条后按 (timestamp, id) 倒序归并，取前 size 条；自转账在两边各出现一次，按ID去重
+     */
+    private List<StatementEntry> fetch(String accountNumber, LocalDateTime from, Position before, int size) {
+        PageRequest page = PageRequest.of(0, size);
+        List<Transaction> debits = transactionRepository.findDebitsBefore(
+            accountNumber, from, before.timestamp, before.id, page);
+        List<Transaction> credits = transactionRepository.findCreditsBefore(
+            accountNumber, from, before.timestamp, before.id, page);
+
+        List<StatementEntry> merged = new ArrayList<>(Math.min(size, debits.size() + credits.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < size && (i < debits.size() || j < credits.size())) {
+            Transaction next;
+            if (j >= credits.size()) {
+                next = debits.get(i++);
+            } else if (i >= debits.size()) {
+                next = credits.get(j++);
+            } else {
+                Transaction debit = debits.get(i);
+                Transaction credit = credits.get(j);
+                int order = compareDescending(debit, credit);
+                if (order == 0) {
+                    j++;
+                }
+                next = order <= 0 ? debits.get(i++) : credits.get(j++);
+            }
+            merged.add(new StatementEntry(next, accountNumber));
+        }
+        return merged;
+    }
+
+    private static int compareDescending(Transaction a, Transaction b) {
+        int order = b.getTimestamp().compareTo(a.getTimestamp());
+        return order != 0 ? order : Long.compare(b.getId(), a.getId());
+    }
+
+    /**
+     * 游标为 "timestamp|id" 的 URL 安全 Base64 编码，对调用方不透明
+     */
+    static String encodeCursor(LocalDateTime timestamp, long id) {
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString((timestamp + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static Position decodeCursor(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = value.indexOf('|');
+            return new Position(LocalDateTime.parse(value.substring(0, separator)),
+                                Long.parseLong(value.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new BusinessException(400, "Invalid cursor: " + cursor);
+        }
+    }
+
+    static final class Position {
+        final LocalDateTime timestamp;
+        final long id;
+
+        Position(LocalDateTime timestamp, long id) {
+            this.timestamp = timestamp;
+            this.id = id;
+        }
+    }
+}
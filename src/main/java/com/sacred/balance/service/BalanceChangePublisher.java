@@ -0,0 +1,70 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.BalanceChangeEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 余额变更事件发布
+ * 事件随余额更新写入事务发件箱，由 OutboxRelay 在同步缓存的同一管道中 XADD 到 Redis Stream，回滚的更新不会发布
+ */
+@Component
+public class BalanceChangePublisher {
+
+    private static final byte[] FIELD_ACCOUNT = bytes("a");
+    private static final byte[] FIELD_DELTA = bytes("d");
+    private static final byte[] FIELD_BALANCE = bytes("b");
+    private static final byte[] FIELD_SEQUENCE = bytes("s");
+    private static final byte[] FIELD_TRANSACTION = bytes("t");
+    private static final byte[] FIELD_TIMESTAMP = bytes("ts");
+
+    @Value("${balance.changes.stream-key:balance:changes}")
+    private String streamKey;
+
+    // Stream保留的大致消息数（近似裁剪）
+    @Value("${balance.changes.max-length:1000000}")
+    private long maxLength;
+
+    @Value("${balance.changes.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 在调用方的管道中追加一条 XADD
+     */
+    public void publish(RedisConnection connection, BalanceChangeEvent event) {
+        if (!enabled) {
+            return;
+        }
+        RedisStreamCommands.XAddOptions options = RedisStreamCommands.XAddOptions.maxlen(maxLength)
+            .approximateTrimming(true);
+        connection.streamCommands().xAdd(StreamRecords.rawBytes(toFields(event)).withStreamKey(bytes(streamKey)), options);
+    }
+
+    public String getStreamKey() {
+        return streamKey;
+    }
+
+    private static Map<byte[], byte[]> toFields(BalanceChangeEvent event) {
+        Map<byte[], byte[]> fields = new LinkedHashMap<>(8);
+        fields.put(FIELD_ACCOUNT, bytes(event.getAccountNumber()));
+        fields.put(FIELD_DELTA, bytes(Double.toString(event.getDelta())));
+        fields.put(FIELD_BALANCE, bytes(Double.toString(event.getBalance())));
+        fields.put(FIELD_SEQUENCE, bytes(Long.toString(event.getSequence())));
+        if (event.getTransactionId() != null) {
+            fields.put(FIELD_TRANSACTION, bytes(event.getTransactionId()));
+        }
+        fields.put(FIELD_TIMESTAMP, bytes(Long.toString(event.getTimestamp())));
+        return fields;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
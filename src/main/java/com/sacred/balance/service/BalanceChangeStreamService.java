@@ -0,0 +1,391 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.BalanceChangeEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * 余额变更订阅（SSE）
+ * 每个实例只有一个分发线程阻塞读取 Redis Stream，再按账号过滤推送给本实例的全部订阅者，Redis连接数与订阅者数量无关。
+ * 分发线程只把消息放入每个订阅者自己的有界队列，由发送线程写出；慢速客户端只会填满自己的队列，队列满时断开，
+ * 客户端带上 Last-Event-ID 重连后补齐，不会拖慢其他订阅者和实例内部监听者。
+ * 订阅时可指定上次收到的消息ID（或 Last-Event-ID），先用 XRANGE 补齐缺失的消息，再切换到实时推送。
+ */
+@Service
+public class BalanceChangeStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceChangeStreamService.class);
+
+    private static final int READ_BATCH_SIZE = 500;
+    private static final Duration READ_BLOCK = Duration.ofSeconds(2);
+    // 空闲时发送心跳的间隔，及时发现已断开的连接
+    private static final long HEARTBEAT_INTERVAL_MILLIS = 15_000;
+    // 每个订阅者待发送消息（含补齐阶段暂存的实时消息）的上限，超过则断开让客户端重连
+    static final int MAX_PENDING_EVENTS = 10_000;
+    // 心跳在订阅者队列中的占位
+    private static final BalanceChangeEvent HEARTBEAT = new BalanceChangeEvent();
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private BalanceChangePublisher balanceChangePublisher;
+
+    @Value("${balance.changes.subscriber-timeout-millis:1800000}")
+    private long subscriberTimeoutMillis;
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    // 实例内部的监听者（如本地余额表），在分发线程中同步调用
+    private final List<Consumer<BalanceChangeEvent>> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService catchUpExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "balance-change-catch-up");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 写出订阅者队列中的消息；每个订阅者同时最多占用一个线程，空闲线程自动回收
+    private final ExecutorService senderExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "balance-change-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private Thread dispatcherThread;
+    private volatile boolean running = true;
+
+    /**
+     * 订阅余额变更
+     * @param accountNumbers 只推送这些账号的变更，为空推送全部
+     * @param fromId 从该消息ID之后开始推送（不含），为空只推送订阅之后的新消息
+     */
+    public SseEmitter subscribe(Collection<String> accountNumbers, String fromId) {
+        if (fromId != null && !fromId.isEmpty() && !isValidId(fromId)) {
+            throw new BusinessException(400, "Invalid stream offset: " + fromId);
+        }
+        SseEmitter emitter = new SseEmitter(subscriberTimeoutMillis);
+        subscribe(emitter, accountNumbers, fromId);
+        return emitter;
+    }
+
+    void subscribe(SseEmitter emitter, Collection<String> accountNumbers, String fromId) {
+        ensureDispatcherStarted();
+
+        Set<String> filter = accountNumbers != null && !accountNumbers.isEmpty() ? new HashSet<>(accountNumbers) : null;
+        Subscriber subscriber = new Subscriber(emitter, filter);
+        emitter.onCompletion(subscriber::detach);
+        emitter.onTimeout(subscriber::detach);
+        emitter.onError(e -> subscriber.detach());
+
+        if (fromId == null || fromId.isEmpty()) {
+            subscriber.live = true;
+            subscribers.add(subscriber);
+        } else {
+            // 先注册再补齐，补齐期间到达的实时消息留在队列中，追上后再发送，避免遗漏
+            subscriber.lastId = fromId;
+            subscribers.add(subscriber);
+            catchUpExecutor.execute(() -> catchUp(subscriber));
+        }
+    }
+
+    /**
+     * 注册实例内部监听者，接收此后所有账户的变更；在分发线程中先于订阅者同步调用，不能阻塞
+     */
+    public void addListener(Consumer<BalanceChangeEvent> listener) {
+        listeners.add(listener);
+        ensureDispatcherStarted();
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        catchUpExecutor.shutdownNow();
+        senderExecutor.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private synchronized void ensureDispatcherStarted() {
+        if (dispatcherThread == null) {
+            dispatcherThread = new Thread(this::dispatch, "balance-change-dispatcher");
+            dispatcherThread.setDaemon(true);
+            dispatcherThread.start();
+        }
+    }
+
+    /**
+     * 分发线程：从当前最新位置开始阻塞读取，先交给内部监听者，再放入各订阅者的队列；分发线程自身不写网络
+     */
+    private void dispatch() {
+        String streamKey = balanceChangePublisher.getStreamKey();
+        // 使用固定的消息ID而不是 $，两次阻塞读取之间写入的消息不会被跳过
+        ReadOffset offset = null;
+        long lastHeartbeat = System.currentTimeMillis();
+        while (running) {
+            try {
+                if (offset == null) {
+                    offset = ReadOffset.from(latestId(streamKey));
+                }
+                List<MapRecord<String, Object, Object>> records = read(streamKey, offset);
+                if (records != null && !records.isEmpty()) {
+                    for (MapRecord<String, Object, Object> record : records) {
+                        BalanceChangeEvent event = BalanceChangeEvent.fromFields(record.getId().getValue(), record.getValue());
+                        for (Consumer<BalanceChangeEvent> listener : listeners) {
+                            listener.accept(event);
+                        }
+                        for (Subscriber subscriber : subscribers) {
+                            subscriber.offer(event);
+                        }
+                    }
+                    offset = ReadOffset.from(records.get(records.size() - 1).getId());
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastHeartbeat >= HEARTBEAT_INTERVAL_MILLIS) {
+                    lastHeartbeat = now;
+                    for (Subscriber subscriber : subscribers) {
+                        subscriber.offerHeartbeat();
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Balance change dispatcher read failed: {}", e.getMessage());
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    /**
+     * 用 XRANGE 分页补齐 lastId 之后的历史消息，追上后切换为实时推送
+     */
+    private void catchUp(Subscriber subscriber) {
+        String streamKey = balanceChangePublisher.getStreamKey();
+        try {
+            while (running) {
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream().range(
+                    streamKey, Range.rightUnbounded(Range.Bound.exclusive(subscriber.lastId)),
+                    Limit.limit().count(READ_BATCH_SIZE));
+                if (records == null || records.isEmpty()) {
+                    subscriber.goLive();
+                    return;
+                }
+                for (MapRecord<String, Object, Object> record : records) {
+                    subscriber.send(BalanceChangeEvent.fromFields(record.getId().getValue(), record.getValue()));
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Balance change catch-up failed: {}", e.getMessage());
+            subscriber.close(e);
+        }
+    }
+
+    // StreamOffset 可变参数的泛型数组由调用处创建，只传一个偏移量
+    @SuppressWarnings("unchecked")
+    private List<MapRecord<String, Object, Object>> read(String streamKey, ReadOffset offset) {
+        return stringRedisTemplate.opsForStream().read(
+            StreamReadOptions.empty().block(READ_BLOCK).count(READ_BATCH_SIZE),
+            StreamOffset.create(streamKey, offset));
+    }
+
+    private String latestId(String streamKey) {
+        List<MapRecord<String, Object, Object>> latest = stringRedisTemplate.opsForStream()
+            .reverseRange(streamKey, Range.unbounded(), Limit.limit().count(1));
+        return latest != null && !latest.isEmpty() ? latest.get(0).getId().getValue() : "0-0";
+    }
+
+    private static boolean isValidId(String id) {
+        int dash = id.indexOf('-');
+        try {
+            if (dash < 0) {
+                Long.parseUnsignedLong(id);
+            } else {
+                Long.parseUnsignedLong(id.substring(0, dash));
+                Long.parseUnsignedLong(id.substring(dash + 1));
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 比较两个Stream消息ID（毫秒-序号）
+     */
+    static int compareIds(String a, String b) {
+        int dashA = a.indexOf('-');
+        int dashB = b.indexOf('-');
+        long msA = Long.parseUnsignedLong(dashA < 0 ? a : a.substring(0, dashA));
+        long msB = Long.parseUnsignedLong(dashB < 0 ? b : b.substring(0, dashB));
+        if (msA != msB) {
+            return Long.compareUnsigned(msA, msB);
+        }
+        long seqA = dashA < 0 ? 0 : Long.parseUnsignedLong(a.substring(dashA + 1));
+        long seqB = dashB < 0 ? 0 : Long.parseUnsignedLong(b.substring(dashB + 1));
+        return Long.compareUnsigned(seqA, seqB);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final Set<String> accountNumbers;
+        // 待发送的消息；补齐阶段到达的实时消息也暂存在这里
+        final Queue<BalanceChangeEvent> queue = new LinkedBlockingQueue<>(MAX_PENDING_EVENTS);
+        // 是否已有发送线程在写出队列
+        final AtomicBoolean draining = new AtomicBoolean();
+        volatile boolean live;
+        volatile boolean closed;
+        // 最后推送的消息ID，用于去重
+        volatile String lastId;
+
+        Subscriber(SseEmitter emitter, Set<String> accountNumbers) {
+            this.emitter = emitter;
+            this.accountNumbers = accountNumbers;
+        }
+
+        /**
+         * 分发线程调用：入队后交给发送线程，不阻塞；队列满说明客户端跟不上，断开让其重连补齐
+         */
+        void offer(BalanceChangeEvent event) {
+            if (closed || (accountNumbers != null && !accountNumbers.contains(event.getAccountNumber()))) {
+                return;
+            }
+            if (!queue.offer(event)) {
+                close(new IllegalStateException("Subscriber fell too far behind"));
+                return;
+            }
+            if (live) {
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * 队列为空时才发心跳，有消息待发送时连接状态由消息本身检查
+         */
+        void offerHeartbeat() {
+            if (live && queue.isEmpty() && queue.offer(HEARTBEAT)) {
+                scheduleDrain();
+            }
+        }
+
+        /**
+         * 补齐完成：之后入队的消息直接发送，补齐期间暂存的消息由发送线程写出，与补齐重叠的部分按ID去重
+         */
+        void goLive() {
+            live = true;
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (closed || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senderExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            try {
+                BalanceChangeEvent event;
+                while (!closed && (event = queue.poll()) != null) {
+                    if (event == HEARTBEAT) {
+                        heartbeat();
+                    } else {
+                        send(event);
+                    }
+                }
+            } finally {
+                draining.set(false);
+            }
+            // 标记清除前入队的消息可能没有触发新的发送
+            if (!closed && !queue.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        synchronized void send(BalanceChangeEvent event) {
+            if (closed || (lastId != null && compareIds(event.getId(), lastId) <= 0)) {
+                return;
+            }
+            lastId = event.getId();
+            if (accountNumbers != null && !accountNumbers.contains(event.getAccountNumber())) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event()
+                    .id(event.getId())
+                    .name("balance-change")
+                    .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            }
+        }
+
+        synchronized void heartbeat() {
+            try {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                close(e);
+            }
+        }
+
+        void close(Throwable cause) {
+            if (!closed) {
+                detach();
+                emitter.completeWithError(cause);
+            }
+        }
+
+        /**
+         * 连接已结束：不再接收和发送消息
+         */
+        void detach() {
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.BalanceCheckpoint;
+import com.sacred.balance.model.PointInTimeBalance;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.BalanceCheckpointRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 余额检查点
+ * 后台任务按固定间隔为区间内有交易的账户写入检查点：检查点余额 = 上一个检查点 + 区间内净额；
+ * 账户第一次生成检查点时，在同一快照中由当前余额减去检查点之后的净额倒推。
+ * 查询某一时刻的余额时只需取最近的检查点，再加减检查点与该时刻之间的交易，与账户历史长度无关。
+ */
+@Service
+public class BalanceCheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceCheckpointService.class);
+
+    // 检查点任务锁
+    private static final String CHECKPOINT_LOCK_KEY = "balance:checkpoint:lock";
+    private static final long CHECKPOINT_LOCK_MINUTES = 30;
+    // 每批处理的账户数
+    private static final int ACCOUNT_CHUNK_SIZE = 1000;
+    // 单次执行最多补齐的区间数，积压时分多次追赶
+    private static final int MAX_INTERVALS_PER_RUN = 48;
+
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    @Autowired
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${balance.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    // 检查点间隔（分钟），需能整除一天
+    @Value("${balance.checkpoint.interval-minutes:60}")
+    private long intervalMinutes;
+
+    // 区间结束超过该时长后才生成检查点，保证区间内的交易均已提交
+    @Value("${balance.checkpoint.lag-minutes:10}")
+    private long lagMinutes;
+
+    @Scheduled(fixedDelayString = "${balance.checkpoint.check-interval-millis:60000}")
+    public void checkpointPeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            createCheckpoints();
+        } catch (Exception e) {
+            logger.error("Balance checkpoint failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 为上次之后所有已结束的区间生成检查点，返回写入的检查点数量
+     */
+    public long createCheckpoints() {
+        String lockOwner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+            .setIfAbsent(CHECKPOINT_LOCK_KEY, lockOwner, CHECKPOINT_LOCK_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.debug("Balance checkpoint is running on another instance, skipping");
+            return 0;
+        }
+
+        try {
+            LocalDateTime target = boundaryAtOrBefore(LocalDateTime.now().minusMinutes(lagMinutes));
+            LocalDateTime latest = checkpointRepository.findLatestCheckpointTime();
+            // 首次运行不回溯历史，只处理最近一个区间
+            LocalDateTime previous = latest != null ? latest : target.minusMinutes(intervalMinutes);
+
+            long written = 0;
+            int intervals = 0;
+            while (previous.isBefore(target) && intervals++ < MAX_INTERVALS_PER_RUN) {
+                // 没有交易的区间不写检查点，也不会推进最新检查点时间；直接跳到下一笔交易所在的区间，
+                // 否则连续空闲超过 MAX_INTERVALS_PER_RUN 个区间后每次都从同一处开始，检查点再也追不上
+                LocalDateTime next = transactionRepository.findFirstTimestampSince(previous);
+                if (next == null || !next.isBefore(target)) {
+                    break;
+                }
+                LocalDateTime nextInterval = boundaryAtOrBefore(next);
+                if (nextInterval.isAfter(previous)) {
+                    previous = nextInterval;
+                }
+                LocalDateTime boundary = previous.plusMinutes(intervalMinutes);
+                written += checkpointInterval(previous, boundary);
+                previous = boundary;
+            }
+            return written;
+        } finally {
+            if (lockOwner.equals(stringRedisTemplate.opsForValue().get(CHECKPOINT_LOCK_KEY))) {
+                stringRedisTemplate.delete(CHECKPOINT_LOCK_KEY);
+            }
+        }
+    }
+
+    /**
+     * 查询账户在 at 时刻的余额（at 之前的交易全部入账，不含 at）
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public PointInTimeBalance getBalanceAt(String accountNumber, LocalDateTime at) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+            .orElseThrow(() -> new BusinessException(404, "Account not found: " + accountNumber));
+
+        Optional<BalanceCheckpoint> before = checkpointRepository
+            .findTopByAccountNumberAndCheckpointTimeLessThanEqualOrderByCheckpointTimeDesc(accountNumber, at);
+        if (before.isPresent()) {
+            BalanceCheckpoint checkpoint = before.get();
+            double balance = checkpoint.getBalance() + net(accountNumber, checkpoint.getCheckpointTime(), at);
+            return new PointInTimeBalance(accountNumber, balance, at, checkpoint.getCheckpointTime());
+        }
+
+        // 早于账户第一个检查点时，从其后最近的检查点往回减
+        Optional<BalanceCheckpoint> after = checkpointRepository
+            .findTopByAccountNumberAndCheckpointTimeGreaterThanOrderByCheckpointTimeAsc(accountNumber, at);
+        if (after.isPresent()) {
+            BalanceCheckpoint checkpoint = after.get();
+            double balance = checkpoint.getBalance() - net(accountNumber, at, checkpoint.getCheckpointTime());
+            return new PointInTimeBalance(accountNumber, balance, at, checkpoint.getCheckpointTime());
+        }
+
+        // 尚无检查点：由当前余额往回减
+        double balance = account.getBalance() - net(accountNumber, at, LATEST);
+        return new PointInTimeBalance(accountNumber, balance, at, null);
+    }
+
+    /**
+     * 为 [from, boundary) 内有交易的账户写入 boundary 时刻的检查点
+     */
+    private long checkpointInterval(LocalDateTime from, LocalDateTime boundary) {
+        long startTime = System.currentTimeMillis();
+        Map<String, Double> nets = new HashMap<>();
+        for (Object[] row : transactionRepository.sumDebitsByAccount(from, boundary)) {
+            nets.merge((String) row[0], -((Number) row[1]).doubleValue(), Double::sum);
+        }
+        for (Object[] row : transactionRepository.sumCreditsByAccount(from, boundary)) {
+            nets.merge((String) row[0], ((Number) row[1]).doubleValue(), Double::sum);
+        }
+
+        TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+        snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+
+        long written = 0;
+        List<String> chunk = new ArrayList<>(ACCOUNT_CHUNK_SIZE);
+        for (String accountNumber : nets.keySet()) {
+            chunk.add(accountNumber);
+            if (chunk.size() == ACCOUNT_CHUNK_SIZE) {
+                written += snapshot.execute(status -> checkpointChunk(chunk, nets, boundary));
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            written += snapshot.execute(status -> checkpointChunk(chunk, nets, boundary));
+        }
+
+        logger.info("Balance checkpoint {} written for {} accounts in {} ms",
+                   boundary, written, System.currentTimeMillis() - startTime);
+        return written;
+    }
+
+    private long checkpointChunk(List<String> accountNumbers, Map<String, Double> nets, LocalDateTime boundary) {
+        Map<String, BalanceCheckpoint> previous = new HashMap<>();
+        for (BalanceCheckpoint checkpoint : checkpointRepository.findLatestByAccountNumberIn(accountNumbers, boundary)) {
+            previous.put(checkpoint.getAccountNumber(), checkpoint);
+        }
+
+        List<BalanceCheckpoint> checkpoints = new ArrayList<>(accountNumbers.size());
+        List<String> firstTime = new ArrayList<>();
+        for (String accountNumber : accountNumbers) {
+            BalanceCheckpoint last = previous.get(accountNumber);
+            if (last == null) {
+                firstTime.add(accountNumber);
+            } else if (last.getCheckpointTime().isBefore(boundary)) {
+                // 上一个检查点与本区间起点之间没有交易，直接累加本区间净额
+                checkpoints.add(new BalanceCheckpoint(accountNumber, boundary, last.getBalance() + nets.get(accountNumber)));
+            }
+            // 已存在该时刻的检查点（上次中途失败后重跑），跳过
+        }
+
+        if (!firstTime.isEmpty()) {
+            Map<String, Double> after = new HashMap<>();
+            for (Object[] row : transactionRepository.sumDebitsSince(firstTime, boundary)) {
+                after.merge((String) row[0], -((Number) row[1]).doubleValue(), Double::sum);
+            }
+            for (Object[] row : transactionRepository.sumCreditsSince(firstTime, boundary)) {
+                after.merge((String) row[0], ((Number) row[1]).doubleValue(), Double::sum);
+            }
+            for (AccountBalance balance : accountRepository.findBalancesByAccountNumberIn(firstTime)) {
+                double balanceAtBoundary = balance.getBalance() - after.getOrDefault(balance.getAccountNumber(), 0d);
+                checkpoints.add(new BalanceCheckpoint(balance.getAccountNumber(), boundary, balanceAtBoundary));
+            }
+        }
+
+        checkpointRepository.saveAll(checkpoints);
+        return checkpoints.size();
+    }
+
+    private double net(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        return transactionRepository.sumCredits(accountNumber, from, to)
+            - transactionRepository.sumDebits(accountNumber, from, to);
+    }
+
+    /**
+     * 不晚于 time 的最近区间边界（从零点起按间隔对齐）
+     */
+    private LocalDateTime boundaryAtOrBefore(LocalDateTime time) {
+        long intervalSeconds = Duration.ofMinutes(intervalMinutes).getSeconds();
+        long epochSeconds = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(epochSeconds - Math.floorMod(epochSeconds, intervalSeconds), 0, ZoneOffset.UTC);
+    }
+}
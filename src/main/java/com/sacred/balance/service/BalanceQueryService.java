@@ -0,0 +1,185 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.repository.AccountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 余额查询服务，直接读取缓存中的余额视图，未命中时通过投影查询回源并回填缓存
+ */
+@Service
+public class BalanceQueryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BalanceQueryService.class);
+
+    // 余额视图缓存键前缀
+    public static final String BALANCE_VIEW_KEY_PREFIX = "account:balance:";
+    // 余额视图过期时间（30分钟），与账户缓存保持一致
+    public static final long BALANCE_VIEW_EXPIRE_MINUTES = 30;
+    // 单次批量查询的最大账户数
+    private static final int MAX_BULK_QUERY_SIZE = 1000;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private LocalBalanceStore localBalanceStore;
+
+    /**
+     * 查询单个账户余额
+     */
+    public Optional<AccountBalance> getBalance(String accountNumber) {
+        if (accountNumber == null || accountNumber.isEmpty()) {
+            throw new BusinessException(400, "Account number is required");
+        }
+
+        AccountBalance local = localBalanceStore.getBalance(accountNumber);
+        if (local != null) {
+            return Optional.of(local);
+        }
+
+        String cached = stringRedisTemplate.opsForValue().get(balanceViewKey(accountNumber));
+        if (cached != null) {
+            AccountBalance balance = decodeBalanceView(accountNumber, cached);
+            localBalanceStore.putBalance(balance);
+            return Optional.of(balance);
+        }
+
+        // 缓存未命中，投影查询回源
+        List<AccountBalance> loaded = accountRepository.findBalancesByAccountNumberIn(List.of(accountNumber));
+        if (loaded.isEmpty()) {
+            return Optional.empty();
+        }
+        AccountBalance balance = loaded.get(0);
+        cacheBalances(loaded);
+        localBalanceStore.putBalance(balance);
+        return Optional.of(balance);
+    }
+
+    /**
+     * 批量查询账户余额，一次MGET读取缓存，未命中部分一次查询回源；不存在的账户不返回
+     */
+    public List<AccountBalance> getBalances(List<String> accountNumbers) {
+        if (accountNumbers == null || accountNumbers.isEmpty()) {
+            throw new BusinessException(400, "Account numbers are required");
+        }
+        if (accountNumbers.size() > MAX_BULK_QUERY_SIZE) {
+            throw new BusinessException(400, "Too many account numbers, max: " + MAX_BULK_QUERY_SIZE);
+        }
+
+        Map<String, AccountBalance> found = new HashMap<>(accountNumbers.size() * 2);
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(accountNumbers));
+        // 先查本地余额表，只有未命中的账户才访问Redis
+        List<String> remote = new ArrayList<>(distinct.size());
+        for (String accountNumber : distinct) {
+            AccountBalance local = localBalanceStore.getBalance(accountNumber);
+            if (local != null) {
+                found.put(accountNumber, local);
+            } else {
+                remote.add(accountNumber);
+            }
+        }
+
+        List<String> misses = new ArrayList<>();
+        if (!remote.isEmpty()) {
+            List<String> keys = new ArrayList<>(remote.size());
+            for (String accountNumber : remote) {
+                keys.add(balanceViewKey(accountNumber));
+            }
+            List<String> cachedValues = stringRedisTemplate.opsForValue().multiGet(keys);
+            for (int i = 0; i < remote.size(); i++) {
+                String cached = cachedValues != null ? cachedValues.get(i) : null;
+                if (cached != null) {
+                    AccountBalance balance = decodeBalanceView(remote.get(i), cached);
+                    found.put(remote.get(i), balance);
+                    localBalanceStore.putBalance(balance);
+                } else {
+                    misses.add(remote.get(i));
+                }
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            List<AccountBalance> loaded = accountRepository.findBalancesByAccountNumberIn(misses);
+            for (AccountBalance balance : loaded) {
+                found.put(balance.getAccountNumber(), balance);
+                localBalanceStore.putBalance(balance);
+            }
+            cacheBalances(loaded);
+            logger.debug("Balance query cache miss. Requested: {}, Missed: {}, Loaded: {}",
+                        distinct.size(), misses.size(), loaded.size());
+        }
+
+        List<AccountBalance> results = new ArrayList<>(found.size());
+        for (String accountNumber : distinct) {
+            AccountBalance balance = found.get(accountNumber);
+            if (balance != null) {
+                results.add(balance);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * 管道批量回填余额视图；只在视图不存在时写入（SET NX），与预热相同：
+     * 回源读到的余额可能早于并发转账后中继写入的视图，不能覆盖更新的版本
+     */
+    public void cacheBalances(Collection<AccountBalance> balances) {
+        if (balances.isEmpty()) {
+            return;
+        }
+        Expiration expiration = Expiration.from(BALANCE_VIEW_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (AccountBalance balance : balances) {
+                connection.stringCommands().set(
+                    balanceViewKey(balance.getAccountNumber()).getBytes(StandardCharsets.UTF_8),
+                    encodeBalanceView(balance).getBytes(StandardCharsets.UTF_8),
+                    expiration,
+                    RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 账号作为 hash tag，集群模式下余额视图与账户缓存同槽，可在一个脚本中按版本号同时更新
+     */
+    public static String balanceViewKey(String accountNumber) {
+        return BALANCE_VIEW_KEY_PREFIX + "{" + accountNumber + "}";
+    }
+
+    /**
+     * 余额视图编码为 "版本号:余额"，单个字符串值即可被MGET批量读取
+     */
+    public static String encodeBalanceView(AccountBalance balance) {
+        return balance.getVersion() + ":" + balance.getBalance();
+    }
+
+    public static AccountBalance decodeBalanceView(String accountNumber, String value) {
+        int separator = value.indexOf(':');
+        long version = Long.parseLong(value, 0, separator, 10);
+        double balance = Double.parseDouble(value.substring(separator + 1));
+        return new AccountBalance(accountNumber, balance, version);
+    }
+}
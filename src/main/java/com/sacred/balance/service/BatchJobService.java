@@ -0,0 +1,350 @@
+package com.sacred.balance.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.BatchJob;
+import com.sacred.balance.model.BatchJobChunk;
+import com.sacred.balance.model.BatchJobProgress;
+import com.sacred.balance.model.BatchResult;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.repository.BatchJobChunkRepository;
+import com.sacred.balance.repository.BatchJobRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 可恢复的服务端批量任务
+ * 大批量（或显式指定 batchId 的批量）先把交易按块持久化，再逐块交给 TransactionService 处理，
+ * 每块的结果与任务游标在同一数据库事务中写入。客户端超时或实例重启后：
+ * 同一 batchId 重新提交时直接跳过游标之前已完成的块；无人提交时，租约过期的任务由任一实例的定时任务接管。
+ * 块内交易中途中断后重新处理依赖逐笔的幂等检查，已记账的交易不会重复记账。
+ */
+@Service
+public class BatchJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchJobService.class);
+
+    // 单次定时任务最多接管的任务数
+    private static final int RESUME_PER_RUN = 16;
+    // 单次清理的已完成任务数
+    private static final int PURGE_PER_RUN = 100;
+
+    // 本实例的租约持有者标识
+    private final String owner = UUID.randomUUID().toString();
+
+    @Autowired
+    private BatchJobRepository jobRepository;
+
+    @Autowired
+    private BatchJobChunkRepository chunkRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${balance.batch.jobs.enabled:true}")
+    private boolean enabled;
+
+    // 交易数达到该值的批量按任务处理；显式指定 batchId 的批量总是按任务处理
+    @Value("${balance.batch.jobs.min-transactions:1000}")
+    private int minTransactions;
+
+    @Value("${balance.batch.jobs.chunk-size:500}")
+    private int chunkSize;
+
+    // 处理实例的租约时长，每完成一块续约一次，需明显长于处理一块的时间
+    @Value("${balance.batch.jobs.lease-seconds:60}")
+    private long leaseSeconds;
+
+    // 已完成任务（含逐笔结果）的保留时长
+    @Value("${balance.batch.jobs.retention-hours:72}")
+    private long retentionHours;
+
+    /**
+     * 是否按可恢复任务处理该批量
+     */
+    public boolean isJob(String batchId, int transactionCount) {
+        return enabled && (batchId != null || transactionCount >= minTransactions);
+    }
+
+    /**
+     * 由交易ID推导批次ID：所有交易都带ID时，相同的交易序列重新提交会得到同一个批次ID；否则返回 null
+     */
+    public static String batchIdOf(Transaction... transactions) {
+        StringBuilder ids = new StringBuilder();
+        for (Transaction transaction : transactions) {
+            if (transaction.getTransactionId() == null) {
+                return null;
+            }
+            ids.append(transaction.getTransactionId()).append('\n');
+        }
+        return "batch-" + UUID.nameUUIDFromBytes(ids.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 提交批量任务并在调用线程上处理到完成（控制器在批量通道上调用）
+     * 已存在的任务不再写入交易，按持久化的交易从游标处继续；已完成的任务直接返回结果
+     */
+    public BatchResult submit(String batchId, Transaction[] transactions, boolean netted) {
+        BatchJob job = jobRepository.findById(batchId).orElse(null);
+        if (job == null) {
+            job = create(batchId, transactions, netted);
+        }
+        if (job.getTotalTransactions() != transactions.length) {
+            throw new BusinessException(409, "Batch " + batchId + " was submitted with "
+                + job.getTotalTransactions() + " transactions");
+        }
+        if (BatchJob.RUNNING.equals(job.getStatus())) {
+            if (!acquireLease(batchId)) {
+                throw new BusinessException(409, "Batch " + batchId + " is being processed by another instance");
+            }
+            if (job.getNextChunk() > 0) {
+                logger.info("Resuming batch job {} at chunk {}/{}", batchId, job.getNextChunk(), job.getTotalChunks());
+            }
+            job = run(batchId);
+        }
+        return resultOf(job);
+    }
+
+    /**
+     * 任务进度，includeResults 为 true 时附带已完成块的逐笔结果
+     */
+    public BatchJobProgress getProgress(String batchId, boolean includeResults) {
+        BatchJob job = jobRepository.findById(batchId)
+            .orElseThrow(() -> new BusinessException(404, "Batch not found: " + batchId));
+        BatchJobProgress progress = new BatchJobProgress();
+        progress.setBatchId(job.getBatchId());
+        progress.setStatus(job.getStatus());
+        progress.setNetted(job.isNetted());
+        progress.setTotalTransactions(job.getTotalTransactions());
+        progress.setTotalChunks(job.getTotalChunks());
+        progress.setCompletedChunks(job.getNextChunk());
+        progress.setSuccessfulTransactions(job.getSuccessfulTransactions());
+        progress.setFailedTransactions(job.getFailedTransactions());
+        progress.setCreatedAt(job.getCreatedAt());
+        progress.setUpdatedAt(job.getUpdatedAt());
+        progress.setFinishedAt(job.getFinishedAt());
+        if (includeResults) {
+            progress.setResults(completedResults(job));
+        }
+        return progress;
+    }
+
+    /**
+     * 接管租约已过期的任务（处理实例崩溃或重启），在批量通道上继续处理；顺带清理超过保留时长的已完成任务
+     */
+    @Scheduled(fixedDelayString = "${balance.batch.jobs.resume-interval-millis:30000}")
+    public void resumeAbandonedJobs() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<String> abandoned = jobRepository.findAbandoned(System.currentTimeMillis(),
+                PageRequest.of(0, RESUME_PER_RUN));
+            for (String batchId : abandoned) {
+                if (!acquireLease(batchId)) {
+                    continue;
+                }
+                // 批量通道已满时不再接管，租约过期后重试
+                if (!executionLanes.submitBulk(() -> resume(batchId))) {
+                    logger.debug("Bulk lane saturated, batch job {} will be resumed later", batchId);
+                    break;
+                }
+            }
+
+            List<String> finished = jobRepository.findFinishedBefore(
+                LocalDateTime.now().minusHours(retentionHours), PageRequest.of(0, PURGE_PER_RUN));
+            if (!finished.isEmpty()) {
+                chunkRepository.deleteByBatchIdIn(finished);
+                jobRepository.deleteAllById(finished);
+                logger.debug("Purged {} finished batch jobs", finished.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to resume batch jobs: {}", e.getMessage());
+        }
+    }
+
+    private void resume(String batchId) {
+        try {
+            BatchJob job = jobRepository.findById(batchId).orElse(null);
+            if (job == null) {
+                return;
+            }
+            logger.info("Taking over batch job {} at chunk {}/{}", batchId, job.getNextChunk(), job.getTotalChunks());
+            job = run(batchId);
+            logger.info("Batch job {} completed: {} successful, {} failed",
+                       batchId, job.getSuccessfulTransactions(), job.getFailedTransactions());
+        } catch (Exception e) {
+            logger.warn("Batch job {} interrupted, will be retried after its lease expires: {}", batchId, e.getMessage());
+        }
+    }
+
+    /**
+     * 在一个事务中写入任务和全部块，任务创建时即由本实例持有租约，定时接管不会抢走刚提交的任务；
+     * 并发提交同一批次时以先写入的为准
+     */
+    private BatchJob create(String batchId, Transaction[] transactions, boolean netted) {
+        int totalChunks = (transactions.length + chunkSize - 1) / chunkSize;
+        LocalDateTime now = LocalDateTime.now();
+
+        BatchJob job = new BatchJob();
+        job.setBatchId(batchId);
+        job.setCreated(true);
+        job.setStatus(BatchJob.RUNNING);
+        job.setNetted(netted);
+        job.setTotalTransactions(transactions.length);
+        job.setChunkSize(chunkSize);
+        job.setTotalChunks(totalChunks);
+        job.setOwner(owner);
+        job.setLeaseUntil(System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(leaseSeconds));
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        List<BatchJobChunk> chunks = new ArrayList<>(totalChunks);
+        for (int index = 0; index < totalChunks; index++) {
+            Transaction[] slice = Arrays.copyOfRange(transactions, index * chunkSize,
+                Math.min(transactions.length, (index + 1) * chunkSize));
+            BatchJobChunk chunk = new BatchJobChunk();
+            chunk.setBatchId(batchId);
+            chunk.setChunkIndex(index);
+            chunk.setTransactionCount(slice.length);
+            chunk.setTransactions(toJson(slice));
+            chunks.add(chunk);
+        }
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                jobRepository.save(job);
+                chunkRepository.saveAll(chunks);
+            });
+            logger.info("Created batch job {}: {} transactions in {} chunks", batchId, transactions.length, totalChunks);
+            return job;
+        } catch (DataIntegrityViolationException e) {
+            return jobRepository.findById(batchId).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * 从游标处逐块处理到任务完成；租约被其他实例接管时停止
+     */
+    private BatchJob run(String batchId) {
+        BatchJob job = jobRepository.findById(batchId)
+            .orElseThrow(() -> new BusinessException(404, "Batch not found: " + batchId));
+        while (BatchJob.RUNNING.equals(job.getStatus())) {
+            int index = job.getNextChunk();
+            BatchJobChunk chunk = chunkRepository.findByBatchIdAndChunkIndex(batchId, index)
+                .orElseThrow(() -> new BusinessException(500, "Batch " + batchId + " is missing chunk " + index));
+            Transaction[] transactions = fromJson(chunk.getTransactions(), Transaction[].class);
+
+            BatchResult result = job.isNetted()
+                ? transactionService.processBatchNetted(transactions)
+                : transactionService.processBatchTransactions(transactions);
+
+            job = completeChunk(batchId, chunk, result);
+            if (job == null) {
+                throw new BusinessException(409, "Batch " + batchId + " was taken over by another instance");
+            }
+        }
+        return job;
+    }
+
+    /**
+     * 在同一事务中续约、写入块结果并推进游标；租约已不属于本实例时返回 null
+     */
+    private BatchJob completeChunk(String batchId, BatchJobChunk chunk, BatchResult result) {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            if (!acquireLease(batchId)) {
+                return null;
+            }
+            BatchJob job = jobRepository.findById(batchId).orElseThrow();
+            if (job.getNextChunk() != chunk.getChunkIndex()) {
+                // 该块已由其他实例完成
+                return job;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            chunk.setResults(toJson(result.getResults()));
+            chunk.setSuccessfulTransactions(result.getSuccessfulTransactions());
+            chunk.setFailedTransactions(result.getFailedTransactions());
+            chunk.setCompletedAt(now);
+            chunkRepository.save(chunk);
+
+            job.setNextChunk(chunk.getChunkIndex() + 1);
+            job.setSuccessfulTransactions(job.getSuccessfulTransactions() + result.getSuccessfulTransactions());
+            job.setFailedTransactions(job.getFailedTransactions() + result.getFailedTransactions());
+            job.setUpdatedAt(now);
+            if (job.getNextChunk() >= job.getTotalChunks()) {
+                job.setStatus(BatchJob.COMPLETED);
+                job.setFinishedAt(now);
+                job.setOwner(null);
+                job.setLeaseUntil(0);
+            }
+            return jobRepository.save(job);
+        });
+    }
+
+    private boolean acquireLease(String batchId) {
+        long now = System.currentTimeMillis();
+        return jobRepository.acquireLease(batchId, owner, now + TimeUnit.SECONDS.toMillis(leaseSeconds), now) == 1;
+    }
+
+    private BatchResult resultOf(BatchJob job) {
+        BatchResult result = new BatchResult();
+        result.setBatchId(job.getBatchId());
+        result.setTotalTransactions(job.getTotalTransactions());
+        result.setSuccessfulTransactions(job.getSuccessfulTransactions());
+        result.setFailedTransactions(job.getFailedTransactions());
+        result.setResults(completedResults(job));
+        return result;
+    }
+
+    private List<TransactionResult> completedResults(BatchJob job) {
+        List<TransactionResult> results = new ArrayList<>(job.getTotalTransactions());
+        for (BatchJobChunk chunk : chunkRepository.findByBatchIdAndChunkIndexLessThanOrderByChunkIndexAsc(
+                job.getBatchId(), job.getNextChunk())) {
+            results.addAll(Arrays.asList(fromJson(chunk.getResults(), TransactionResult[].class)));
+        }
+        return results;
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(500, "Failed to serialize batch chunk", e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(500, "Failed to read batch chunk", e);
+        }
+    }
+}
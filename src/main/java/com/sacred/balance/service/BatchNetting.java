@@ -0,0 +1,68 @@
+package com.sacred.balance.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量轧差：按提交顺序在内存中模拟转账，累计每个账户的净变动
+ * 每笔转账都以模拟到该笔为止的余额校验账户的下限（最低余额 - 透支额度 + 冻结金额），结果与逐笔处理一致，只是余额最终每个账户写一次
+ */
+final class BatchNetting {
+
+    // 未给出下限的账户使用的默认下限，转出后余额不得低于该值
+    static final double DEFAULT_FLOOR = 0;
+
+    enum Outcome {
+        ACCEPTED, SOURCE_NOT_FOUND, DESTINATION_NOT_FOUND, INSUFFICIENT_BALANCE
+    }
+
+    // 模拟中的当前余额
+    private final Map<String, Double> balances;
+    // 各账户的余额下限
+    private final Map<String, Double> floors;
+    // 有变动的账户及其净变动额，按首次变动的顺序
+    private final Map<String, Double> deltas = new LinkedHashMap<>();
+
+    BatchNetting(Map<String, Double> startingBalances, Map<String, Double> floors) {
+        this.balances = new LinkedHashMap<>(startingBalances);
+        this.floors = floors;
+    }
+
+    /**
+     * 按顺序应用一笔转账，被拒绝的转账不影响模拟余额
+     */
+    Outcome apply(String sourceAccount, String destinationAccount, double amount) {
+        Double sourceBalance = balances.get(sourceAccount);
+        if (sourceBalance == null) {
+            return Outcome.SOURCE_NOT_FOUND;
+        }
+        if (!balances.containsKey(destinationAccount)) {
+            return Outcome.DESTINATION_NOT_FOUND;
+        }
+        if (sourceBalance - amount < floors.getOrDefault(sourceAccount, DEFAULT_FLOOR)) {
+            return Outcome.INSUFFICIENT_BALANCE;
+        }
+        move(sourceAccount, -amount);
+        move(destinationAccount, amount);
+        return Outcome.ACCEPTED;
+    }
+
+    /**
+     * 账户的模拟余额，未知账户返回 null
+     */
+    Double balanceOf(String accountNumber) {
+        return balances.get(accountNumber);
+    }
+
+    /**
+     * 有变动的账户及其净变动额
+     */
+    Map<String, Double> deltas() {
+        return deltas;
+    }
+
+    private void move(String accountNumber, double amount) {
+        balances.merge(accountNumber, amount, Double::sum);
+        deltas.merge(accountNumber, amount, Double::sum);
+    }
+}
@@ -0,0 +1,263 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 启动预热
+ * 滚动发布后新实例的本地余额表为空，Redis中的账户缓存也可能已过期，首批请求会集中回源数据库。
+ * 启动时按最近交易笔数取最活跃的账户（或读取上次保存的账号快照），分块并行加载，
+ * 只补齐Redis中缺失的账户缓存和余额视图（不覆盖中继写入的更新值），同时写入本地余额表。
+ *
+ * ApplicationRunner 在 ApplicationReadyEvent 之前执行，预热结束前就绪探针（/actuator/health/readiness）保持 REFUSING_TRAFFIC；
+ * 超过时间预算后停止预热，未完成的部分由正常请求回源，不会阻止实例就绪。
+ */
+@Service
+public class CacheWarmupService implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private LocalBalanceStore localBalanceStore;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${balance.warmup.enabled:true}")
+    private boolean enabled;
+
+    // 预热的账户数
+    @Value("${balance.warmup.accounts:100000}")
+    private int accounts;
+
+    // 按最近多少小时内的交易笔数挑选活跃账户
+    @Value("${balance.warmup.activity-hours:24}")
+    private long activityHours;
+
+    @Value("${balance.warmup.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${balance.warmup.parallelism:4}")
+    private int parallelism;
+
+    // 预热的时间预算，超过后直接就绪
+    @Value("${balance.warmup.time-budget-seconds:60}")
+    private long timeBudgetSeconds;
+
+    // 活跃账号快照文件，为空不使用；预热后写入，下次启动时在有效期内直接读取，省去汇总查询
+    @Value("${balance.warmup.snapshot-file:}")
+    private String snapshotFile;
+
+    @Value("${balance.warmup.snapshot-max-age-minutes:60}")
+    private long snapshotMaxAgeMinutes;
+
+    @Value("${spring.cache.redis.time-to-live:1800000}")
+    private long cacheTimeToLiveMillis;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        // 命令行导入等非Web进程不需要预热
+        if (!enabled || !(applicationContext instanceof WebServerApplicationContext)) {
+            return;
+        }
+        try {
+            warmUp();
+        } catch (Exception e) {
+            logger.warn("Cache warm-up failed, continuing with a cold cache: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行预热，返回加载的账户数
+     */
+    public long warmUp() throws InterruptedException {
+        long startTime = System.currentTimeMillis();
+        long deadline = startTime + TimeUnit.SECONDS.toMillis(timeBudgetSeconds);
+
+        List<String> accountNumbers = readSnapshot();
+        boolean fromSnapshot = accountNumbers != null;
+        if (!fromSnapshot) {
+            accountNumbers = findActiveAccounts();
+            writeSnapshot(accountNumbers);
+        }
+        if (accountNumbers.isEmpty()) {
+            return 0;
+        }
+
+        AtomicLong loaded = new AtomicLong();
+        AtomicInteger skipped = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "cache-warmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            for (int from = 0; from < accountNumbers.size(); from += chunkSize) {
+                List<String> chunk = accountNumbers.subList(from, Math.min(from + chunkSize, accountNumbers.size()));
+                executor.execute(() -> {
+                    if (System.currentTimeMillis() >= deadline) {
+                        skipped.incrementAndGet();
+                        return;
+                    }
+                    try {
+                        loaded.addAndGet(warmChunk(chunk));
+                    } catch (Exception e) {
+                        logger.warn("Cache warm-up chunk failed: {}", e.getMessage());
+                    }
+                });
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                logger.warn("Cache warm-up exceeded its {} s budget", timeBudgetSeconds);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        logger.info("Cache warm-up loaded {} of {} accounts ({}) in {} ms, {} chunks skipped",
+                   loaded.get(), accountNumbers.size(), fromSnapshot ? "snapshot" : "recent activity",
+                   System.currentTimeMillis() - startTime, skipped.get());
+        return loaded.get();
+    }
+
+    /**
+     * 最近一段时间内转出与转入笔数合计最多的账户
+     */
+    List<String> findActiveAccounts() {
+        LocalDateTime from = LocalDateTime.now().minusHours(activityHours);
+        Pageable top = Pageable.ofSize(accounts);
+        Map<String, Long> counts = new HashMap<>();
+        for (Object[] row : transactionRepository.countDebitsByAccountSince(from, top)) {
+            counts.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        for (Object[] row : transactionRepository.countCreditsByAccountSince(from, top)) {
+            counts.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum);
+        }
+        List<String> accountNumbers = new ArrayList<>(counts.keySet());
+        accountNumbers.sort((a, b) -> Long.compare(counts.get(b), counts.get(a)));
+        return accountNumbers.size() > accounts ? new ArrayList<>(accountNumbers.subList(0, accounts)) : accountNumbers;
+    }
+
+    /**
+     * 加载一块账户，管道中只补齐缺失的缓存键
+     */
+    @SuppressWarnings("unchecked")
+    private long warmChunk(List<String> accountNumbers) {
+        List<Account> chunk = accountRepository.findByAccountNumberIn(accountNumbers);
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        Expiration cacheExpiration = Expiration.from(cacheTimeToLiveMillis, TimeUnit.MILLISECONDS);
+        Expiration viewExpiration = Expiration.from(BalanceQueryService.BALANCE_VIEW_EXPIRE_MINUTES, TimeUnit.MINUTES);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Account account : chunk) {
+                AccountBalance view = new AccountBalance(account.getAccountNumber(), account.getBalance(), account.getVersion());
+                connection.stringCommands().set(
+                    BalanceQueryService.balanceViewKey(account.getAccountNumber()).getBytes(StandardCharsets.UTF_8),
+                    BalanceQueryService.encodeBalanceView(view).getBytes(StandardCharsets.UTF_8),
+                    viewExpiration,
+                    RedisStringCommands.SetOption.ifAbsent());
+                connection.stringCommands().set(
+                    AccountService.accountCacheKey(account.getAccountNumber()).getBytes(StandardCharsets.UTF_8),
+                    valueSerializer.serialize(account),
+                    cacheExpiration,
+                    RedisStringCommands.SetOption.ifAbsent());
+            }
+            return null;
+        });
+        for (Account account : chunk) {
+            localBalanceStore.put(account);
+        }
+        return chunk.size();
+    }
+
+    /**
+     * 读取有效期内的账号快照，没有配置、不存在或已过期时返回 null
+     */
+    private List<String> readSnapshot() {
+        if (snapshotFile.isEmpty()) {
+            return null;
+        }
+        Path path = Path.of(snapshotFile);
+        try {
+            if (!Files.exists(path)) {
+                return null;
+            }
+            long ageMillis = System.currentTimeMillis() - Files.getLastModifiedTime(path).toMillis();
+            if (ageMillis > TimeUnit.MINUTES.toMillis(snapshotMaxAgeMinutes)) {
+                logger.info("Warm-up snapshot {} is older than {} minutes, ignoring", path, snapshotMaxAgeMinutes);
+                return null;
+            }
+            List<String> accountNumbers = new ArrayList<>();
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank() && accountNumbers.size() < accounts) {
+                    accountNumbers.add(line.trim());
+                }
+            }
+            return accountNumbers;
+        } catch (IOException e) {
+            logger.warn("Failed to read warm-up snapshot {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，进程中途退出不会留下半个快照
+     */
+    private void writeSnapshot(List<String> accountNumbers) {
+        if (snapshotFile.isEmpty()) {
+            return;
+        }
+        Path path = Path.of(snapshotFile);
+        try {
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(temp, accountNumbers, StandardCharsets.UTF_8);
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write warm-up snapshot {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.DatabaseDiagnostics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据库访问诊断：连接池等待、语句缓存命中率和慢查询样本，用于按数据确定Pod规格和连接池大小
+ * 语句缓存命中率取自 Hibernate 查询计划缓存；慢查询按 Hibernate 统计中的最大执行时间筛选，需要开启 generate_statistics（prod profile 已开启）
+ */
+@Service
+public class DatabaseDiagnosticsService {
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // 最大执行时间超过该值的查询计为慢查询
+    @Value("${balance.diagnostics.slow-query-millis:100}")
+    private long slowQueryMillis;
+
+    // 最多返回的慢查询条数
+    @Value("${balance.diagnostics.slow-query-samples:20}")
+    private int slowQuerySamples;
+
+    public DatabaseDiagnostics collect() {
+        DatabaseDiagnostics diagnostics = new DatabaseDiagnostics();
+        collectPool(diagnostics);
+        collectStatements(diagnostics);
+        return diagnostics;
+    }
+
+    private void collectPool(DatabaseDiagnostics diagnostics) {
+        HikariDataSource hikari = unwrap(dataSource);
+        if (hikari != null) {
+            diagnostics.setMaxPoolSize(hikari.getMaximumPoolSize());
+            HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+            if (pool != null) {
+                diagnostics.setActiveConnections(pool.getActiveConnections());
+                diagnostics.setIdleConnections(pool.getIdleConnections());
+                diagnostics.setPendingThreads(pool.getThreadsAwaitingConnection());
+            }
+        }
+        Timer acquire = meterRegistry.find("hikaricp.connections.acquire").timer();
+        if (acquire != null) {
+            diagnostics.setConnectionAcquireCount(acquire.count());
+            diagnostics.setConnectionAcquireMeanMillis(acquire.mean(TimeUnit.MILLISECONDS));
+            diagnostics.setConnectionAcquireMaxMillis(acquire.max(TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void collectStatements(DatabaseDiagnostics diagnostics) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return;
+        }
+        long hits = statistics.getQueryPlanCacheHitCount();
+        long misses = statistics.getQueryPlanCacheMissCount();
+        diagnostics.setStatementCacheHits(hits);
+        diagnostics.setStatementCacheMisses(misses);
+        diagnostics.setStatementCacheHitRate(hits + misses > 0 ? (double) hits / (hits + misses) : 0);
+        diagnostics.setPreparedStatements(statistics.getPrepareStatementCount());
+
+        for (String query : statistics.getQueries()) {
+            QueryStatistics queryStatistics = statistics.getQueryStatistics(query);
+            if (queryStatistics.getExecutionMaxTime() < slowQueryMillis) {
+                continue;
+            }
+            DatabaseDiagnostics.SlowQuery slowQuery = new DatabaseDiagnostics.SlowQuery();
+            slowQuery.setQuery(query);
+            slowQuery.setExecutions(queryStatistics.getExecutionCount());
+            slowQuery.setAvgMillis(queryStatistics.getExecutionAvgTime());
+            slowQuery.setMaxMillis(queryStatistics.getExecutionMaxTime());
+            slowQuery.setRows(queryStatistics.getExecutionRowCount());
+            diagnostics.getSlowQueries().add(slowQuery);
+        }
+        diagnostics.getSlowQueries().sort(
+            Comparator.comparingLong(DatabaseDiagnostics.SlowQuery::getMaxMillis).reversed());
+        if (diagnostics.getSlowQueries().size() > slowQuerySamples) {
+            diagnostics.setSlowQueries(new ArrayList<>(diagnostics.getSlowQueries().subList(0, slowQuerySamples)));
+        }
+    }
+
+    private static HikariDataSource unwrap(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class) : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * 交互与批量两条执行通道，避免结算批次占满线程、数据库连接和账户锁，拖慢单笔转账
+ * 交互通道：单笔转账在请求线程上执行，并发数受交互预算限制（默认连接池大小减去批量线程数），保证总会有空闲连接；
+ * 批量通道：批量请求交给固定大小的批量线程池执行，线程数即批量可用的连接数，队列满时直接拒绝。
+ * 交互转账执行期间在其账户的计数槽上登记，批量转账开始前遇到有交互转账的账户先让行，最多等待 yield-max-millis。
+ */
+@Component
+public class ExecutionLanes {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLanes.class);
+
+    private static final long YIELD_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${balance.lanes.enabled:true}")
+    private boolean enabled;
+
+    // 交互通道同时执行的转账数，0表示连接池大小减去批量线程数
+    @Value("${balance.lanes.interactive.max-concurrent:0}")
+    private int interactiveMaxConcurrent;
+
+    // 交互预算用尽时请求最多等待的时间
+    @Value("${balance.lanes.interactive.acquire-timeout-millis:2000}")
+    private long interactiveAcquireTimeoutMillis;
+
+    @Value("${balance.lanes.bulk.threads:2}")
+    private int bulkThreads;
+
+    @Value("${balance.lanes.bulk.queue-capacity:16}")
+    private int bulkQueueCapacity;
+
+    // 批量转账遇到交互转账的账户时最多让行的时间
+    @Value("${balance.lanes.bulk.yield-max-millis:20}")
+    private long yieldMaxMillis;
+
+    // 账户计数槽数，按账号哈希映射，冲突只会让批量多让行
+    @Value("${balance.lanes.stripes:4096}")
+    private int stripes;
+
+    private Semaphore interactivePermits;
+    private ThreadPoolExecutor bulkExecutor;
+    private AtomicIntegerArray interactiveByAccount;
+
+    private Counter interactiveRejections;
+    private Counter bulkRejections;
+    private Timer yieldTimer;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        int poolSize = connectionPoolSize();
+        int interactiveBudget;
+        if (interactiveMaxConcurrent > 0) {
+            interactiveBudget = interactiveMaxConcurrent;
+        } else if (poolSize > 0) {
+            interactiveBudget = Math.max(1, poolSize - bulkThreads);
+        } else {
+            // 连接池大小未知时交互通道不限并发
+            interactiveBudget = Integer.MAX_VALUE;
+        }
+        if (poolSize > 0 && interactiveBudget + bulkThreads > poolSize) {
+            logger.warn("Lane budgets ({} interactive + {} bulk) exceed the connection pool ({}), lanes will wait on each other",
+                       interactiveBudget, bulkThreads, poolSize);
+        }
+        interactivePermits = new Semaphore(interactiveBudget);
+        interactiveByAccount = new AtomicIntegerArray(stripes);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        bulkExecutor = new ThreadPoolExecutor(bulkThreads, bulkThreads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(bulkQueueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "bulk-lane-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+        Gauge.builder("balance.lanes.interactive.active", this, lanes -> interactiveBudget - lanes.interactivePermits.availablePermits())
+            .description("Interactive transfers running").register(meterRegistry);
+        Gauge.builder("balance.lanes.bulk.active", bulkExecutor, ThreadPoolExecutor::getActiveCount)
+            .description("Bulk batches running").register(meterRegistry);
+        Gauge.builder("balance.lanes.bulk.queued", bulkExecutor, executor -> executor.getQueue().size())
+            .description("Bulk batches waiting for a bulk lane thread").register(meterRegistry);
+        interactiveRejections = Counter.builder("balance.lanes.rejections").tag("lane", "interactive").register(meterRegistry);
+        bulkRejections = Counter.builder("balance.lanes.rejections").tag("lane", "bulk").register(meterRegistry);
+        yieldTimer = Timer.builder("balance.lanes.bulk.yield")
+            .description("Time bulk transfers waited for interactive transfers on the same accounts").register(meterRegistry);
+
+        logger.info("Execution lanes: {} interactive, {} bulk threads, connection pool {}",
+                   interactiveBudget, bulkThreads, poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bulkExecutor != null) {
+            bulkExecutor.shutdown();
+        }
+    }
+
+    /**
+     * 在交互通道上执行单笔转账：占用交互预算，执行期间登记转出和转入账户
+     */
+    public TransactionResult interactive(Transaction transaction, Supplier<TransactionResult> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        try {
+            if (!interactivePermits.tryAcquire(interactiveAcquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                interactiveRejections.increment();
+                return new TransactionResult(transaction.getTransactionId(), false, "Server busy, retry later", "503");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new TransactionResult(transaction.getTransactionId(), false, "Interrupted", "503");
+        }
+        int source = stripe(transaction.getSourceAccount());
+        int destination = stripe(transaction.getDestinationAccount());
+        interactiveByAccount.incrementAndGet(source);
+        interactiveByAccount.incrementAndGet(destination);
+        try {
+            return work.get();
+        } finally {
+            interactiveByAccount.decrementAndGet(source);
+            interactiveByAccount.decrementAndGet(destination);
+            interactivePermits.release();
+        }
+    }
+
+    /**
+     * 在批量通道上执行，调用线程等待结果；批量线程都在忙且队列已满时拒绝
+     */
+    public <T> T bulk(Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Future<T> future;
+        try {
+            future = bulkExecutor.submit(work::get);
+        } catch (RejectedExecutionException e) {
+            bulkRejections.increment();
+            throw new BusinessException(503, "Bulk lane is saturated, retry later");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new BusinessException(503, "Interrupted while waiting for the bulk lane");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException(500, "Bulk processing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * 在批量通道上异步执行，不等待结果；批量线程都在忙且队列已满时返回 false
+     */
+    public boolean submitBulk(Runnable work) {
+        if (!enabled) {
+            work.run();
+            return true;
+        }
+        try {
+            bulkExecutor.execute(work);
+            return true;
+        } catch (RejectedExecutionException e) {
+            bulkRejections.increment();
+            return false;
+        }
+    }
+
+    /**
+     * 批量转账开始前调用：账户上有交互转账在执行时让行，直到其完成或超过最长让行时间
+     */
+    public void yieldToInteractive(String... accountNumbers) {
+        if (!enabled || !contended(accountNumbers)) {
+            return;
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(yieldMaxMillis);
+        while (contended(accountNumbers) && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(YIELD_PARK_NANOS);
+        }
+        yieldTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean contended(String... accountNumbers) {
+        for (String accountNumber : accountNumbers) {
+            if (accountNumber != null && interactiveByAccount.get(stripe(accountNumber)) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int stripe(String accountNumber) {
+        return accountNumber == null ? 0 : Math.floorMod(accountNumber.hashCode(), stripes);
+    }
+
+    private int connectionPoolSize() {
+        try {
+            if (dataSource.isWrapperFor(HikariDataSource.class)) {
+                return dataSource.unwrap(HikariDataSource.class).getMaximumPoolSize();
+            }
+        } catch (SQLException e) {
+            logger.warn("Cannot read connection pool size: {}", e.getMessage());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.BalanceChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本实例的堆外账户余额表，放在Redis缓存之前，命中时不经过网络也不产生堆上对象以外的开销
+ * 本实例提交的余额变更在提交后直接写入；其他实例的变更通过余额变更流（Redis Stream）按版本号单调更新，
+ * 因此与Redis缓存一样是最终一致的读视图，扣款时的余额校验仍以数据库为准。
+ * 变更流可能漏掉消息（裁剪、断线、重启），每个条目从加载时起最多使用 ttl-seconds，过期后回源Redis/数据库重新加载；
+ * 写入时间（相对本实例启动的秒数）记录在条目的标志位中。余额变更流关闭时本地表不生效。
+ * 默认关闭，账户规模很大、Redis往返成为瓶颈时开启。
+ */
+@Component
+public class LocalBalanceStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalBalanceStore.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private BalanceChangeStreamService balanceChangeStreamService;
+
+    @Value("${balance.store.enabled:false}")
+    private boolean enabled;
+
+    // 最多缓存的账户数，满后新账户不再进入本地表
+    @Value("${balance.store.capacity:1000000}")
+    private long capacity;
+
+    // 账号最大字节数，决定槽位大小（16字节时每槽64字节）
+    @Value("${balance.store.max-key-bytes:16}")
+    private int maxKeyBytes;
+
+    // 条目从加载起的最长使用时间，过期后重新加载
+    @Value("${balance.store.ttl-seconds:60}")
+    private int ttlSeconds;
+
+    @Value("${balance.changes.enabled:true}")
+    private boolean changesEnabled;
+
+    private final long startNanos = System.nanoTime();
+
+    private OffHeapAccountStore store;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        if (enabled && !changesEnabled) {
+            // 没有变更流时其他实例的变更无法送达，本地表只会越来越旧
+            logger.warn("Local balance store requires balance.changes.enabled=true, disabling it");
+            enabled = false;
+        }
+        if (!enabled) {
+            return;
+        }
+        store = new OffHeapAccountStore(capacity, maxKeyBytes);
+
+        Gauge.builder("balance.store.memory", store, OffHeapAccountStore::sizeInBytes)
+            .baseUnit("bytes").description("Off-heap memory held by the local balance store").register(meterRegistry);
+        Gauge.builder("balance.store.size", store, OffHeapAccountStore::size)
+            .description("Accounts in the local balance store").register(meterRegistry);
+        Gauge.builder("balance.store.capacity", store, OffHeapAccountStore::maxEntries)
+            .register(meterRegistry);
+        hits = Counter.builder("balance.store.lookups").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("balance.store.lookups").tag("result", "miss").register(meterRegistry);
+
+        balanceChangeStreamService.addListener(this::apply);
+
+        logger.info("Local balance store: {} accounts, {} byte slots, {} MB off-heap",
+                   capacity, store.slotSize(), store.sizeInBytes() / (1024 * 1024));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 读取本地账户快照，未开启或不存在时返回 null
+     */
+    public Account get(String accountNumber) {
+        if (!enabled) {
+            return null;
+        }
+        Account account = store.get(accountNumber, now() - ttlSeconds);
+        (account != null ? hits : misses).increment();
+        return account;
+    }
+
+    /**
+     * 读取本地余额，未开启或不存在时返回 null
+     */
+    public AccountBalance getBalance(String accountNumber) {
+        Account account = get(accountNumber);
+        return account != null ? new AccountBalance(accountNumber, account.getBalance(), account.getVersion()) : null;
+    }
+
+    /**
+     * 写入账户快照，只会用更新的版本覆盖
+     */
+    public void put(Account account) {
+        if (enabled) {
+            long id = account.getId() != null ? account.getId() : 0;
+            store.put(id, account.getAccountNumber(), account.getBalance(), account.getVersion(), now());
+        }
+    }
+
+    /**
+     * 写入回源查询得到的余额视图（不含账户ID）
+     */
+    public void putBalance(AccountBalance balance) {
+        if (enabled) {
+            store.put(0, balance.getAccountNumber(), balance.getBalance(), balance.getVersion(), now());
+        }
+    }
+
+    /**
+     * 按变更事件更新已在本地表中的账户；不在表中的账户等首次读取时再加载。
+     * 不延长条目的使用时间，漏掉的变更最迟在过期重新加载时修正
+     */
+    public void apply(BalanceChangeEvent event) {
+        if (enabled) {
+            store.update(event.getAccountNumber(), event.getBalance(), event.getSequence());
+        }
+    }
+
+    /**
+     * 本实例启动以来的秒数，写入条目的标志位
+     */
+    private int now() {
+        return (int) TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos);
+    }
+}
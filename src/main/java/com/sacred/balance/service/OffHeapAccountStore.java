@@ -0,0 +1,343 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外账户余额表：账号 -> (账户ID, 余额, 版本号, 标志位)
+ * 开放寻址（线性探测），定长槽位放在若干直接内存段中，堆上只有段数组本身，堆占用与账户数无关，也不增加GC扫描量。
+ *
+ * 槽位布局（字节偏移）：
+ *   0 seq      序号锁：0=空槽，奇数=写入中，偶数=可读
+ *   8 hash     账号哈希
+ *  16 balance  余额（double 的位表示）
+ *  24 version  余额版本号
+ *  32 id       账户ID，0 表示未知（只有余额视图时写入）
+ *  40 flags    标志位
+ *  44 keyLen   账号字节数
+ *  48 key      账号（UTF-8），最长 maxKeyBytes
+ *
+ * 读不加锁：读 seq -> 读字段 -> 再读 seq，两次一致且为偶数即为一致快照，否则重读。
+ * 写按槽位 CAS：seq 偶数 -> 奇数 抢占，写完后发布为下一个偶数；空槽以 0 -> 1 抢占后写入账号，之后账号不再变化。
+ * 不支持删除。
+ */
+public final class OffHeapAccountStore {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private static final int SEQ = 0;
+    private static final int HASH = 8;
+    private static final int BALANCE = 16;
+    private static final int VERSION = 24;
+    private static final int ID = 32;
+    private static final int FLAGS = 40;
+    private static final int KEY_LENGTH = 44;
+    private static final int KEY = 48;
+
+    // 单个直接内存段的最大字节数
+    private static final int MAX_SEGMENT_BYTES = 1 << 30;
+    // 装载因子上限，超过后不再加入新账号
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    private final ByteBuffer[] segments;
+    private final int slotSize;
+    private final int maxKeyBytes;
+    private final int slotsPerSegmentShift;
+    private final long slotsPerSegmentMask;
+    private final long tableSize;
+    private final long tableMask;
+    private final long maxEntries;
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * @param maxEntries 最多容纳的账号数
+     * @param maxKeyBytes 账号最大字节数，超过的账号不进入本表
+     */
+    public OffHeapAccountStore(long maxEntries, int maxKeyBytes) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (maxKeyBytes <= 0 || maxKeyBytes > 1024) {
+            throw new IllegalArgumentException("maxKeyBytes out of range: " + maxKeyBytes);
+        }
+        this.maxKeyBytes = maxKeyBytes;
+        // 槽位按8字节对齐；默认16字节账号时为64字节，正好一个缓存行
+        this.slotSize = (KEY + maxKeyBytes + 7) & ~7;
+        this.maxEntries = maxEntries;
+        this.tableSize = Long.highestOneBit((long) Math.ceil(maxEntries / MAX_LOAD_FACTOR) * 2 - 1);
+        this.tableMask = tableSize - 1;
+
+        long slotsPerSegment = Math.min(tableSize, Long.highestOneBit(MAX_SEGMENT_BYTES / slotSize));
+        this.slotsPerSegmentShift = Long.numberOfTrailingZeros(slotsPerSegment);
+        this.slotsPerSegmentMask = slotsPerSegment - 1;
+        int segmentCount = Math.toIntExact(tableSize / slotsPerSegment);
+        this.segments = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = ByteBuffer.allocateDirect(Math.toIntExact(slotsPerSegment * slotSize + 7)).alignedSlice(Long.BYTES);
+        }
+    }
+
+    /**
+     * 读取账户快照，不存在返回 null
+     */
+    public Account get(String accountNumber) {
+        return get(accountNumber, Integer.MIN_VALUE);
+    }
+
+    /**
+     * 读取账户快照，不存在或标志位小于 minFlags 时返回 null；调用方可在标志位中记录写入时间，按此判断过期
+     */
+    public Account get(String accountNumber, int minFlags) {
+        byte[] encoded = encodeIfNonAscii(accountNumber);
+        int keyLength = encoded != null ? encoded.length : accountNumber.length();
+        if (keyLength > maxKeyBytes) {
+            return null;
+        }
+        long hash = hash(accountNumber);
+        for (long probe = 0, slot = hash & tableMask; probe < tableSize; probe++, slot = (slot + 1) & tableMask) {
+            ByteBuffer segment = segment(slot);
+            int base = offset(slot);
+            while (true) {
+                long seq = (long) LONGS.getAcquire(segment, base + SEQ);
+                if (seq == 0) {
+                    return null;
+                }
+                if ((seq & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if ((long) LONGS.get(segment, base + HASH) != hash
+                    || !keyEquals(segment, base, accountNumber, encoded, keyLength)) {
+                    break;
+                }
+                double balance = Double.longBitsToDouble((long) LONGS.get(segment, base + BALANCE));
+                long version = (long) LONGS.get(segment, base + VERSION);
+                long id = (long) LONGS.get(segment, base + ID);
+                int flags = (int) INTS.get(segment, base + FLAGS);
+                VarHandle.acquireFence();
+                if ((long) LONGS.get(segment, base + SEQ) == seq) {
+                    if (flags < minFlags) {
+                        return null;
+                    }
+                    Account account = new Account(accountNumber, balance);
+                    account.setId(id != 0 ? id : null);
+                    account.setVersion(version);
+                    return account;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 读取标志位，不存在返回 -1
+     */
+    public int flags(String accountNumber) {
+        long slot = find(accountNumber);
+        if (slot < 0) {
+            return -1;
+        }
+        ByteBuffer segment = segment(slot);
+        return (int) INTS.getAcquire(segment, offset(slot) + FLAGS);
+    }
+
+    /**
+     * 写入账户快照：已存在时只在版本号更大时覆盖，旧快照不会覆盖新值；版本号相同时只改写标志位
+     * @return 是否写入了余额；表已满、账号超长或版本号不比现有的大时返回 false
+     */
+    public boolean put(long accountId, String accountNumber, double balance, long version, int flags) {
+        byte[] encoded = encodeIfNonAscii(accountNumber);
+        int keyLength = encoded != null ? encoded.length : accountNumber.length();
+        if (keyLength > maxKeyBytes) {
+            return false;
+        }
+        long hash = hash(accountNumber);
+        for (long probe = 0, slot = hash & tableMask; probe < tableSize; probe++, slot = (slot + 1) & tableMask) {
+            ByteBuffer segment = segment(slot);
+            int base = offset(slot);
+            while (true) {
+                long seq = (long) LONGS.getAcquire(segment, base + SEQ);
+                if (seq == 0) {
+                    if (size.get() >= maxEntries) {
+                        return false;
+                    }
+                    if (!LONGS.compareAndSet(segment, base + SEQ, 0L, 1L)) {
+                        continue;
+                    }
+                    size.incrementAndGet();
+                    LONGS.set(segment, base + HASH, hash);
+                    writeKey(segment, base, accountNumber, encoded, keyLength);
+                    writeValue(segment, base, accountId, balance, version, flags);
+                    LONGS.setRelease(segment, base + SEQ, 2L);
+                    return true;
+                }
+                if ((seq & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                if ((long) LONGS.get(segment, base + HASH) != hash
+                    || !keyEquals(segment, base, accountNumber, encoded, keyLength)) {
+                    break;
+                }
+                if (!LONGS.compareAndSet(segment, base + SEQ, seq, seq + 1)) {
+                    continue;
+                }
+                long current = (long) LONGS.get(segment, base + VERSION);
+                boolean newer = version > current;
+                if (newer) {
+                    writeValue(segment, base, accountId, balance, version, flags);
+                } else if (version == current) {
+                    INTS.set(segment, base + FLAGS, flags);
+                }
+                LONGS.setRelease(segment, base + SEQ, seq + 2);
+                return newer;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 只更新已存在的账号，且版本号更大时才覆盖；不存在时返回 false，不占用新槽位
+     */
+    public boolean update(String accountNumber, double balance, long version) {
+        long slot = find(accountNumber);
+        return slot >= 0 && updateSlot(slot, version, false, balance, version);
+    }
+
+    /**
+     * 版本号等于 expectedVersion 时原子更新余额和版本号
+     */
+    public boolean compareAndSet(String accountNumber, long expectedVersion, double newBalance, long newVersion) {
+        long slot = find(accountNumber);
+        return slot >= 0 && updateSlot(slot, expectedVersion, true, newBalance, newVersion);
+    }
+
+    public long size() {
+        return size.get();
+    }
+
+    public long maxEntries() {
+        return maxEntries;
+    }
+
+    public int slotSize() {
+        return slotSize;
+    }
+
+    public long sizeInBytes() {
+        return tableSize * slotSize;
+    }
+
+    /**
+     * 查找账号所在槽位，不存在返回 -1
+     */
+    private long find(String accountNumber) {
+        byte[] encoded = encodeIfNonAscii(accountNumber);
+        int keyLength = encoded != null ? encoded.length : accountNumber.length();
+        if (keyLength > maxKeyBytes) {
+            return -1;
+        }
+        long hash = hash(accountNumber);
+        for (long probe = 0, slot = hash & tableMask; probe < tableSize; probe++, slot = (slot + 1) & tableMask) {
+            ByteBuffer segment = segment(slot);
+            int base = offset(slot);
+            long seq;
+            while (((seq = (long) LONGS.getAcquire(segment, base + SEQ)) & 1) != 0) {
+                Thread.onSpinWait();
+            }
+            if (seq == 0) {
+                return -1;
+            }
+            if ((long) LONGS.get(segment, base + HASH) == hash
+                && keyEquals(segment, base, accountNumber, encoded, keyLength)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 抢占槽位的序号锁后改写余额和版本号
+     * @param exact true 要求当前版本号等于 version，false 要求当前版本号小于 version
+     */
+    private boolean updateSlot(long slot, long version, boolean exact, double newBalance, long newVersion) {
+        ByteBuffer segment = segment(slot);
+        int base = offset(slot);
+        while (true) {
+            long seq = (long) LONGS.getAcquire(segment, base + SEQ);
+            if ((seq & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            if (!LONGS.compareAndSet(segment, base + SEQ, seq, seq + 1)) {
+                continue;
+            }
+            long current = (long) LONGS.get(segment, base + VERSION);
+            boolean matched = exact ? current == version : current < version;
+            if (matched) {
+                LONGS.set(segment, base + BALANCE, Double.doubleToRawLongBits(newBalance));
+                LONGS.set(segment, base + VERSION, newVersion);
+            }
+            LONGS.setRelease(segment, base + SEQ, seq + 2);
+            return matched;
+        }
+    }
+
+    private ByteBuffer segment(long slot) {
+        return segments[(int) (slot >>> slotsPerSegmentShift)];
+    }
+
+    private int offset(long slot) {
+        return (int) ((slot & slotsPerSegmentMask) * slotSize);
+    }
+
+    private static void writeValue(ByteBuffer segment, int base, long accountId, double balance, long version, int flags) {
+        LONGS.set(segment, base + BALANCE, Double.doubleToRawLongBits(balance));
+        LONGS.set(segment, base + VERSION, version);
+        LONGS.set(segment, base + ID, accountId);
+        INTS.set(segment, base + FLAGS, flags);
+    }
+
+    private static void writeKey(ByteBuffer segment, int base, String accountNumber, byte[] encoded, int keyLength) {
+        INTS.set(segment, base + KEY_LENGTH, keyLength);
+        for (int i = 0; i < keyLength; i++) {
+            segment.put(base + KEY + i, encoded != null ? encoded[i] : (byte) accountNumber.charAt(i));
+        }
+    }
+
+    private static boolean keyEquals(ByteBuffer segment, int base, String accountNumber, byte[] encoded, int keyLength) {
+        if ((int) INTS.get(segment, base + KEY_LENGTH) != keyLength) {
+            return false;
+        }
+        for (int i = 0; i < keyLength; i++) {
+            byte expected = encoded != null ? encoded[i] : (byte) accountNumber.charAt(i);
+            if (segment.get(base + KEY + i) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII账号逐字符比较，无需编码；含非ASCII字符时才编码为UTF-8
+     */
+    private static byte[] encodeIfNonAscii(String accountNumber) {
+        for (int i = 0; i < accountNumber.length(); i++) {
+            if (accountNumber.charAt(i) >= 0x80) {
+                return accountNumber.getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static long hash(String accountNumber) {
+        return StringHash.hash64(accountNumber, StringHash.SEED_1);
+    }
+}
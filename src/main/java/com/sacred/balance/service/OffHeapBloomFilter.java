@@ -0,0 +1,130 @@
+package com.sacred.balance.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 堆外布隆过滤器
+ * 位数组放在 8 字节对齐的直接内存中，按 long 字原子置位（getAndBitwiseOr），读写均无锁；
+ * 不占用堆，也不产生GC扫描开销。哈希由调用方给出两个64位值，按 h1 + i * h2 派生 k 个位置
+ */
+public final class OffHeapBloomFilter {
+
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private final ByteBuffer bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final LongAdder insertions = new LongAdder();
+
+    /**
+     * @param bitCount 位数，向上取整到64的倍数，最多 2^33（1GB）
+     * @param hashCount 每个元素置位的个数
+     */
+    public OffHeapBloomFilter(long bitCount, int hashCount) {
+        if (bitCount <= 0 || bitCount > (1L << 33)) {
+            throw new IllegalArgumentException("bitCount out of range: " + bitCount);
+        }
+        if (hashCount <= 0) {
+            throw new IllegalArgumentException("hashCount must be positive: " + hashCount);
+        }
+        long words = (bitCount + 63) >>> 6;
+        this.bitCount = words << 6;
+        this.hashCount = hashCount;
+        // 多申请7字节，切出8字节对齐的视图，保证原子访问模式可用
+        this.bits = ByteBuffer.allocateDirect(Math.toIntExact(words * Long.BYTES + 7)).alignedSlice(Long.BYTES);
+    }
+
+    /**
+     * 按期望元素数和误判率计算位数与哈希个数：m = -n ln p / (ln 2)^2，k = m / n * ln 2
+     */
+    public static long optimalBitCount(long expectedInsertions, double falsePositiveRate) {
+        return (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    }
+
+    public static int optimalHashCount(double falsePositiveRate) {
+        return Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+    }
+
+    /**
+     * 按给定位数和误判率可容纳的元素数：n = -m (ln 2)^2 / ln p
+     */
+    public static long capacity(long bitCount, double falsePositiveRate) {
+        return (long) (-bitCount * Math.log(2) * Math.log(2) / Math.log(falsePositiveRate));
+    }
+
+    /**
+     * 加入元素，返回是否改变了任一位（false 表示该元素此前可能已存在）
+     */
+    public boolean put(long h1, long h2) {
+        boolean changed = false;
+        long combined = h1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitCount;
+            long mask = 1L << (index & 63);
+            long previous = (long) WORDS.getAndBitwiseOr(bits, (int) ((index >>> 6) << 3), mask);
+            changed |= (previous & mask) == 0;
+            combined += h2;
+        }
+        if (changed) {
+            insertions.increment();
+        }
+        return changed;
+    }
+
+    /**
+     * false 表示一定未加入过；true 表示可能加入过
+     */
+    public boolean mightContain(long h1, long h2) {
+        long combined = h1;
+        for (int i = 0; i < hashCount; i++) {
+            long index = (combined & Long.MAX_VALUE) % bitCount;
+            long word = (long) WORDS.getAcquire(bits, (int) ((index >>> 6) << 3));
+            if ((word & (1L << (index & 63))) == 0) {
+                return false;
+            }
+            combined += h2;
+        }
+        return true;
+    }
+
+    /**
+     * 清空所有位；调用方需保证清空期间没有并发写入
+     */
+    public void clear() {
+        int limit = bits.capacity() - Long.BYTES;
+        for (int offset = 0; offset <= limit; offset += Long.BYTES) {
+            WORDS.setRelease(bits, offset, 0L);
+        }
+        insertions.reset();
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long sizeInBytes() {
+        return bitCount >>> 3;
+    }
+
+    /**
+     * 实际加入的不同元素数（近似，误判为已存在的元素不计入）
+     */
+    public long approximateElementCount() {
+        return insertions.sum();
+    }
+
+    /**
+     * 按当前元素数估算的误判率：(1 - e^(-kn/m))^k
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * approximateElementCount() / bitCount), hashCount);
+    }
+}
@@ -0,0 +1,272 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.model.BalanceChangeEvent;
+import com.sacred.balance.model.OutboxEvent;
+import com.sacred.balance.repository.OutboxEventRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 事务发件箱中继
+ * 通过Redis租约选出一个实例，单线程按ID顺序批量读取发件箱，一个管道内完成缓存刷新、幂等标记和变更事件发布，成功后删除。
+ * 失败时整批保留重试（至少一次）；缓存写入带版本号比较，重放或乱序的旧快照不会覆盖新值。
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // 中继租约键
+    private static final String LEADER_KEY = "outbox:relay:leader";
+
+    /**
+     * 余额视图中的版本号不小于本次快照时跳过，否则同时写入余额视图和账户缓存
+     * KEYS[1]=余额视图 KEYS[2]=账户缓存 ARGV[1]=版本号 ARGV[2]=余额视图值 ARGV[3]=过期秒数 ARGV[4]=账户缓存值
+     */
+    private static final String CACHE_SCRIPT =
+        "local current = redis.call('GET', KEYS[1]) " +
+        "if current then " +
+        "  local version = tonumber(string.match(current, '^(%d+):')) " +
+        "  if version and version >= tonumber(ARGV[1]) then return 0 end " +
+        "end " +
+        "redis.call('SET', KEYS[1], ARGV[2], 'EX', ARGV[3]) " +
+        "redis.call('SET', KEYS[2], ARGV[4]) " +
+        "return 1";
+
+    // 只续期自己持有的租约
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+        "  return redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+        "end " +
+        "return 0", Long.class);
+
+    private static final byte[] VIEW_EXPIRE_SECONDS = bytes(Long.toString(
+        TimeUnit.MINUTES.toSeconds(BalanceQueryService.BALANCE_VIEW_EXPIRE_MINUTES)));
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private BalanceChangePublisher balanceChangePublisher;
+
+    @Value("${balance.outbox.batch-size:500}")
+    private int batchSize;
+
+    // 无唤醒信号时的轮询间隔，其他实例提交的记录依赖轮询发现
+    @Value("${balance.outbox.poll-interval-millis:100}")
+    private long pollIntervalMillis;
+
+    @Value("${balance.outbox.lease-millis:10000}")
+    private long leaseMillis;
+
+    private final String owner = UUID.randomUUID().toString();
+    private final Semaphore wakeUps = new Semaphore(0);
+    private final AtomicLong relayed = new AtomicLong();
+    private volatile boolean running = true;
+    private volatile boolean leader;
+    private long lastRenewal;
+    private String cacheScriptSha;
+    private Thread relayThread;
+
+    @PostConstruct
+    public void start() {
+        relayThread = new Thread(this::run, "outbox-relay");
+        relayThread.setDaemon(true);
+        relayThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        relayThread.interrupt();
+        relayThread.join(TimeUnit.SECONDS.toMillis(5));
+        if (leader && owner.equals(stringRedisTemplate.opsForValue().get(LEADER_KEY))) {
+            stringRedisTemplate.delete(LEADER_KEY);
+        }
+    }
+
+    /**
+     * 本实例有事务提交了发件箱记录，唤醒中继线程
+     */
+    public void wakeUp() {
+        if (wakeUps.availablePermits() == 0) {
+            wakeUps.release();
+        }
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    public long getRelayedCount() {
+        return relayed.get();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                if (!holdLeadership(false)) {
+                    // 非中继实例只定期尝试接管
+                    Thread.sleep(leaseMillis / 3);
+                    continue;
+                }
+                List<OutboxEvent> batch = outboxEventRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+                if (batch.isEmpty()) {
+                    if (wakeUps.tryAcquire(pollIntervalMillis, TimeUnit.MILLISECONDS)) {
+                        wakeUps.drainPermits();
+                    }
+                    continue;
+                }
+                // 写Redis前确认仍持有租约，避免与新中继并发重放
+                if (!holdLeadership(true)) {
+                    continue;
+                }
+                relay(batch);
+                List<Long> ids = new ArrayList<>(batch.size());
+                for (OutboxEvent event : batch) {
+                    ids.add(event.getId());
+                }
+                outboxEventRepository.deleteAllByIdInBatch(ids);
+                relayed.addAndGet(batch.size());
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                // 脚本缓存可能已被清空（NOSCRIPT），下次重新加载
+                cacheScriptSha = null;
+                logger.warn("Outbox relay failed, retrying: {}", e.getMessage());
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    private boolean holdLeadership(boolean confirm) {
+        long now = System.currentTimeMillis();
+        if (leader && !confirm && now - lastRenewal < leaseMillis / 3) {
+            return true;
+        }
+        if (leader) {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(LEADER_KEY), owner, Long.toString(leaseMillis));
+            leader = renewed != null && renewed == 1;
+            if (!leader) {
+                logger.warn("Outbox relay lease lost");
+            }
+        } else {
+            leader = Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                .setIfAbsent(LEADER_KEY, owner, leaseMillis, TimeUnit.MILLISECONDS));
+            if (leader) {
+                logger.info("Outbox relay lease acquired: {}", owner);
+            }
+        }
+        if (leader) {
+            lastRenewal = now;
+        }
+        return leader;
+    }
+
+    /**
+     * 一个管道写完整批；同一账户在批内多次变更只写最后一次的缓存，变更事件全部按顺序发布
+     */
+    @SuppressWarnings("unchecked")
+    private void relay(List<OutboxEvent> batch) {
+        RedisSerializer<Object> valueSerializer = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+        String scriptSha = loadCacheScript();
+
+        Map<String, Integer> lastChange = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            OutboxEvent event = batch.get(i);
+            if (OutboxEvent.BALANCE_CHANGE.equals(event.getEventType())) {
+                lastChange.put(event.getAccountNumber(), i);
+            }
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < batch.size(); i++) {
+                OutboxEvent event = batch.get(i);
+                if (OutboxEvent.BALANCE_CHANGE.equals(event.getEventType())) {
+                    if (lastChange.get(event.getAccountNumber()) == i) {
+                        Account account = toAccount(event);
+                        connection.scriptingCommands().evalSha(scriptSha, ReturnType.INTEGER, 2,
+                            bytes(BalanceQueryService.balanceViewKey(account.getAccountNumber())),
+                            bytes(AccountService.accountCacheKey(account.getAccountNumber())),
+                            bytes(Long.toString(account.getVersion())),
+                            bytes(BalanceQueryService.encodeBalanceView(new AccountBalance(
+                                account.getAccountNumber(), account.getBalance(), account.getVersion()))),
+                            VIEW_EXPIRE_SECONDS,
+                            valueSerializer.serialize(account));
+                    }
+                    balanceChangePublisher.publish(connection, new BalanceChangeEvent(event.getAccountNumber(),
+                        event.getDelta(), event.getBalance(), event.getAccountVersion(), event.getTransactionId(),
+                        event.getCreatedAt()));
+                } else if (OutboxEvent.TRANSACTION_PROCESSED.equals(event.getEventType())) {
+                    TransactionKeys keys = TransactionKeys.of(event.getTransactionId());
+                    connection.stringCommands().set(keys.idempotent(), TransactionKeys.PROCESSED,
+                        TransactionService.IDEMPOTENT_EXPIRATION, RedisStringCommands.SetOption.upsert());
+                    connection.keyCommands().del(keys.startTime());
+                } else {
+                    logger.warn("Skipping outbox event {} of unknown type {}", event.getId(), event.getEventType());
+                }
+            }
+            return null;
+        });
+    }
+
+    private String loadCacheScript() {
+        if (cacheScriptSha == null) {
+            cacheScriptSha = stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(bytes(CACHE_SCRIPT)));
+        }
+        return cacheScriptSha;
+    }
+
+    private static Account toAccount(OutboxEvent event) {
+        Account account = new Account(event.getAccountNumber(), event.getBalance());
+        account.setId(event.getAccountId());
+        account.setVersion(event.getAccountVersion());
+        return account;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
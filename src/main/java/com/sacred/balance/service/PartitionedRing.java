@@ -0,0 +1,207 @@
+package com.sacred.balance.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 按键分区的多生产者环形队列：每个分区一个有界环和一个消费线程，同一分区的命令只由该线程按发布顺序执行，
+ * 执行过程不需要锁；结果通过发布时返回的 CompletableFuture 送回发布者。
+ * 槽位预先分配，序号的做法同 Vyukov 有界队列（与 RingBufferAppender 相同）：序号等于写入位置时可写，等于写入位置+1时可读。
+ * 消费线程空闲时先自旋再休眠；休眠前登记，生产者发布后发现消费者在休眠才唤醒它。
+ */
+public final class PartitionedRing<T, R> {
+
+    // 空闲时自旋的次数，之后休眠
+    private static final int SPIN_TRIES = 2000;
+    // 休眠的最长时间，唤醒丢失时也能及时继续
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Function<T, R> handler;
+    private final Partition<T, R>[] partitions;
+    private volatile boolean running = true;
+
+    /**
+     * @param name 消费线程名前缀
+     * @param partitionCount 分区数（消费线程数）
+     * @param capacity 每个分区的容量，取不小于该值的2的幂
+     * @param handler 在分区消费线程上执行命令
+     */
+    @SuppressWarnings("unchecked")
+    public PartitionedRing(String name, int partitionCount, int capacity, Function<T, R> handler) {
+        this.handler = handler;
+        int slots = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        partitions = (Partition<T, R>[]) new Partition<?, ?>[Math.max(partitionCount, 1)];
+        for (int i = 0; i < partitions.length; i++) {
+            Partition<T, R> partition = new Partition<>(slots);
+            partition.consumer = new Thread(() -> consume(partition), name + "-" + i);
+            partition.consumer.setDaemon(true);
+            partitions[i] = partition;
+        }
+        for (Partition<T, R> partition : partitions) {
+            partition.consumer.start();
+        }
+    }
+
+    /**
+     * 发布到键所在的分区，环满或已关闭时返回 null
+     */
+    public CompletableFuture<R> publish(String key, T command) {
+        if (!running) {
+            return null;
+        }
+        Partition<T, R> partition = partitions[partitionOf(key)];
+        CompletableFuture<R> reply = new CompletableFuture<>();
+        if (!partition.offer(command, reply)) {
+            return null;
+        }
+        if (partition.sleeping) {
+            LockSupport.unpark(partition.consumer);
+        }
+        return reply;
+    }
+
+    public int partitionOf(String key) {
+        return (int) Math.floorMod(StringHash.hash64(key, StringHash.SEED_1), (long) partitions.length);
+    }
+
+    public int partitionCount() {
+        return partitions.length;
+    }
+
+    /**
+     * 所有分区中等待执行的命令数
+     */
+    public int size() {
+        int size = 0;
+        for (Partition<T, R> partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return partitions.length * partitions[0].commands.length;
+    }
+
+    /**
+     * 停止接收新命令，等待消费线程执行完已发布的命令
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        for (Partition<T, R> partition : partitions) {
+            LockSupport.unpark(partition.consumer);
+            try {
+                partition.consumer.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void consume(Partition<T, R> partition) {
+        int idle = 0;
+        while (true) {
+            if (partition.poll()) {
+                idle = 0;
+                T command = partition.command;
+                CompletableFuture<R> reply = partition.reply;
+                partition.command = null;
+                partition.reply = null;
+                try {
+                    reply.complete(handler.apply(command));
+                } catch (Throwable e) {
+                    reply.completeExceptionally(e);
+                }
+            } else if (!running && partition.size() == 0) {
+                return;
+            } else if (++idle < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                // 先登记再复查，与生产者“先发布再检查登记”配对，不会两边都错过
+                partition.sleeping = true;
+                if (partition.size() == 0 && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                partition.sleeping = false;
+                idle = 0;
+            }
+        }
+    }
+
+    private static final class Partition<T, R> {
+        private final Object[] commands;
+        private final Object[] replies;
+        private final AtomicLongArray sequences;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        // 只由消费线程写入
+        private volatile long head;
+        private T command;
+        private CompletableFuture<R> reply;
+
+        private Thread consumer;
+        private volatile boolean sleeping;
+
+        Partition(int capacity) {
+            commands = new Object[capacity];
+            replies = new Object[capacity];
+            sequences = new AtomicLongArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                sequences.set(i, i);
+            }
+            mask = capacity - 1;
+        }
+
+        boolean offer(T command, CompletableFuture<R> reply) {
+            long position = tail.get();
+            while (true) {
+                int index = (int) position & mask;
+                long difference = sequences.get(index) - position;
+                if (difference == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        commands[index] = command;
+                        replies[index] = reply;
+                        // volatile写：既发布槽位内容，也保证之后读取 sleeping 不会被提前
+                        sequences.set(index, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (difference < 0) {
+                    // 该槽位上一轮的命令还未执行，环已满
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        /**
+         * 取出下一个命令放入 command/reply，没有可读命令时返回 false
+         */
+        @SuppressWarnings("unchecked")
+        boolean poll() {
+            long position = head;
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                return false;
+            }
+            command = (T) commands[index];
+            reply = (CompletableFuture<R>) replies[index];
+            commands[index] = null;
+            replies[index] = null;
+            sequences.lazySet(index, position + mask + 1);
+            head = position + 1;
+            return true;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.ReconciliationDiscrepancy;
+import com.sacred.balance.model.ReconciliationReport;
+import com.sacred.balance.model.ReconciliationRun;
+import com.sacred.balance.repository.ReconciliationDiscrepancyRepository;
+import com.sacred.balance.repository.ReconciliationRunRepository;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日终余额对账
+ * 每个账户保存一条对账基线（截至某交易ID水位的流水推算余额），对账时只累加水位之后的流水：
+ * 期望余额 = 基线 + 转入 - 转出，与 accounts 中的余额比较。
+ * 按账户ID区间并行执行，每个区间在一个只读 REPEATABLE READ 快照中读取账户余额和流水，不加锁、不阻塞在线交易。
+ * 没有基线的账户（首次对账或新开户）以当前余额建立基线，不回放全部历史。
+ */
+@Service
+public class ReconciliationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconciliationService.class);
+
+    // 对账锁，多个Pod只有一个执行
+    private static final String RECONCILIATION_LOCK_KEY = "reconciliation:lock";
+    private static final long RECONCILIATION_LOCK_HOURS = 6;
+
+    private static final String WATERMARK_SQL =
+        "SELECT MAX(id) FROM transactions WHERE id > ? AND timestamp <= ?";
+    private static final String ACCOUNT_ID_RANGE_SQL = "SELECT MIN(id), MAX(id) FROM accounts";
+
+    // 参数：默认水位ID、默认水位时间（无基线账户使用）、账户ID区间、本次水位ID（4次）
+    private static final String RANGE_SQL =
+        "WITH acc AS (" +
+        "  SELECT a.account_number, a.balance, r.balance AS baseline, " +
+        "         COALESCE(r.watermark_id, ?) AS since_id, COALESCE(r.watermark_time, ?) AS since_time " +
+        "  FROM accounts a LEFT JOIN account_reconciliation r ON r.account_number = a.account_number " +
+        "  WHERE a.id >= ? AND a.id < ?), " +
+        "debit AS (" +
+        "  SELECT acc.account_number, " +
+        "         SUM(CASE WHEN t.id <= ? THEN t.amount ELSE 0 END) AS to_watermark, " +
+        "         COUNT(CASE WHEN t.id <= ? THEN 1 END) AS postings, SUM(t.amount) AS total " +
+        "  FROM acc JOIN transactions t ON t.source_account = acc.account_number " +
+        "  WHERE t.timestamp >= acc.since_time AND t.id > acc.since_id GROUP BY acc.account_number), " +
+        "credit AS (" +
+        "  SELECT acc.account_number, " +
+        "         SUM(CASE WHEN t.id <= ? THEN t.amount ELSE 0 END) AS to_watermark, " +
+        "         COUNT(CASE WHEN t.id <= ? THEN 1 END) AS postings, SUM(t.amount) AS total " +
+        "  FROM acc JOIN transactions t ON t.destination_account = acc.account_number " +
+        "  WHERE t.timestamp >= acc.since_time AND t.id > acc.since_id GROUP BY acc.account_number) " +
+        "SELECT acc.account_number, acc.balance, acc.baseline, " +
+        "       COALESCE(debit.to_watermark, 0), COALESCE(debit.postings, 0), COALESCE(debit.total, 0), " +
+        "       COALESCE(credit.to_watermark, 0), COALESCE(credit.postings, 0), COALESCE(credit.total, 0) " +
+        "FROM acc LEFT JOIN debit ON debit.account_number = acc.account_number " +
+        "LEFT JOIN credit ON credit.account_number = acc.account_number";
+
+    private static final String UPSERT_BASELINE_PG_SQL =
+        "INSERT INTO account_reconciliation (account_number, balance, watermark_id, watermark_time, reconciled_at) " +
+        "VALUES (?, ?, ?, ?, ?) ON CONFLICT (account_number) DO UPDATE SET balance = EXCLUDED.balance, " +
+        "watermark_id = EXCLUDED.watermark_id, watermark_time = EXCLUDED.watermark_time, " +
+        "reconciled_at = EXCLUDED.reconciled_at";
+    // 非PostgreSQL数据库（如测试用H2）
+    private static final String UPSERT_BASELINE_SQL =
+        "MERGE INTO account_reconciliation (account_number, balance, watermark_id, watermark_time, reconciled_at) " +
+        "KEY (account_number) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReconciliationRunRepository runRepository;
+
+    @Autowired
+    private ReconciliationDiscrepancyRepository discrepancyRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Value("${balance.reconciliation.enabled:true}")
+    private boolean enabled;
+
+    // 并行执行的账户区间数
+    @Value("${balance.reconciliation.parallelism:4}")
+    private int parallelism;
+
+    // 每个区间包含的账户ID跨度
+    @Value("${balance.reconciliation.range-size:20000}")
+    private int rangeSize;
+
+    // 只对早于该时长的交易推进水位，保证水位以下不存在尚未提交的交易（需大于处理锁超时时间）
+    @Value("${balance.reconciliation.lag-minutes:10}")
+    private long lagMinutes;
+
+    @Value("${balance.reconciliation.tolerance:0.000001}")
+    private double tolerance;
+
+    // 报告中保留的差异明细条数上限
+    @Value("${balance.reconciliation.max-reported:1000}")
+    private int maxReported;
+
+    @Scheduled(cron = "${balance.reconciliation.cron:0 30 2 * * *}")
+    public void reconcilePeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            reconcile();
+        } catch (Exception e) {
+            logger.error("Balance reconciliation failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行一次对账，返回本次报告
+     */
+    public ReconciliationReport reconcile() {
+        String lockOwner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+            .setIfAbsent(RECONCILIATION_LOCK_KEY, lockOwner, RECONCILIATION_LOCK_HOURS, TimeUnit.HOURS);
+        if (!Boolean.TRUE.equals(locked)) {
+            throw new BusinessException(409, "Reconciliation is already running");
+        }
+
+        long startTime = System.currentTimeMillis();
+        ReconciliationRun run = new ReconciliationRun();
+        run.setStatus(ReconciliationRun.RUNNING);
+        run.setStartedAt(LocalDateTime.now());
+        run = runRepository.save(run);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        try {
+            long previousWatermark = runRepository.findTopByStatusOrderByIdDesc(ReconciliationRun.COMPLETED)
+                .map(ReconciliationRun::getWatermarkId)
+                .orElse(0L);
+            LocalDateTime cutoff = run.getStartedAt().minusMinutes(lagMinutes);
+            long watermark = Math.max(previousWatermark, queryWatermark(previousWatermark, cutoff));
+            // 水位之后的交易 timestamp 晚于 cutoff；再减去一个延迟余量，覆盖分配ID后延迟提交的交易
+            LocalDateTime watermarkTime = cutoff.minusMinutes(lagMinutes);
+            run.setWatermarkId(watermark);
+
+            long[] idRange = queryAccountIdRange();
+            List<Future<RangeResult>> futures = new ArrayList<>();
+            for (long from = idRange[0]; from <= idRange[1]; from += rangeSize) {
+                long rangeFrom = from;
+                long rangeTo = from + rangeSize;
+                futures.add(executor.submit(() -> reconcileRange(rangeFrom, rangeTo, watermark, watermarkTime)));
+            }
+
+            List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+            for (Future<RangeResult> future : futures) {
+                RangeResult result = future.get();
+                run.setAccountsChecked(run.getAccountsChecked() + result.accountsChecked);
+                run.setAccountsInitialized(run.getAccountsInitialized() + result.accountsInitialized);
+                run.setDiscrepancies(run.getDiscrepancies() + result.discrepancies.size());
+                for (ReconciliationDiscrepancy discrepancy : result.discrepancies) {
+                    run.setTotalAbsDifference(run.getTotalAbsDifference() + Math.abs(discrepancy.getDifference()));
+                }
+                discrepancies.addAll(result.discrepancies);
+                // 只保留差额最大的部分明细，控制报告大小
+                if (discrepancies.size() > maxReported * 2) {
+                    trimToLargest(discrepancies);
+                }
+            }
+            trimToLargest(discrepancies);
+
+            Long runId = run.getId();
+            discrepancies.forEach(discrepancy -> discrepancy.setRunId(runId));
+            discrepancies = discrepancyRepository.saveAll(discrepancies);
+
+            run.setStatus(ReconciliationRun.COMPLETED);
+            run.setFinishedAt(LocalDateTime.now());
+            run.setElapsedMillis(System.currentTimeMillis() - startTime);
+            run = runRepository.save(run);
+
+            logger.info("Balance reconciliation {} completed. Watermark: {}, Checked: {}, Initialized: {}, " +
+                       "Discrepancies: {}, Total abs difference: {}, Elapsed: {} ms",
+                       run.getId(), watermark, run.getAccountsChecked(), run.getAccountsInitialized(),
+                       run.getDiscrepancies(), run.getTotalAbsDifference(), run.getElapsedMillis());
+            return new ReconciliationReport(run, discrepancies);
+        } catch (SQLException | ExecutionException e) {
+            failRun(run, startTime, e);
+            throw new BusinessException(500, "Balance reconciliation failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failRun(run, startTime, e);
+            throw new BusinessException(500, "Balance reconciliation interrupted", e);
+        } finally {
+            executor.shutdownNow();
+            if (lockOwner.equals(stringRedisTemplate.opsForValue().get(RECONCILIATION_LOCK_KEY))) {
+                stringRedisTemplate.delete(RECONCILIATION_LOCK_KEY);
+            }
+        }
+    }
+
+    /**
+     * 最近一次对账报告
+     */
+    public ReconciliationReport getLatestReport() {
+        ReconciliationRun run = runRepository.findTopByOrderByIdDesc()
+            .orElseThrow(() -> new BusinessException(404, "No reconciliation run found"));
+        return new ReconciliationReport(run, discrepancyRepository.findByRunIdOrderByIdAsc(run.getId()));
+    }
+
+    /**
+     * 对一个账户ID区间对账：只读快照中计算，之后在单独的短事务中写回基线
+     */
+    private RangeResult reconcileRange(long fromId, long toId, long watermark, LocalDateTime watermarkTime)
+            throws SQLException {
+        RangeResult result = new RangeResult();
+        List<Object[]> baselines = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (PreparedStatement statement = connection.prepareStatement(RANGE_SQL)) {
+                statement.setLong(1, watermark);
+                statement.setObject(2, watermarkTime);
+                statement.setLong(3, fromId);
+                statement.setLong(4, toId);
+                for (int i = 5; i <= 8; i++) {
+                    statement.setLong(i, watermark);
+                }
+                statement.setFetchSize(1000);
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        result.accountsChecked++;
+                        String accountNumber = rs.getString(1);
+                        double actual = rs.getDouble(2);
+                        double baseline = rs.getDouble(3);
+                        boolean hasBaseline = !rs.wasNull();
+                        double debitToWatermark = rs.getDouble(4);
+                        long debitPostings = rs.getLong(5);
+                        double debitTotal = rs.getDouble(6);
+                        double creditToWatermark = rs.getDouble(7);
+                        long creditPostings = rs.getLong(8);
+                        double creditTotal = rs.getDouble(9);
+
+                        if (!hasBaseline) {
+                            // 首次出现：以当前余额倒推水位处的基线
+                            result.accountsInitialized++;
+                            baselines.add(new Object[]{accountNumber, actual - creditTotal + debitTotal});
+                            continue;
+                        }
+                        double expected = baseline + creditTotal - debitTotal;
+                        if (Math.abs(expected - actual) > tolerance) {
+                            result.discrepancies.add(new ReconciliationDiscrepancy(accountNumber, expected, actual));
+                        }
+                        if (debitPostings + creditPostings > 0) {
+                            baselines.add(new Object[]{accountNumber, baseline + creditToWatermark - debitToWatermark});
+                        }
+                    }
+                }
+            }
+            connection.commit();
+        }
+
+        if (!baselines.isEmpty()) {
+            saveBaselines(baselines, watermark, watermarkTime);
+        }
+        return result;
+    }
+
+    private void saveBaselines(List<Object[]> baselines, long watermark, LocalDateTime watermarkTime)
+            throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean postgres = connection.isWrapperFor(PGConnection.class);
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    postgres ? UPSERT_BASELINE_PG_SQL : UPSERT_BASELINE_SQL)) {
+                for (Object[] baseline : baselines) {
+                    statement.setString(1, (String) baseline[0]);
+                    statement.setDouble(2, (Double) baseline[1]);
+                    statement.setLong(3, watermark);
+                    statement.setObject(4, watermarkTime);
+                    statement.setObject(5, now);
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private long queryWatermark(long previousWatermark, LocalDateTime cutoff) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(WATERMARK_SQL)) {
+            statement.setLong(1, previousWatermark);
+            statement.setObject(2, cutoff);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private long[] queryAccountIdRange() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(ACCOUNT_ID_RANGE_SQL);
+             ResultSet rs = statement.executeQuery()) {
+            if (rs.next()) {
+                long min = rs.getLong(1);
+                if (!rs.wasNull()) {
+                    return new long[]{min, rs.getLong(2)};
+                }
+            }
+            // 没有账户
+            return new long[]{1, 0};
+        }
+    }
+
+    private void trimToLargest(List<ReconciliationDiscrepancy> discrepancies) {
+        if (discrepancies.size() <= maxReported) {
+            return;
+        }
+        discrepancies.sort(Comparator.comparingDouble((ReconciliationDiscrepancy d) -> Math.abs(d.getDifference()))
+            .reversed());
+        discrepancies.subList(maxReported, discrepancies.size()).clear();
+    }
+
+    private void failRun(ReconciliationRun run, long startTime, Exception e) {
+        run.setStatus(ReconciliationRun.FAILED);
+        run.setFinishedAt(LocalDateTime.now());
+        run.setElapsedMillis(System.currentTimeMillis() - startTime);
+        String message = String.valueOf(e.getMessage());
+        run.setMessage(message.length() > 1000 ? message.substring(0, 1000) : message);
+        runRepository.save(run);
+    }
+
+    private static final class RangeResult {
+        long accountsChecked;
+        long accountsInitialized;
+        final List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+    }
+}
@@ -0,0 +1,150 @@
+package com.sacred.balance.service;
+
+import java.util.Arrays;
+
+/**
+ * 单个账户的滑动窗口计数：窗口分为若干时间桶，每桶记录笔数和金额，过期的桶在复用时清零
+ * pending 记录尚未同步到Redis的增量，remote 是上次同步时得到的其他实例在窗口内的合计
+ * 非线程安全，由 VelocityLimiter 按分片加锁访问
+ */
+final class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final long[] epochs;
+    private final long[] counts;
+    private final double[] amounts;
+    private final long[] pendingCounts;
+    private final double[] pendingAmounts;
+
+    private long remoteCount;
+    private double remoteAmount;
+    private long lastEpoch;
+
+    SlidingWindowCounter(long windowMillis, int buckets) {
+        this.bucketMillis = bucketMillis(windowMillis, buckets);
+        this.epochs = new long[buckets];
+        this.counts = new long[buckets];
+        this.amounts = new double[buckets];
+        this.pendingCounts = new long[buckets];
+        this.pendingAmounts = new double[buckets];
+        Arrays.fill(epochs, -1);
+    }
+
+    static long bucketMillis(long windowMillis, int buckets) {
+        return Math.max(1, windowMillis / buckets);
+    }
+
+    long epochOf(long nowMillis) {
+        return nowMillis / bucketMillis;
+    }
+
+    /**
+     * 窗口内的笔数（含其他实例）
+     */
+    long count(long nowMillis) {
+        long epoch = epochOf(nowMillis);
+        long total = remoteCount;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(epochs[i], epoch)) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 窗口内的金额（含其他实例）
+     */
+    double amount(long nowMillis) {
+        long epoch = epochOf(nowMillis);
+        double total = remoteAmount;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(epochs[i], epoch)) {
+                total += amounts[i];
+            }
+        }
+        return total;
+    }
+
+    void add(long nowMillis, long count, double amount) {
+        long epoch = epochOf(nowMillis);
+        int slot = (int) (epoch % epochs.length);
+        if (epochs[slot] != epoch) {
+            epochs[slot] = epoch;
+            counts[slot] = 0;
+            amounts[slot] = 0;
+            pendingCounts[slot] = 0;
+            pendingAmounts[slot] = 0;
+        }
+        counts[slot] += count;
+        amounts[slot] += amount;
+        pendingCounts[slot] += count;
+        pendingAmounts[slot] += amount;
+        lastEpoch = epoch;
+    }
+
+    /**
+     * 窗口内有未同步增量的桶号，同步前调用
+     */
+    long[] pendingEpochs(long nowMillis) {
+        long epoch = epochOf(nowMillis);
+        int n = 0;
+        long[] result = new long[epochs.length];
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(epochs[i], epoch) && (pendingCounts[i] != 0 || pendingAmounts[i] != 0)) {
+                result[n++] = epochs[i];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    long pendingCount(long epoch) {
+        int slot = (int) (epoch % epochs.length);
+        return epochs[slot] == epoch ? pendingCounts[slot] : 0;
+    }
+
+    double pendingAmount(long epoch) {
+        int slot = (int) (epoch % epochs.length);
+        return epochs[slot] == epoch ? pendingAmounts[slot] : 0;
+    }
+
+    /**
+     * 增量已写入Redis，从未同步部分扣除（同步期间新增的部分保留）
+     */
+    void synced(long epoch, long count, double amount) {
+        int slot = (int) (epoch % epochs.length);
+        if (epochs[slot] == epoch) {
+            pendingCounts[slot] -= count;
+            pendingAmounts[slot] -= amount;
+        }
+    }
+
+    /**
+     * 用Redis中全部实例的窗口合计扣除本实例的部分，得到其他实例的合计
+     */
+    void setGlobal(long nowMillis, long globalCount, double globalAmount) {
+        // Redis中只包含本实例已同步的部分
+        long epoch = epochOf(nowMillis);
+        long syncedCount = 0;
+        double syncedAmount = 0;
+        for (int i = 0; i < epochs.length; i++) {
+            if (live(epochs[i], epoch)) {
+                syncedCount += counts[i] - pendingCounts[i];
+                syncedAmount += amounts[i] - pendingAmounts[i];
+            }
+        }
+        remoteCount = Math.max(0, globalCount - syncedCount);
+        remoteAmount = Math.max(0, globalAmount - syncedAmount);
+    }
+
+    /**
+     * 最近一个桶也已滑出窗口，且没有其他实例的合计，可以移除
+     */
+    boolean idle(long nowMillis) {
+        return !live(lastEpoch, epochOf(nowMillis)) && remoteCount == 0 && remoteAmount == 0;
+    }
+
+    private boolean live(long bucketEpoch, long currentEpoch) {
+        return bucketEpoch >= 0 && bucketEpoch > currentEpoch - epochs.length && bucketEpoch <= currentEpoch;
+    }
+}
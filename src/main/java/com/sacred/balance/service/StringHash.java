@@ -0,0 +1,26 @@
+package com.sacred.balance.service;
+
+/**
+ * 字符串的64位哈希：逐字符 FNV-1a 后做 murmur3 fmix64 混合，不分配内存；不同种子得到相互独立的哈希
+ */
+final class StringHash {
+
+    static final long SEED_1 = 0x9E3779B97F4A7C15L;
+    static final long SEED_2 = 0xC2B2AE3D27D4EB4FL;
+
+    private StringHash() {}
+
+    static long hash64(CharSequence value, long seed) {
+        long h = seed;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,163 @@
+package com.sacred.balance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本实例见过的交易ID的时间窗口布隆过滤器
+ * 按代轮换：共 GENERATIONS 代，写入当前代，查询所有代；每隔 窗口/(代数-1) 清空最老的一代作为新的当前代，
+ * 因此任一ID至少保留一个幂等窗口（48小时）。mightContain 为 false 表示本实例一定没有领取过该ID。
+ *
+ * 过滤器只记录本实例领取过的交易，其他实例处理的交易不在其中，所以只用于可以跳过的预检查（批量处理前的幂等预判）；
+ * processTransaction 中的领取脚本仍然每次执行，它同时承担加锁，不能由本地结果代替。
+ */
+@Component
+public class TransactionIdFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIdFilter.class);
+
+    private static final int GENERATIONS = 3;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${balance.idempotency.filter.enabled:true}")
+    private boolean enabled;
+
+    // 全部代合计的堆外内存预算
+    @Value("${balance.idempotency.filter.memory-mb:32}")
+    private long memoryMb;
+
+    // 整个窗口（查询所有代）的目标误判率
+    @Value("${balance.idempotency.filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${balance.idempotency.filter.window-hours:48}")
+    private long windowHours;
+
+    private OffHeapBloomFilter[] generations;
+    // 当前代在 generations 中的下标
+    private volatile int current;
+    private volatile long nextRotationMillis;
+    private long rotationIntervalMillis;
+    private long capacityPerGeneration;
+
+    private Counter absentLookups;
+    private Counter maybeLookups;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("balance.idempotency.filter.false-positive-rate must be in (0, 1)");
+        }
+        // 查询要检查所有代，每代的误判率取总目标的 1/代数
+        double generationRate = falsePositiveRate / GENERATIONS;
+        long bitsPerGeneration = memoryMb * 1024 * 1024 * 8 / GENERATIONS;
+        int hashCount = OffHeapBloomFilter.optimalHashCount(generationRate);
+        generations = new OffHeapBloomFilter[GENERATIONS];
+        for (int i = 0; i < GENERATIONS; i++) {
+            generations[i] = new OffHeapBloomFilter(bitsPerGeneration, hashCount);
+        }
+        capacityPerGeneration = OffHeapBloomFilter.capacity(generations[0].bitCount(), generationRate);
+        rotationIntervalMillis = TimeUnit.HOURS.toMillis(windowHours) / (GENERATIONS - 1);
+        nextRotationMillis = System.currentTimeMillis() + rotationIntervalMillis;
+
+        Gauge.builder("balance.idempotency.filter.memory", this, filter -> filter.sizeInBytes())
+            .baseUnit("bytes").description("Off-heap memory held by the transaction id filter").register(meterRegistry);
+        Gauge.builder("balance.idempotency.filter.capacity", this, filter -> filter.capacityPerGeneration)
+            .description("Transaction ids per generation at the configured false positive rate").register(meterRegistry);
+        Gauge.builder("balance.idempotency.filter.insertions", this, filter -> filter.currentGeneration().approximateElementCount())
+            .description("Transaction ids in the current generation").register(meterRegistry);
+        Gauge.builder("balance.idempotency.filter.fpp.configured", this, filter -> filter.falsePositiveRate)
+            .register(meterRegistry);
+        Gauge.builder("balance.idempotency.filter.fpp.estimated", this, TransactionIdFilter::estimatedFalsePositiveRate)
+            .description("False positive rate estimated from the current fill").register(meterRegistry);
+        absentLookups = Counter.builder("balance.idempotency.filter.lookups").tag("result", "absent").register(meterRegistry);
+        maybeLookups = Counter.builder("balance.idempotency.filter.lookups").tag("result", "maybe").register(meterRegistry);
+
+        logger.info("Transaction id filter: {} MB off-heap, {} ids per generation, {} hashes, rotating every {} h",
+                   memoryMb, capacityPerGeneration, hashCount, TimeUnit.MILLISECONDS.toHours(rotationIntervalMillis));
+    }
+
+    /**
+     * 记录本实例领取的交易ID
+     */
+    public void put(String transactionId) {
+        if (!enabled) {
+            return;
+        }
+        long h1 = StringHash.hash64(transactionId, StringHash.SEED_1);
+        long h2 = StringHash.hash64(transactionId, StringHash.SEED_2) | 1;
+        currentGeneration().put(h1, h2);
+    }
+
+    /**
+     * false 表示本实例一定没有见过该ID；关闭时总是返回 true
+     */
+    public boolean mightContain(String transactionId) {
+        if (!enabled) {
+            return true;
+        }
+        long h1 = StringHash.hash64(transactionId, StringHash.SEED_1);
+        long h2 = StringHash.hash64(transactionId, StringHash.SEED_2) | 1;
+        for (OffHeapBloomFilter generation : generations) {
+            if (generation.mightContain(h1, h2)) {
+                maybeLookups.increment();
+                return true;
+            }
+        }
+        absentLookups.increment();
+        return false;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void rotateIfDue() {
+        if (enabled && System.currentTimeMillis() >= nextRotationMillis) {
+            rotate();
+        }
+    }
+
+    /**
+     * 清空最老的一代并切换为当前代；单线程调用，清空期间最老一代中的ID（已超过窗口）可能查不到
+     */
+    synchronized void rotate() {
+        int next = (current + 1) % GENERATIONS;
+        generations[next].clear();
+        current = next;
+        nextRotationMillis = System.currentTimeMillis() + rotationIntervalMillis;
+        logger.info("Transaction id filter rotated, estimated false positive rate {}", estimatedFalsePositiveRate());
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (OffHeapBloomFilter generation : generations) {
+            bytes += generation.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    public double estimatedFalsePositiveRate() {
+        double rate = 0;
+        for (OffHeapBloomFilter generation : generations) {
+            rate += generation.expectedFalsePositiveRate();
+        }
+        return Math.min(1, rate);
+    }
+
+    private OffHeapBloomFilter currentGeneration() {
+        return generations[current];
+    }
+}
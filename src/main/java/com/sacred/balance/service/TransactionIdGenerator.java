@@ -0,0 +1,114 @@
+package com.sacred.balance.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按时间有序的交易ID生成器（UUIDv7格式）
+ * 48位毫秒时间戳 + 12位单调序号 + 10位节点号 + 52位随机数；通过CAS推进，不使用SecureRandom，不阻塞
+ * 节点号由 TransactionNodeIdAllocator 在集群内租约分配，时间戳 + 序号 + 节点号保证跨Pod不重复
+ */
+@Component
+public class TransactionIdGenerator {
+
+    private static final int SEQUENCE_BITS = 12;
+    public static final int NODE_ID_BITS = 10;
+    public static final int MAX_NODE_ID = (1 << NODE_ID_BITS) - 1;
+    private static final int RANDOM_BITS = 52;
+
+    // 上一次分配的 (毫秒时间戳 << 12 | 序号)
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    // 未分配到租约前使用随机节点号
+    private volatile int nodeId = ThreadLocalRandom.current().nextInt(MAX_NODE_ID + 1);
+
+    public String nextId() {
+        long timeAndSequence = nextTimeAndSequence();
+        long timestamp = timeAndSequence >>> SEQUENCE_BITS;
+        long sequence = timeAndSequence & ((1L << SEQUENCE_BITS) - 1);
+
+        long mostSigBits = (timestamp << 16) | 0x7000L | sequence;
+        long leastSigBits = 0x8000000000000000L
+            | ((long) nodeId << RANDOM_BITS)
+            | (ThreadLocalRandom.current().nextLong() & ((1L << RANDOM_BITS) - 1));
+        return new UUID(mostSigBits, leastSigBits).toString();
+    }
+
+    public int getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id out of range: " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * 同一毫秒内递增序号，序号用尽或时钟回拨时顺延，保证单调递增
+     */
+    private long nextTimeAndSequence() {
+        while (true) {
+            long last = lastTimeAndSequence.get();
+            long now = System.currentTimeMillis() << SEQUENCE_BITS;
+            long next = now > last ? now : last + 1;
+            if (lastTimeAndSequence.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * 从ID中解析生成时间（毫秒），非UUIDv7格式（如客户端自带ID）返回 -1
+     */
+    public static long epochMillisOf(String transactionId) {
+        UUID uuid = parseV7(transactionId);
+        return uuid != null ? uuid.getMostSignificantBits() >>> 16 : -1;
+    }
+
+    /**
+     * 从ID中解析节点号，非UUIDv7格式返回 -1
+     */
+    public static int nodeIdOf(String transactionId) {
+        UUID uuid = parseV7(transactionId);
+        return uuid != null ? (int) ((uuid.getLeastSignificantBits() >>> RANDOM_BITS) & MAX_NODE_ID) : -1;
+    }
+
+    /**
+     * 从ID中解析所属时间桶的起始时间（本地时区），支持 DAYS 和 MONTHS；非UUIDv7格式返回 null
+     */
+    public static LocalDateTime timeBucketOf(String transactionId, ChronoUnit unit) {
+        long epochMillis = epochMillisOf(transactionId);
+        if (epochMillis < 0) {
+            return null;
+        }
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+        if (unit == ChronoUnit.MONTHS) {
+            return time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+        }
+        if (unit == ChronoUnit.DAYS) {
+            return time.truncatedTo(ChronoUnit.DAYS);
+        }
+        throw new IllegalArgumentException("Unsupported time bucket: " + unit);
+    }
+
+    private static UUID parseV7(String transactionId) {
+        if (transactionId == null || transactionId.length() != 36 || transactionId.charAt(14) != '7') {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(transactionId);
+            return uuid.version() == 7 && uuid.variant() == 2 ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
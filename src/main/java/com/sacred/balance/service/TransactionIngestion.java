@@ -0,0 +1,115 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单笔转账的接入环（balance.ingestion.enabled=true 时生效）
+ * 请求线程把转账发布到按转出账户分区的环上并等待结果；每个分区由一个消费线程按顺序记账，
+ * 同一转出账户的转账总在同一线程上串行执行，本实例内不再有多笔扣款排队等待该账户的行锁。
+ * 消费线程同步执行整笔 processTransaction（Redis领取、数据库事务和行锁），同时在途的转账数不超过分区数，
+ * 吞吐上限约为 分区数 / 单笔耗时，分区数应按实测耗时而不是CPU核数设置。
+ */
+@Component
+public class TransactionIngestion {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionIngestion.class);
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${balance.ingestion.enabled:false}")
+    private boolean enabled;
+
+    // 分区数（消费线程数，即同时在途的转账数上限），0表示CPU核数；每个消费线程执行时占用一个交互通道名额
+    @Value("${balance.ingestion.partitions:0}")
+    private int partitions;
+
+    // 每个分区的容量，满时拒绝
+    @Value("${balance.ingestion.capacity:4096}")
+    private int capacity;
+
+    // 请求线程等待结果的最长时间，超时后转账仍会执行，结果可通过交易结果接口查询
+    @Value("${balance.ingestion.reply-timeout-millis:5000}")
+    private long replyTimeoutMillis;
+
+    private PartitionedRing<Transaction, TransactionResult> ring;
+    private Counter rejections;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        int partitionCount = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        ring = new PartitionedRing<>("ingest", partitionCount, capacity,
+            transaction -> executionLanes.interactive(transaction, () -> transactionService.processTransaction(transaction)));
+
+        Gauge.builder("balance.ingestion.queue.size", ring, PartitionedRing::size)
+            .description("Transfers waiting in the ingestion ring").register(meterRegistry);
+        Gauge.builder("balance.ingestion.queue.capacity", ring, PartitionedRing::capacity)
+            .description("Ingestion ring capacity").register(meterRegistry);
+        rejections = Counter.builder("balance.ingestion.rejections")
+            .description("Transfers rejected because their partition was full").register(meterRegistry);
+
+        logger.info("Transaction ingestion ring: {} partitions of {} transfers", partitionCount, capacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (ring != null) {
+            ring.close(replyTimeoutMillis);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 发布转账并等待所在分区的消费线程记账完成
+     */
+    public TransactionResult process(Transaction transaction) {
+        String partitionKey = transaction.getSourceAccount() != null ? transaction.getSourceAccount() : "";
+        CompletableFuture<TransactionResult> reply = ring.publish(partitionKey, transaction);
+        if (reply == null) {
+            rejections.increment();
+            return new TransactionResult(transaction.getTransactionId(), false, "Server busy, retry later", "503");
+        }
+        try {
+            return reply.get(replyTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return new TransactionResult(transaction.getTransactionId(), false,
+                "Transaction is still being processed, query its result later", "504");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new TransactionResult(transaction.getTransactionId(), false, "Interrupted", "503");
+        } catch (ExecutionException e) {
+            logger.error("Ingested transaction failed. Transaction ID: {}, Error: {}",
+                        transaction.getTransactionId(), e.getCause().getMessage(), e.getCause());
+            return new TransactionResult(transaction.getTransactionId(), false,
+                "Failed to process transaction: " + e.getCause().getMessage(), "500");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.sacred.balance.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 交易相关Redis键及状态值的字节编码
+ * 每笔交易只构造一次键，直接生成字节数组交给连接执行，不经过字符串序列化
+ * 交易ID用 {} 包裹作为 hash tag，同一交易的锁、幂等标记和开始时间落在 Redis Cluster 的同一个槽，可在一个脚本或 MGET 中操作；
+ * 不同交易分散到各个槽，幂等键空间随集群分片水平扩展
+ */
+public final class TransactionKeys {
+
+    // 交易幂等性键前缀
+    public static final String TRANSACTION_IDEMPOTENT_KEY_PREFIX = "transaction:idempotent:";
+    // 交易处理锁键前缀
+    public static final String TRANSACTION_LOCK_KEY_PREFIX = "transaction:lock:";
+    // 处理开始时间键后缀
+    public static final String START_TIME_KEY_SUFFIX = ":starttime";
+
+    public static final byte[] PROCESSING = bytes("processing");
+    public static final byte[] PROCESSED = bytes("processed");
+    public static final byte[] LOCKED = bytes("locked");
+
+    private static final byte[] IDEMPOTENT_PREFIX = bytes(TRANSACTION_IDEMPOTENT_KEY_PREFIX + "{");
+    private static final byte[] LOCK_PREFIX = bytes(TRANSACTION_LOCK_KEY_PREFIX + "{");
+    private static final byte[] TAG_END = bytes("}");
+    private static final byte[] START_TIME_SUFFIX = bytes("}" + START_TIME_KEY_SUFFIX);
+    private static final byte[] LEGACY_IDEMPOTENT_PREFIX = bytes(TRANSACTION_IDEMPOTENT_KEY_PREFIX);
+    private static final byte[] LEGACY_START_TIME_SUFFIX = bytes(START_TIME_KEY_SUFFIX);
+    private static final byte[] EMPTY = new byte[0];
+
+    private final String transactionId;
+    private final byte[] lock;
+    private final byte[] idempotent;
+    private final byte[] startTime;
+
+    private TransactionKeys(String transactionId) {
+        this.transactionId = transactionId;
+        this.lock = concat(LOCK_PREFIX, transactionId, TAG_END);
+        this.idempotent = concat(IDEMPOTENT_PREFIX, transactionId, TAG_END);
+        this.startTime = concat(IDEMPOTENT_PREFIX, transactionId, START_TIME_SUFFIX);
+    }
+
+    public static TransactionKeys of(String transactionId) {
+        return new TransactionKeys(transactionId);
+    }
+
+    public byte[] lock() {
+        return lock;
+    }
+
+    public byte[] idempotent() {
+        return idempotent;
+    }
+
+    public byte[] startTime() {
+        return startTime;
+    }
+
+    /**
+     * 升级前不带 hash tag 的幂等键，只在过渡期内回查，按需构造
+     */
+    public byte[] legacyIdempotent() {
+        return concat(LEGACY_IDEMPOTENT_PREFIX, transactionId, EMPTY);
+    }
+
+    public byte[] legacyStartTime() {
+        return concat(LEGACY_IDEMPOTENT_PREFIX, transactionId, LEGACY_START_TIME_SUFFIX);
+    }
+
+    /**
+     * 从幂等键中取出交易ID，兼容带与不带 hash tag 两种格式
+     */
+    public static String transactionIdOf(String idempotentKey) {
+        String id = idempotentKey.substring(TRANSACTION_IDEMPOTENT_KEY_PREFIX.length());
+        if (id.length() >= 2 && id.charAt(0) == '{' && id.charAt(id.length() - 1) == '}') {
+            return id.substring(1, id.length() - 1);
+        }
+        return id;
+    }
+
+    /**
+     * 处理开始时间以毫秒时间戳保存；兼容旧版本写入的ISO本地时间
+     */
+    public static byte[] encodeStartTime(long epochMillis) {
+        return bytes(Long.toString(epochMillis));
+    }
+
+    public static long parseStartTimeMillis(String value) {
+        if (!value.isEmpty() && Character.isDigit(value.charAt(0)) && value.indexOf('T') < 0) {
+            return Long.parseLong(value);
+        }
+        return LocalDateTime.parse(value).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    public static long parseStartTimeMillis(byte[] value) {
+        return parseStartTimeMillis(new String(value, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 前缀 + 交易ID + 后缀 一次分配；ASCII交易ID逐字节写入，非ASCII退化为UTF-8编码
+     */
+    private static byte[] concat(byte[] prefix, String transactionId, byte[] suffix) {
+        int length = transactionId.length();
+        byte[] key = new byte[prefix.length + length + suffix.length];
+        System.arraycopy(prefix, 0, key, 0, prefix.length);
+        for (int i = 0; i < length; i++) {
+            char c = transactionId.charAt(i);
+            if (c >= 0x80) {
+                byte[] encoded = transactionId.getBytes(StandardCharsets.UTF_8);
+                key = new byte[prefix.length + encoded.length + suffix.length];
+                System.arraycopy(prefix, 0, key, 0, prefix.length);
+                System.arraycopy(encoded, 0, key, prefix.length, encoded.length);
+                System.arraycopy(suffix, 0, key, prefix.length + encoded.length, suffix.length);
+                return key;
+            }
+            key[prefix.length + i] = (byte) c;
+        }
+        System.arraycopy(suffix, 0, key, prefix.length + length, suffix.length);
+        return key;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
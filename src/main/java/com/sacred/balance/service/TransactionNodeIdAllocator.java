@@ -0,0 +1,141 @@
+package com.sacred.balance.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 交易ID节点号分配
+ * 配置了 balance.id.node-id 时直接使用；否则在Redis中以 SETNX + 过期时间租用一个空闲节点号并定期续约，
+ * 保证同一时刻各Pod的节点号互不相同
+ */
+@Component
+public class TransactionNodeIdAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionNodeIdAllocator.class);
+
+    // 仍由本实例持有时才续约/释放，检查与操作原子执行，不会误续或误删其他实例刚租到的节点号
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+        "  return redis.call('EXPIRE', KEYS[1], ARGV[2]) " +
+        "end " +
+        "return 0", Long.class);
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+        "  return redis.call('DEL', KEYS[1]) " +
+        "end " +
+        "return 0", Long.class);
+
+    // 节点号租约键前缀
+    private static final String NODE_LEASE_KEY_PREFIX = "transaction:id:node:";
+    // 租约时长（秒），续约间隔为其三分之一
+    private static final long LEASE_SECONDS = 60;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+
+    // 固定节点号，小于0表示通过Redis租约分配
+    @Value("${balance.id.node-id:-1}")
+    private int configuredNodeId;
+
+    // 本实例的租约持有者标识
+    private final String leaseOwner = UUID.randomUUID().toString();
+
+    private volatile int leasedNodeId = -1;
+
+    @PostConstruct
+    public void init() {
+        if (configuredNodeId >= 0) {
+            transactionIdGenerator.setNodeId(configuredNodeId);
+            logger.info("Using configured transaction id node: {}", configuredNodeId);
+            return;
+        }
+        try {
+            acquire();
+        } catch (Exception e) {
+            // Redis不可用时先使用随机节点号启动，续约任务会继续尝试租用
+            logger.warn("Failed to lease transaction id node, using random node {}: {}",
+                       transactionIdGenerator.getNodeId(), e.getMessage());
+        }
+    }
+
+    /**
+     * 定期续约；租约已丢失（如长时间GC或Redis故障转移）时重新租用
+     */
+    @Scheduled(fixedDelay = LEASE_SECONDS * 1000 / 3)
+    public void renew() {
+        if (configuredNodeId >= 0) {
+            return;
+        }
+        try {
+            int nodeId = leasedNodeId;
+            if (nodeId >= 0) {
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(leaseKey(nodeId)),
+                                                           leaseOwner, Long.toString(LEASE_SECONDS));
+                if (renewed != null && renewed == 1) {
+                    return;
+                }
+                logger.warn("Lost lease on transaction id node {}, re-acquiring", nodeId);
+                leasedNodeId = -1;
+            }
+            acquire();
+        } catch (Exception e) {
+            logger.warn("Failed to renew transaction id node lease: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void release() {
+        int nodeId = leasedNodeId;
+        if (nodeId < 0) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey(nodeId)), leaseOwner);
+        } catch (Exception e) {
+            logger.debug("Failed to release transaction id node lease: {}", e.getMessage());
+        }
+    }
+
+    public int getLeasedNodeId() {
+        return leasedNodeId;
+    }
+
+    /**
+     * 从随机位置开始依次尝试租用空闲节点号
+     */
+    private void acquire() {
+        int start = ThreadLocalRandom.current().nextInt(TransactionIdGenerator.MAX_NODE_ID + 1);
+        for (int i = 0; i <= TransactionIdGenerator.MAX_NODE_ID; i++) {
+            int nodeId = (start + i) & TransactionIdGenerator.MAX_NODE_ID;
+            Boolean acquired = stringRedisTemplate.opsForValue()
+                .setIfAbsent(leaseKey(nodeId), leaseOwner, LEASE_SECONDS, TimeUnit.SECONDS);
+            if (Boolean.TRUE.equals(acquired)) {
+                leasedNodeId = nodeId;
+                transactionIdGenerator.setNodeId(nodeId);
+                logger.info("Leased transaction id node: {}", nodeId);
+                return;
+            }
+        }
+        logger.warn("No free transaction id node available, keeping node {}", transactionIdGenerator.getNodeId());
+    }
+
+    private static String leaseKey(int nodeId) {
+        return NODE_LEASE_KEY_PREFIX + nodeId;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.OutboxEvent;
+import com.sacred.balance.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务发件箱写入
+ * Redis副作用（缓存、幂等标记、变更事件）不再在事务内直接执行，而是随业务数据写入发件箱表，
+ * 与余额更新同时提交或回滚；提交后唤醒本实例的中继尽快同步
+ */
+@Component
+public class TransactionOutbox {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private LocalBalanceStore localBalanceStore;
+
+    /**
+     * 记录余额变更（账户为更新后的状态）
+     */
+    public void balanceChanged(Account account, double delta, String transactionId) {
+        append(OutboxEvent.balanceChange(account, delta, transactionId));
+        if (localBalanceStore.isEnabled()) {
+            // 实体在事务内可能继续变化，提交后写入的是此刻的快照
+            Account snapshot = new Account(account.getAccountNumber(), account.getBalance());
+            snapshot.setId(account.getId());
+            snapshot.setVersion(account.getVersion());
+            afterCommit(() -> localBalanceStore.put(snapshot));
+        }
+    }
+
+    /**
+     * 记录交易已处理完成
+     */
+    public void transactionProcessed(String transactionId) {
+        append(OutboxEvent.transactionProcessed(transactionId));
+    }
+
+    private void append(OutboxEvent event) {
+        outboxEventRepository.save(event);
+        afterCommit(outboxRelay::wakeUp);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.PartitionMaintenanceResult;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 交易表分区维护
+ * 按月或按天预创建后续分区；超过保留期的分区先 DETACH，再以 COPY TO STDOUT 导出为 gzip 压缩的CSV归档到本地磁盘，最后删除
+ * 仅当 transactions 已通过 V2__transactions_partitioning.sql 改为分区表时生效，多个Pod之间通过Redis锁保证同一时刻只有一个执行
+ */
+@Service
+public class TransactionPartitionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionPartitionService.class);
+
+    private static final String PARENT_TABLE = "transactions";
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final String LEGACY_PARTITION = "transactions_legacy";
+
+    // 分区维护锁
+    private static final String MAINTENANCE_LOCK_KEY = "transaction:partition:lock";
+    private static final long MAINTENANCE_LOCK_MINUTES = 30;
+
+    private static final String IS_PARTITIONED_SQL =
+        "SELECT c.relkind = 'p' FROM pg_class c WHERE c.oid = to_regclass(?)";
+    private static final String LIST_PARTITIONS_SQL =
+        "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+        "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)";
+    // 已 DETACH 但尚未归档删除的分区（上次维护中途失败）
+    private static final String LIST_DETACHED_SQL =
+        "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+        "WHERE n.nspname = current_schema() AND c.relkind = 'r' AND NOT c.relispartition " +
+        "AND (c.relname LIKE 'transactions\\_p%' OR c.relname = '" + LEGACY_PARTITION + "')";
+    private static final Pattern UPPER_BOUND_PATTERN = Pattern.compile("TO \\('([^']+)'\\)");
+    private static final DateTimeFormatter BOUND_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Value("${balance.partitioning.enabled:false}")
+    private boolean enabled;
+
+    // monthly 或 daily，需与已有分区保持一致
+    @Value("${balance.partitioning.granularity:monthly}")
+    private String granularity;
+
+    // 预创建的后续分区数量
+    @Value("${balance.partitioning.premake:3}")
+    private int premake;
+
+    // 保留的分区数量（含当前分区），更早的分区归档后删除
+    @Value("${balance.partitioning.retention:13}")
+    private int retention;
+
+    @Value("${balance.partitioning.archive-dir:/var/lib/balance/archive}")
+    private String archiveDir;
+
+    /**
+     * 启动后立即检查一次，保证当前及后续分区存在
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        maintainPeriodically();
+    }
+
+    @Scheduled(cron = "${balance.partitioning.cron:0 15 1 * * *}")
+    public void maintainPeriodically() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            maintain();
+        } catch (Exception e) {
+            logger.error("Transaction partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 执行一次分区维护，其他实例正在执行时直接返回
+     */
+    public PartitionMaintenanceResult maintain() {
+        long startTime = System.currentTimeMillis();
+        PartitionMaintenanceResult result = new PartitionMaintenanceResult();
+
+        String lockOwner = UUID.randomUUID().toString();
+        Boolean locked = stringRedisTemplate.opsForValue()
+            .setIfAbsent(MAINTENANCE_LOCK_KEY, lockOwner, MAINTENANCE_LOCK_MINUTES, TimeUnit.MINUTES);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.info("Transaction partition maintenance is running on another instance, skipping");
+            return result;
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            if (!connection.isWrapperFor(PGConnection.class) || !isPartitioned(connection)) {
+                logger.debug("Table {} is not partitioned, skipping partition maintenance", PARENT_TABLE);
+                return result;
+            }
+            result.setPartitioned(true);
+
+            createUpcomingPartitions(connection, result);
+            archiveExpiredPartitions(connection, result);
+        } catch (SQLException | IOException e) {
+            throw new BusinessException(500, "Transaction partition maintenance failed: " + e.getMessage(), e);
+        } finally {
+            if (lockOwner.equals(stringRedisTemplate.opsForValue().get(MAINTENANCE_LOCK_KEY))) {
+                stringRedisTemplate.delete(MAINTENANCE_LOCK_KEY);
+            }
+            result.setElapsedMillis(System.currentTimeMillis() - startTime);
+        }
+
+        logger.info("Transaction partition maintenance completed. Created: {}, Archived: {}, Elapsed: {} ms",
+                   result.getCreatedPartitions(), result.getArchivedPartitions(), result.getElapsedMillis());
+        return result;
+    }
+
+    private boolean isPartitioned(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(IS_PARTITIONED_SQL)) {
+            statement.setString(1, PARENT_TABLE);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * 创建当前及后续 premake 个分区；与已有分区范围重叠（如切换分区粒度）时跳过
+     */
+    private void createUpcomingPartitions(Connection connection, PartitionMaintenanceResult result)
+            throws SQLException {
+        Map<String, LocalDateTime> existing = listPartitions(connection);
+        LocalDateTime bucket = bucketStart(LocalDateTime.now());
+        for (int i = 0; i <= premake; i++, bucket = nextBucket(bucket)) {
+            String name = partitionName(bucket);
+            if (existing.containsKey(name)) {
+                continue;
+            }
+            // 当前时间所在区间已被历史分区覆盖
+            if (coveredBy(existing, bucket)) {
+                continue;
+            }
+            String sql = String.format(
+                "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                name, PARENT_TABLE, BOUND_FORMAT.format(bucket), BOUND_FORMAT.format(nextBucket(bucket)));
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+                result.getCreatedPartitions().add(name);
+                logger.info("Created transaction partition {}", name);
+            } catch (SQLException e) {
+                logger.warn("Failed to create transaction partition {}: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 上界早于保留期起点的分区：DETACH -> 导出归档 -> DROP；上次中途失败遗留的已 DETACH 分区一并处理
+     */
+    private void archiveExpiredPartitions(Connection connection, PartitionMaintenanceResult result)
+            throws SQLException, IOException {
+        LocalDateTime cutoff = bucketStart(LocalDateTime.now());
+        for (int i = 1; i < retention; i++) {
+            cutoff = previousBucket(cutoff);
+        }
+
+        for (Map.Entry<String, LocalDateTime> partition : listPartitions(connection).entrySet()) {
+            LocalDateTime upperBound = partition.getValue();
+            if (upperBound == null || upperBound.isAfter(cutoff)) {
+                continue;
+            }
+            try (Statement statement = connection.createStatement()) {
+                // 避免长时间阻塞父表上的读写，拿不到锁时留到下次执行
+                statement.execute("SET lock_timeout = '5s'");
+                try {
+                    statement.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition.getKey());
+                } finally {
+                    // 连接归还连接池后会被复用，失败时也要恢复
+                    statement.execute("RESET lock_timeout");
+                }
+                logger.info("Detached transaction partition {}", partition.getKey());
+            } catch (SQLException e) {
+                logger.warn("Failed to detach transaction partition {}: {}", partition.getKey(), e.getMessage());
+            }
+        }
+
+        List<String> detached = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LIST_DETACHED_SQL)) {
+            while (rs.next()) {
+                detached.add(rs.getString(1));
+            }
+        }
+        for (String table : detached) {
+            archive(connection, table);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE " + table);
+            }
+            result.getArchivedPartitions().add(table);
+        }
+    }
+
+    /**
+     * COPY TO STDOUT 流式导出到 <archive-dir>/<table>.csv.gz，先写临时文件再原子重命名
+     */
+    private void archive(Connection connection, String table) throws SQLException, IOException {
+        Path directory = Paths.get(archiveDir);
+        Files.createDirectories(directory);
+        Path target = directory.resolve(table + ".csv.gz");
+        Path temp = directory.resolve(table + ".csv.gz.tmp");
+
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        long rows;
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp), 1 << 16)) {
+            rows = copyManager.copyOut("COPY " + table + " TO STDOUT WITH (FORMAT csv, HEADER)", out);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        logger.info("Archived transaction partition {} ({} rows) to {}", table, rows, target);
+    }
+
+    /**
+     * 分区名 -> 分区上界（MAXVALUE 时为 null）
+     */
+    private Map<String, LocalDateTime> listPartitions(Connection connection) throws SQLException {
+        Map<String, LocalDateTime> partitions = new LinkedHashMap<>();
+        try (PreparedStatement statement = connection.prepareStatement(LIST_PARTITIONS_SQL)) {
+            statement.setString(1, PARENT_TABLE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Matcher matcher = UPPER_BOUND_PATTERN.matcher(rs.getString(2));
+                    partitions.put(rs.getString(1), matcher.find() ? parseBound(matcher.group(1)) : null);
+                }
+            }
+        }
+        return partitions;
+    }
+
+    private boolean coveredBy(Map<String, LocalDateTime> partitions, LocalDateTime bucket) {
+        LocalDateTime legacyUpperBound = partitions.get(LEGACY_PARTITION);
+        return legacyUpperBound != null && !legacyUpperBound.isBefore(nextBucket(bucket));
+    }
+
+    private boolean daily() {
+        return "daily".equalsIgnoreCase(granularity);
+    }
+
+    private LocalDateTime bucketStart(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        return (daily() ? date : date.withDayOfMonth(1)).atStartOfDay();
+    }
+
+    private LocalDateTime nextBucket(LocalDateTime bucket) {
+        return daily() ? bucket.plusDays(1) : bucket.plusMonths(1);
+    }
+
+    private LocalDateTime previousBucket(LocalDateTime bucket) {
+        return daily() ? bucket.minusDays(1) : bucket.minusMonths(1);
+    }
+
+    private String partitionName(LocalDateTime bucket) {
+        return PARTITION_PREFIX + bucket.format(DateTimeFormatter.ofPattern(daily() ? "yyyyMMdd" : "yyyyMM"));
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        // pg_get_expr 输出形如 2026-11-01 00:00:00，可能带小数秒
+        int dot = value.indexOf('.');
+        return LocalDateTime.parse(dot > 0 ? value.substring(0, dot) : value, BOUND_FORMAT);
+    }
+}
@@ -1,14 +1,23 @@
 package com.sacred.balance.service;
 
+import com.sacred.balance.repository.TransactionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisClusterNode;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TransactionRecoveryService {
@@ -18,10 +27,16 @@ public class TransactionRecoveryService {
     @Autowired
     private RedisTemplate<String, String> stringRedisTemplate;
 
+    @Autowired
+    private TransactionRepository transactionRepository;
+
     // 交易幂等性键前缀
-    private static final String TRANSACTION_IDEMPOTENT_KEY_PREFIX = "transaction:idempotent:";
+    private static final String TRANSACTION_IDEMPOTENT_KEY_PREFIX = TransactionKeys.TRANSACTION_IDEMPOTENT_KEY_PREFIX;
     // 处理锁超时时间（5分钟）
     private static final int PROCESSING_LOCK_TIMEOUT_MINUTES = 5;
+    private static final long PROCESSING_LOCK_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(PROCESSING_LOCK_TIMEOUT_MINUTES);
+    // 每次 SCAN 的提示数量
+    private static final long SCAN_COUNT = 1000;
 
 
     /**
@@ -39,7 +54,7 @@ public class TransactionRecoveryService {
     public void recoverStaleTransactions() {
         try {
             // 查找所有处理中的交易
-            Set<String> keys = stringRedisTemplate.keys(TRANSACTION_IDEMPOTENT_KEY_PREFIX + "*");
+            Set<String> keys = scanIdempotentKeys();
             if (keys == null || keys.isEmpty()) {
                 logger.debug("No transaction keys found for recovery");
                 return;
@@ -50,20 +65,28 @@ public class TransactionRecoveryService {
                 String value = stringRedisTemplate.opsForValue().get(key);
                 if ("processing".equals(value)) {
                     // 检查是否超时
-                    String startTimeKey = key + ":starttime";
+                    String startTimeKey = key + TransactionKeys.START_TIME_KEY_SUFFIX;
                     String startTimeStr = stringRedisTemplate.opsForValue().get(startTimeKey);
 
                     if (startTimeStr != null) {
                         try {
-                            LocalDateTime startTime = LocalDateTime.parse(startTimeStr);
-                            LocalDateTime now = LocalDateTime.now();
-                            long minutesElapsed = java.time.Duration.between(startTime, now).toMinutes();
+                            long elapsedMillis = System.currentTimeMillis()
+                                - TransactionKeys.parseStartTimeMillis(startTimeStr);
 
-                            if (minutesElapsed > PROCESSING_LOCK_TIMEOUT_MINUTES) {
+                            if (elapsedMillis > PROCESSING_LOCK_TIMEOUT_MILLIS) {
+                                String transactionId = TransactionKeys.transactionIdOf(key);
+                                if (transactionRepository.existsByTransactionId(transactionId)) {
+                                    // 已提交但发件箱中继未能写入标记，补写“已处理”，不能清理后被重复处理
+                                    stringRedisTemplate.opsForValue().set(key, "processed",
+                                        TransactionService.IDEMPOTENT_EXPIRATION.getExpirationTimeInMilliseconds(),
+                                        TimeUnit.MILLISECONDS);
+                                    stringRedisTemplate.delete(startTimeKey);
+                                    continue;
+                                }
                                 // 超时，清理状态
                                 stringRedisTemplate.delete(key);
                                 stringRedisTemplate.delete(startTimeKey);
-                                logger.info("Recovered stale transaction: {}", key.replace(TRANSACTION_IDEMPOTENT_KEY_PREFIX, ""));
+                                logger.info("Recovered stale transaction: {}", TransactionKeys.transactionIdOf(key));
                                 recoveredCount++;
                             }
                         } catch (Exception e) {
@@ -87,4 +110,33 @@ public class TransactionRecoveryService {
             logger.error("Error during transaction recovery: {}", e.getMessage(), e);
         }
     }
+
+    /**
+     * 用 SCAN 分批遍历幂等键（含带与不带 hash tag 的两种格式），避免 KEYS 阻塞Redis；
+     * 集群模式下键分散在各分片，逐个主节点遍历
+     */
+    private Set<String> scanIdempotentKeys() {
+        ScanOptions options = ScanOptions.scanOptions()
+            .match(TRANSACTION_IDEMPOTENT_KEY_PREFIX + "*")
+            .count(SCAN_COUNT)
+            .build();
+        Set<String> keys = new HashSet<>();
+        RedisConnectionFactory connectionFactory = stringRedisTemplate.getConnectionFactory();
+        if (connectionFactory instanceof LettuceConnectionFactory lettuce && lettuce.isClusterAware()) {
+            try (RedisClusterConnection connection = connectionFactory.getClusterConnection()) {
+                for (RedisClusterNode node : connection.clusterGetNodes()) {
+                    if (node.isMaster()) {
+                        try (Cursor<byte[]> cursor = connection.scan(node, options)) {
+                            cursor.forEachRemaining(key -> keys.add(new String(key, StandardCharsets.UTF_8)));
+                        }
+                    }
+                }
+            }
+        } else {
+            try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+                cursor.forEachRemaining(keys::add);
+            }
+        }
+        return keys;
+    }
 }
@@ -5,21 +5,36 @@ import com.sacred.balance.model.Account;
 import com.sacred.balance.model.Transaction;
 import com.sacred.balance.model.TransactionResult;
 import com.sacred.balance.model.BatchResult;
+import com.sacred.balance.repository.AccountRepository;
 import com.sacred.balance.repository.TransactionRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
 public class TransactionService {
@@ -32,188 +47,153 @@ public class TransactionService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private AccountRepository accountRepository;
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired
     private RedisTemplate<String, String> stringRedisTemplate;
 
-    // 交易幂等性键前缀
-    private static final String TRANSACTION_IDEMPOTENT_KEY_PREFIX = "transaction:idempotent:";
-    // 交易处理锁键前缀
-    private static final String TRANSACTION_LOCK_KEY_PREFIX = "transaction:lock:";
-    // 交易结果缓存键前缀
-    private static final String TRANSACTION_RESULT_KEY_PREFIX = "transaction:result:";
+    @Autowired
+    private TransactionIdGenerator transactionIdGenerator;
+
+    @Autowired
+    private TransactionOutbox transactionOutbox;
+
+    @Autowired
+    private TransactionIdFilter transactionIdFilter;
+
+    @Autowired
+    private VelocityLimiter velocityLimiter;
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     // 幂等性键过期时间（48小时），该时间内已完成日间清算
     private static final int IDEMPOTENT_KEY_EXPIRE_HOURS = 48;
     // 处理锁超时时间（5分钟）
     private static final int PROCESSING_LOCK_TIMEOUT_MINUTES = 5;
+    private static final long PROCESSING_LOCK_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(PROCESSING_LOCK_TIMEOUT_MINUTES);
+
+    // 按ID时间窗口查询时两端放宽的时间，容忍节点间时钟偏差
+    private static final long LOOKUP_WINDOW_SLACK_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    static final String ALREADY_PROCESSED = "Already processed";
+
+    static final Expiration IDEMPOTENT_EXPIRATION = Expiration.from(IDEMPOTENT_KEY_EXPIRE_HOURS, TimeUnit.HOURS);
+
+    /**
+     * 领取交易：SET NX 获取锁，失败返回 {0}；已处理返回 {1}；处理中返回 {2, 开始时间}，状态不变；
+     * 否则写入处理中标记和开始时间，返回 {3}。三个键带相同 hash tag，集群模式下同槽执行
+     * KEYS[1]=锁 KEYS[2]=幂等标记 KEYS[3]=开始时间 ARGV[1]=锁过期毫秒 ARGV[2]=幂等过期毫秒 ARGV[3]=当前毫秒
+     */
+    @SuppressWarnings("unchecked")
+    private static final DefaultRedisScript<List<Object>> CLAIM_SCRIPT = new DefaultRedisScript<>(
+        "if not redis.call('SET', KEYS[1], 'locked', 'NX', 'PX', ARGV[1]) then return {0} end " +
+        "local state = redis.call('GET', KEYS[2]) " +
+        "if state == 'processed' then return {1} end " +
+        "if state == 'processing' then return {2, redis.call('GET', KEYS[3])} end " +
+        "redis.call('SET', KEYS[2], 'processing', 'PX', ARGV[2]) " +
+        "redis.call('SET', KEYS[3], ARGV[3], 'PX', ARGV[2]) " +
+        "return {3}", (Class<List<Object>>) (Class<?>) List.class);
+    private static final byte[] CLAIM_SCRIPT_BODY = CLAIM_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8);
+    private static final long CLAIM_BUSY = 0;
+    private static final long CLAIM_PROCESSED = 1;
+    private static final long CLAIM_PROCESSING = 2;
+    private static final long CLAIM_ACQUIRED = 3;
+    private static final byte[] LOCK_EXPIRE_MILLIS = Long.toString(PROCESSING_LOCK_TIMEOUT_MILLIS)
+        .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] IDEMPOTENT_EXPIRE_MILLIS = Long.toString(TimeUnit.HOURS.toMillis(IDEMPOTENT_KEY_EXPIRE_HOURS))
+        .getBytes(StandardCharsets.UTF_8);
+
+    // 升级到带 hash tag 的键后，幂等过期时间内仍回查旧格式的幂等键；过渡期结束后关闭，省去每笔交易的额外读取
+    @Value("${balance.redis.legacy-idempotency-keys:true}")
+    private boolean legacyKeyFallback;
 
     /**
      * 处理交易，依赖AccountService的重试机制，支持幂等性
+     * 数据库事务只包住记账部分（见 settle），领取交易和Redis访问期间不占用数据库连接；
+     * 批量逐笔处理从类内直接调用本方法，两条路径的记账因此都有自己的事务
      * @param transaction 交易对象
      * @return 交易处理结果
      */
-    @Transactional
     public TransactionResult processTransaction(Transaction transaction) {
-        String lockKey = TRANSACTION_LOCK_KEY_PREFIX + transaction.getTransactionId();
-
-        try {
-            // 尝试获取分布式锁，防止并发处理同一笔交易
-            Boolean lockAcquired = stringRedisTemplate.opsForValue().setIfAbsent(
-                lockKey, "locked", PROCESSING_LOCK_TIMEOUT_MINUTES, TimeUnit.MINUTES);
-
-            if (lockAcquired == null || !lockAcquired) {
-                logger.warn("Failed to acquire lock for transaction: {}", transaction.getTransactionId());
-                return new TransactionResult(
-                    transaction.getTransactionId(),
-                    false,
-                    "Transaction is being processed by another instance",
-                    "409"
-                );
-            }
-
-            if (transaction.getSourceAccount() == null || transaction.getDestinationAccount() == null) {
-                return new TransactionResult(
-                    transaction.getTransactionId(),
-                    false,
-                    "Source and destination accounts are required",
-                    "400"
-                );
-            }
+        if (transaction.getSourceAccount() == null || transaction.getDestinationAccount() == null) {
+            return new TransactionResult(
+                transaction.getTransactionId(),
+                false,
+                "Source and destination accounts are required",
+                "400"
+            );
+        }
 
-            if (transaction.getAmount() <= 0) {
-                return new TransactionResult(
-                    transaction.getTransactionId(),
-                    false,
-                    "Transaction amount must be positive",
-                    "400"
-                );
-            }
+        if (transaction.getAmount() <= 0) {
+            return new TransactionResult(
+                transaction.getTransactionId(),
+                false,
+                "Transaction amount must be positive",
+                "400"
+            );
+        }
 
-            // 如果没有设置transactionId，则生成一个
-            if (transaction.getTransactionId() == null) {
-                transaction.setTransactionId(UUID.randomUUID().toString());
-            }
+        // 如果没有设置transactionId，则生成一个
+        if (transaction.getTransactionId() == null) {
+            transaction.setTransactionId(transactionIdGenerator.nextId());
+        }
 
-            // 检查幂等性
-            String idempotentKey = TRANSACTION_IDEMPOTENT_KEY_PREFIX + transaction.getTransactionId();
-            String processingFlag = stringRedisTemplate.opsForValue().get(idempotentKey);
+        // 频率限制在内存中判断，超限的转账不加锁、不访问Redis和数据库
+        if (!velocityLimiter.tryAcquire(transaction.getSourceAccount(), transaction.getAmount())) {
+            return velocityLimitExceeded(transaction);
+        }
+        TransactionResult result = settle(transaction);
+        if (!applied(result)) {
+            velocityLimiter.release(transaction.getSourceAccount(), transaction.getAmount());
+        }
+        return result;
+    }
 
-            if ("processed".equals(processingFlag)) {
-                // 交易已经处理过，直接返回成功
-                logger.info("Transaction already processed: {}", transaction.getTransactionId());
-                return new TransactionResult(transaction.getTransactionId(), true, "Already processed");
-            }
+    /**
+     * 领取交易并记账
+     */
+    private TransactionResult settle(Transaction transaction) {
+        TransactionKeys keys = TransactionKeys.of(transaction.getTransactionId());
+        boolean lockAcquired = false;
 
-            // 检查是否超时（处理僵死状态）
-            if ("processing".equals(processingFlag)) {
-                // 检查处理是否超时
-                String processingStartTime = stringRedisTemplate.opsForValue().get(idempotentKey + ":starttime");
-                if (processingStartTime != null) {
-                    try {
-                        LocalDateTime startTime = LocalDateTime.parse(processingStartTime);
-                        LocalDateTime now = LocalDateTime.now();
-                        long minutesElapsed = java.time.Duration.between(startTime, now).toMinutes();
-
-                        if (minutesElapsed > PROCESSING_LOCK_TIMEOUT_MINUTES) {
-                            // 超时，清理状态重新处理
-                            logger.warn("Transaction processing timeout, resetting state: {}", transaction.getTransactionId());
-                            stringRedisTemplate.delete(idempotentKey);
-                            stringRedisTemplate.delete(idempotentKey + ":starttime");
-                        } else {
-                            // 仍在处理时间内
-                            logger.warn("Transaction is already processing: {}", transaction.getTransactionId());
-                            return new TransactionResult(
-                                transaction.getTransactionId(),
-                                false,
-                                "Transaction is already processing",
-                                "409"
-                            );
-                        }
-                    } catch (Exception e) {
-                        logger.warn("Error parsing processing start time for transaction: {}", transaction.getTransactionId());
-                    }
-                }
+        try {
+            Claim acquired = acquire(transaction, keys);
+            lockAcquired = acquired.locked;
+            if (acquired.response != null) {
+                return acquired.response;
             }
 
-            // 设置处理中标记和开始时间
-            stringRedisTemplate.opsForValue().set(idempotentKey, "processing",
-                                                IDEMPOTENT_KEY_EXPIRE_HOURS, TimeUnit.HOURS);
-            stringRedisTemplate.opsForValue().set(idempotentKey + ":starttime",
-                                                LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME),
-                                                IDEMPOTENT_KEY_EXPIRE_HOURS, TimeUnit.HOURS);
-
             try {
-                Optional<Account> sourceOpt = accountService.findByAccountNumber(transaction.getSourceAccount());
-                Optional<Account> destOpt = accountService.findByAccountNumber(transaction.getDestinationAccount());
-
-                if (sourceOpt.isEmpty()) {
-                    logger.warn("Source account not found: {}", transaction.getSourceAccount());
-                    return new TransactionResult(
-                        transaction.getTransactionId(),
-                        false,
-                        "Source account not found: " + transaction.getSourceAccount(),
-                        "404"
-                    );
-                }
-
-                if (destOpt.isEmpty()) {
-                    logger.warn("Destination account not found: {}", transaction.getDestinationAccount());
-                    return new TransactionResult(
-                        transaction.getTransactionId(),
-                        false,
-                        "Destination account not found: " + transaction.getDestinationAccount(),
-                        "404"
-                    );
-                }
-
-                Account source = sourceOpt.get();
-                Account dest = destOpt.get();
-
-                if (source.getBalance() < transaction.getAmount()) {
-                    logger.warn("Insufficient balance for account: {}, balance: {}, amount: {}",
-                               source.getAccountNumber(), source.getBalance(), transaction.getAmount());
-                    return new TransactionResult(
-                        transaction.getTransactionId(),
-                        false,
-                        "Insufficient balance for account: " + source.getAccountNumber(),
-                        "400"
-                    );
-                }
-
-                // 余额更新（AccountService已有重试机制）
-                boolean sourceUpdated = accountService.updateBalance(source.getAccountNumber(), -transaction.getAmount());
-                boolean destUpdated = accountService.updateBalance(dest.getAccountNumber(), transaction.getAmount());
-
-                if (sourceUpdated && destUpdated) {
+                // 扣款、入账和交易记录在同一个数据库事务中，任一步被拒绝或失败都整体回滚，不做补偿
+                TransactionResult result = new TransactionTemplate(transactionManager).execute(status -> {
+                    TransactionResult rejection = transfer(transaction);
+                    if (rejection != null) {
+                        status.setRollbackOnly();
+                        return rejection;
+                    }
                     transactionRepository.save(transaction);
-                    logger.info("Transaction processed successfully. Transaction ID: {}", transaction.getTransactionId());
-
-                    // 设置处理完成标记
-                    stringRedisTemplate.opsForValue().set(idempotentKey, "processed",
-                                                        IDEMPOTENT_KEY_EXPIRE_HOURS, TimeUnit.HOURS);
-                    // 清理开始时间
-                    stringRedisTemplate.delete(idempotentKey + ":starttime");
-
+                    // 处理完成标记随本事务写入发件箱，提交后由中继写入Redis并清理开始时间
+                    transactionOutbox.transactionProcessed(transaction.getTransactionId());
                     return new TransactionResult(transaction.getTransactionId(), true, "Success");
-                } else {
-                    // 如果更新失败，反向回退
-                    accountService.updateBalance(source.getAccountNumber(), transaction.getAmount());
-                    accountService.updateBalance(dest.getAccountNumber(), -transaction.getAmount());
-                    logger.error("Transaction update failed. Rolling back changes. Transaction ID: {}",
-                                transaction.getTransactionId());
-                    return new TransactionResult(
-                        transaction.getTransactionId(),
-                        false,
-                        "Transaction update failed. Changes have been rolled back.",
-                        "500"
-                    );
+                });
+                if (!result.isSuccess()) {
+                    // 被拒绝的交易没有记账，清除处理中标记，修正后可立即用同一交易ID重试
+                    clearProcessingState(keys);
+                } else if (logger.isInfoEnabled()) {
+                    logger.info("Transaction processed successfully. Transaction ID: {}", transaction.getTransactionId());
                 }
+                return result;
             } catch (Exception e) {
                 // 处理失败，清除处理中标记
-                stringRedisTemplate.delete(idempotentKey);
-                stringRedisTemplate.delete(idempotentKey + ":starttime");
+                clearProcessingState(keys);
                 logger.error("Unexpected error in transaction processing. Transaction ID: {}, Error: {}",
                             transaction.getTransactionId(), e.getMessage(), e);
                 return new TransactionResult(
@@ -233,9 +213,183 @@ public class TransactionService {
                 "500"
             );
         } finally {
-            // 释放分布式锁
-            stringRedisTemplate.delete(lockKey);
+            // 释放分布式锁（只释放自己持有的锁）
+            if (lockAcquired) {
+                releaseLock(keys);
+            }
+        }
+    }
+
+    /**
+     * 按账号顺序更新转出和转入账户：每条更新即取得该行的行锁，方向相反的并发转账以相同顺序加锁，不会相互死锁。
+     * 必须在事务中调用，返回拒绝结果时由调用方回滚；成功返回 null
+     */
+    private TransactionResult transfer(Transaction transaction) {
+        if (transaction.getSourceAccount().compareTo(transaction.getDestinationAccount()) <= 0) {
+            TransactionResult rejection = debit(transaction);
+            return rejection != null ? rejection : credit(transaction);
+        }
+        TransactionResult rejection = credit(transaction);
+        return rejection != null ? rejection : debit(transaction);
+    }
+
+    private TransactionResult debit(Transaction transaction) {
+        // 额度校验与扣款是同一条条件更新，不预先读取账户；没有更新任何行时才区分账户不存在和额度不足
+        if (accountService.debit(transaction.getSourceAccount(), transaction.getAmount(),
+                                 transaction.getTransactionId()).isPresent()) {
+            return null;
+        }
+        if (!accountService.exists(transaction.getSourceAccount())) {
+            logger.warn("Source account not found: {}", transaction.getSourceAccount());
+            return new TransactionResult(
+                transaction.getTransactionId(),
+                false,
+                "Source account not found: " + transaction.getSourceAccount(),
+                "404"
+            );
+        }
+        if (logger.isWarnEnabled()) {
+            logger.warn("Insufficient balance for account: {}, amount: {}",
+                       transaction.getSourceAccount(), transaction.getAmount());
+        }
+        return new TransactionResult(
+            transaction.getTransactionId(),
+            false,
+            "Insufficient balance for account: " + transaction.getSourceAccount(),
+            "400"
+        );
+    }
+
+    private TransactionResult credit(Transaction transaction) {
+        if (accountService.credit(transaction.getDestinationAccount(), transaction.getAmount(),
+                                  transaction.getTransactionId()).isPresent()) {
+            return null;
+        }
+        logger.warn("Destination account not found: {}", transaction.getDestinationAccount());
+        return new TransactionResult(
+            transaction.getTransactionId(),
+            false,
+            "Destination account not found: " + transaction.getDestinationAccount(),
+            "404"
+        );
+    }
+
+    private static TransactionResult velocityLimitExceeded(Transaction transaction) {
+        logger.warn("Velocity limit exceeded for account: {}", transaction.getSourceAccount());
+        return new TransactionResult(
+            transaction.getTransactionId(),
+            false,
+            "Velocity limit exceeded for account: " + transaction.getSourceAccount(),
+            "429"
+        );
+    }
+
+    /**
+     * 本次调用是否实际记账（重复提交返回的成功不算）
+     */
+    private static boolean applied(TransactionResult result) {
+        return result.isSuccess() && !ALREADY_PROCESSED.equals(result.getMessage());
+    }
+
+    /**
+     * 领取交易：获取分布式锁并检查幂等状态，可以处理时写入处理中标记和开始时间
+     * 返回的 response 不为空表示不需要处理，直接以其作答；locked 为 true 时调用方负责释放锁
+     */
+    Claim acquire(Transaction transaction, TransactionKeys keys) {
+        // 一次往返：脚本内获取分布式锁、读取幂等状态，首次处理时直接写入处理中标记和开始时间
+        long now = System.currentTimeMillis();
+        List<Object> state = claim(keys, now);
+        @SuppressWarnings("unchecked")
+        List<Object> claim = (List<Object>) state.get(0);
+        long claimResult = (Long) claim.get(0);
+        boolean lockAcquired = claimResult != CLAIM_BUSY;
+        transactionIdFilter.put(transaction.getTransactionId());
+
+        if (!lockAcquired) {
+            logger.warn("Failed to acquire lock for transaction: {}", transaction.getTransactionId());
+            return new Claim(false, new TransactionResult(
+                transaction.getTransactionId(),
+                false,
+                "Transaction is being processed by another instance",
+                "409"
+            ));
+        }
+
+        // 检查幂等性；新键没有状态时回查升级前的旧键
+        boolean claimed = claimResult == CLAIM_ACQUIRED;
+        byte[] processingFlag = null;
+        byte[] processingStartTime = null;
+        if (claimResult == CLAIM_PROCESSED) {
+            processingFlag = TransactionKeys.PROCESSED;
+        } else if (claimResult == CLAIM_PROCESSING) {
+            processingFlag = TransactionKeys.PROCESSING;
+            processingStartTime = (byte[]) claim.get(1);
+        } else if (legacyKeyFallback) {
+            processingFlag = (byte[]) state.get(1);
+            processingStartTime = (byte[]) state.get(2);
         }
+
+        if (Arrays.equals(TransactionKeys.PROCESSED, processingFlag)) {
+            // 交易已经处理过，直接返回成功
+            logger.info("Transaction already processed: {}", transaction.getTransactionId());
+            if (claimed) {
+                markProcessed(keys);
+            }
+            return new Claim(true, new TransactionResult(transaction.getTransactionId(), true, ALREADY_PROCESSED));
+        }
+
+        // 检查是否超时（处理僵死状态）
+        if (Arrays.equals(TransactionKeys.PROCESSING, processingFlag)) {
+            // 已提交但发件箱中继尚未写入“已处理”标记
+            if (existsInDatabase(transaction.getTransactionId())) {
+                logger.info("Transaction already processed: {}", transaction.getTransactionId());
+                markProcessed(keys);
+                return new Claim(true, new TransactionResult(transaction.getTransactionId(), true, ALREADY_PROCESSED));
+            }
+            if (processingStartTime != null) {
+                try {
+                    long elapsedMillis = now - TransactionKeys.parseStartTimeMillis(processingStartTime);
+
+                    if (elapsedMillis > PROCESSING_LOCK_TIMEOUT_MILLIS) {
+                        // 超时，下面会直接覆盖状态重新处理
+                        logger.warn("Transaction processing timeout, resetting state: {}", transaction.getTransactionId());
+                    } else {
+                        // 仍在处理时间内
+                        logger.warn("Transaction is already processing: {}", transaction.getTransactionId());
+                        if (claimed) {
+                            clearProcessingState(keys);
+                        }
+                        return new Claim(true, new TransactionResult(
+                            transaction.getTransactionId(),
+                            false,
+                            "Transaction is already processing",
+                            "409"
+                        ));
+                    }
+                } catch (Exception e) {
+                    logger.warn("Error parsing processing start time for transaction: {}", transaction.getTransactionId());
+                }
+            }
+        }
+
+        if (!claimed) {
+            // 覆盖超时的处理中状态，设置处理中标记和开始时间（毫秒时间戳），一次往返
+            byte[] startTime = TransactionKeys.encodeStartTime(now);
+            pipeline(connection -> {
+                connection.stringCommands().set(keys.idempotent(), TransactionKeys.PROCESSING, IDEMPOTENT_EXPIRATION,
+                                                RedisStringCommands.SetOption.upsert());
+                connection.stringCommands().set(keys.startTime(), startTime, IDEMPOTENT_EXPIRATION,
+                                                RedisStringCommands.SetOption.upsert());
+            });
+        }
+        return new Claim(true, null);
+    }
+
+    /**
+     * 释放分布式锁（只在 acquire 返回 locked 时调用）
+     */
+    void releaseLock(TransactionKeys keys) {
+        stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands().del(keys.lock()));
     }
 
     /**
@@ -246,9 +400,14 @@ public class TransactionService {
             return false;
         }
 
-        String idempotentKey = TRANSACTION_IDEMPOTENT_KEY_PREFIX + transactionId;
-        String result = stringRedisTemplate.opsForValue().get(idempotentKey);
-        return "processed".equals(result);
+        byte[] idempotentKey = TransactionKeys.of(transactionId).idempotent();
+        byte[] result = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+            connection.stringCommands().get(idempotentKey));
+        if (Arrays.equals(TransactionKeys.PROCESSING, result)) {
+            // 处理中或已提交但标记尚未同步，以数据库为准
+            return existsInDatabase(transactionId);
+        }
+        return Arrays.equals(TransactionKeys.PROCESSED, result);
     }
 
     /**
@@ -267,23 +426,28 @@ public class TransactionService {
         }
 
         // 检查幂等性键
-        String idempotentKey = TRANSACTION_IDEMPOTENT_KEY_PREFIX + transactionId;
-        String processingFlag = stringRedisTemplate.opsForValue().get(idempotentKey);
+        TransactionKeys keys = TransactionKeys.of(transactionId);
+        List<byte[]> flags = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+            connection.stringCommands().mGet(keys.idempotent(), keys.startTime()));
+        byte[] processingFlag = flags != null ? flags.get(0) : null;
 
-        if ("processed".equals(processingFlag)) {
+        if (Arrays.equals(TransactionKeys.PROCESSED, processingFlag)) {
             return new TransactionResult(transactionId, true, "Transaction processed successfully");
         }
 
-        if ("processing".equals(processingFlag)) {
+        if (Arrays.equals(TransactionKeys.PROCESSING, processingFlag)) {
+            if (existsInDatabase(transactionId)) {
+                return new TransactionResult(transactionId, true, "Transaction processed successfully");
+            }
+
             // 检查是否超时
-            String processingStartTime = stringRedisTemplate.opsForValue().get(idempotentKey + ":starttime");
+            byte[] processingStartTime = flags.get(1);
             if (processingStartTime != null) {
                 try {
-                    LocalDateTime startTime = LocalDateTime.parse(processingStartTime);
-                    LocalDateTime now = LocalDateTime.now();
-                    long minutesElapsed = java.time.Duration.between(startTime, now).toMinutes();
+                    long elapsedMillis = System.currentTimeMillis()
+                        - TransactionKeys.parseStartTimeMillis(processingStartTime);
 
-                    if (minutesElapsed > PROCESSING_LOCK_TIMEOUT_MINUTES) {
+                    if (elapsedMillis > PROCESSING_LOCK_TIMEOUT_MILLIS) {
                         // 超时，返回错误状态
                         TransactionResult result = new TransactionResult();
                         result.setTransactionId(transactionId);
@@ -306,14 +470,12 @@ public class TransactionService {
         }
 
         // 检查数据库中是否存在该交易
-        List<Transaction> transactions = transactionRepository.findAll();
-        for (Transaction tx : transactions) {
-            if (transactionId.equals(tx.getTransactionId())) {
-                // 交易存在于数据库中，说明已处理
-                stringRedisTemplate.opsForValue().set(idempotentKey, "processed",
-                                                    IDEMPOTENT_KEY_EXPIRE_HOURS, TimeUnit.HOURS);
-                return new TransactionResult(transactionId, true, "Transaction processed successfully");
-            }
+        if (existsInDatabase(transactionId)) {
+            // 交易存在于数据库中，说明已处理
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                connection.stringCommands().set(keys.idempotent(), TransactionKeys.PROCESSED, IDEMPOTENT_EXPIRATION,
+                                                RedisStringCommands.SetOption.upsert()));
+            return new TransactionResult(transactionId, true, "Transaction processed successfully");
         }
 
         // 交易不存在
@@ -325,6 +487,88 @@ public class TransactionService {
         return result;
     }
 
+    /**
+     * 时间有序ID先按ID中的生成时间限定 timestamp 窗口查询；未命中（如客户端自带的UUIDv7时间与入库时间相差较大）再全量按ID查询
+     */
+    private boolean existsInDatabase(String transactionId) {
+        long epochMillis = TransactionIdGenerator.epochMillisOf(transactionId);
+        if (epochMillis >= 0) {
+            LocalDateTime from = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(epochMillis - LOOKUP_WINDOW_SLACK_MILLIS), ZoneId.systemDefault());
+            LocalDateTime to = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(epochMillis + PROCESSING_LOCK_TIMEOUT_MILLIS + LOOKUP_WINDOW_SLACK_MILLIS),
+                ZoneId.systemDefault());
+            if (transactionRepository.existsByTransactionIdAndTimestampBetween(transactionId, from, to)) {
+                return true;
+            }
+        }
+        return transactionRepository.existsByTransactionId(transactionId);
+    }
+
+    /**
+     * 执行领取脚本，按需在同一管道中读取旧格式的幂等键；脚本缓存缺失（NOSCRIPT，如节点重启或故障切换）时加载后重试一次
+     */
+    private List<Object> claim(TransactionKeys keys, long now) {
+        byte[] startTime = TransactionKeys.encodeStartTime(now);
+        Consumer<RedisConnection> commands = connection -> {
+            connection.scriptingCommands().evalSha(CLAIM_SCRIPT.getSha1(), ReturnType.MULTI, 3,
+                keys.lock(), keys.idempotent(), keys.startTime(), LOCK_EXPIRE_MILLIS, IDEMPOTENT_EXPIRE_MILLIS, startTime);
+            if (legacyKeyFallback) {
+                connection.stringCommands().get(keys.legacyIdempotent());
+                connection.stringCommands().get(keys.legacyStartTime());
+            }
+        };
+        try {
+            return pipeline(commands);
+        } catch (RuntimeException e) {
+            if (!isNoScript(e)) {
+                throw e;
+            }
+            stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(CLAIM_SCRIPT_BODY));
+            return pipeline(commands);
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 数据库中已存在的交易补写“已处理”标记
+     */
+    void markProcessed(TransactionKeys keys) {
+        pipeline(connection -> {
+            connection.stringCommands().set(keys.idempotent(), TransactionKeys.PROCESSED, IDEMPOTENT_EXPIRATION,
+                                            RedisStringCommands.SetOption.upsert());
+            connection.keyCommands().del(keys.startTime());
+        });
+    }
+
+    /**
+     * 清除处理中标记和开始时间
+     */
+    void clearProcessingState(TransactionKeys keys) {
+        stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+            connection.keyCommands().del(keys.idempotent(), keys.startTime()));
+    }
+
+    /**
+     * 在同一连接上以管道方式执行多条命令，返回连接层的原始结果（不做反序列化）
+     */
+    private List<Object> pipeline(Consumer<RedisConnection> commands) {
+        return stringRedisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.openPipeline();
+            commands.accept(connection);
+            return connection.closePipeline();
+        });
+    }
+
     /**
      * 批量处理交易，返回详细的处理结果，支持幂等性
      */
@@ -343,17 +587,20 @@ public class TransactionService {
                 try {
                     // 确保每个交易都有transactionId
                     if (transaction.getTransactionId() == null) {
-                        transaction.setTransactionId(UUID.randomUUID().toString());
+                        transaction.setTransactionId(transactionIdGenerator.nextId());
                     }
 
-                    // 检查交易是否已经处理
-                    if (isTransactionProcessed(transaction.getTransactionId())) {
-                        TransactionResult result = new TransactionResult(transaction.getTransactionId(), true, "Already processed");
+                    // 检查交易是否已经处理；本地过滤器确定未见过的ID（绝大多数新交易）省去一次Redis查询，由领取脚本做权威判断
+                    if (transactionIdFilter.mightContain(transaction.getTransactionId())
+                        && isTransactionProcessed(transaction.getTransactionId())) {
+                        TransactionResult result = new TransactionResult(transaction.getTransactionId(), true, ALREADY_PROCESSED);
                         results.add(result);
                         successfulCount++;
                         continue;
                     }
 
+                    // 批量交易给同账户上正在执行的单笔转账让行
+                    executionLanes.yieldToInteractive(transaction.getSourceAccount(), transaction.getDestinationAccount());
                     TransactionResult result = processTransaction(transaction);
                     results.add(result);
 
@@ -390,8 +637,10 @@ public class TransactionService {
             batchResult.setFailedTransactions(failedCount);
             batchResult.setResults(results);
 
-            logger.info("Batch processing completed. Total: {}, Success: {}, Failed: {}",
-                       transactions.length, successfulCount, failedCount);
+            if (logger.isInfoEnabled()) {
+                logger.info("Batch processing completed. Total: {}, Success: {}, Failed: {}",
+                           transactions.length, successfulCount, failedCount);
+            }
 
             return batchResult;
         } catch (BusinessException e) {
@@ -402,4 +651,202 @@ public class TransactionService {
             throw new BusinessException(500, "Failed to process batch transactions: " + e.getMessage());
         }
     }
+
+    /**
+     * 轧差模式批量处理：按提交顺序逐笔校验余额下限，每个账户只写一次净额，每笔交易仍单独入库
+     * 整批记账在一个数据库事务中提交，数据库写入量与涉及的账户数成正比，而不是与交易笔数成正比；
+     * 与单笔转账相同，Redis领取在事务开始前完成，分布式锁和处理中标记在事务提交（或回滚）之后才释放、清除
+     */
+    public BatchResult processBatchNetted(Transaction... transactions) {
+        if (transactions == null) {
+            throw new BusinessException(400, "Transactions are required");
+        }
+
+        TransactionResult[] results = new TransactionResult[transactions.length];
+        // 批内重复的交易ID指向首次出现的位置，结果与首次出现的一致
+        Map<String, Integer> firstIndex = new HashMap<>();
+        Map<Integer, Integer> duplicates = new HashMap<>();
+        List<TransactionKeys> lockedKeys = new ArrayList<>();
+        // 通过频率限制的交易，最终没有记账的要撤销计数
+        List<Integer> admitted = new ArrayList<>();
+        List<Integer> claimed = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < transactions.length; i++) {
+                Transaction transaction = transactions[i];
+                if (transaction.getTransactionId() == null) {
+                    transaction.setTransactionId(transactionIdGenerator.nextId());
+                }
+                if (transaction.getSourceAccount() == null || transaction.getDestinationAccount() == null) {
+                    results[i] = new TransactionResult(transaction.getTransactionId(), false,
+                        "Source and destination accounts are required", "400");
+                    continue;
+                }
+                if (transaction.getAmount() <= 0) {
+                    results[i] = new TransactionResult(transaction.getTransactionId(), false,
+                        "Transaction amount must be positive", "400");
+                    continue;
+                }
+                Integer first = firstIndex.putIfAbsent(transaction.getTransactionId(), i);
+                if (first != null) {
+                    duplicates.put(i, first);
+                    continue;
+                }
+                if (!velocityLimiter.tryAcquire(transaction.getSourceAccount(), transaction.getAmount())) {
+                    results[i] = velocityLimitExceeded(transaction);
+                    continue;
+                }
+                admitted.add(i);
+
+                TransactionKeys keys = TransactionKeys.of(transaction.getTransactionId());
+                Claim acquired = acquire(transaction, keys);
+                if (acquired.locked) {
+                    lockedKeys.add(keys);
+                }
+                if (acquired.response != null) {
+                    results[i] = acquired.response;
+                } else {
+                    claimed.add(i);
+                }
+            }
+
+            List<Integer> rejected = new ArrayList<>();
+            new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> settleNetted(transactions, claimed, results, rejected));
+            // 被拒绝的交易没有记账，提交后清除处理中标记，可以立即重试
+            for (int i : rejected) {
+                clearProcessingState(TransactionKeys.of(transactions[i].getTransactionId()));
+            }
+        } catch (Exception e) {
+            // 整批回滚，已领取的交易都清除处理中标记
+            for (int i : claimed) {
+                clearProcessingState(TransactionKeys.of(transactions[i].getTransactionId()));
+            }
+            for (int i : admitted) {
+                velocityLimiter.release(transactions[i].getSourceAccount(), transactions[i].getAmount());
+            }
+            logger.error("Failed to process netted batch: {}", e.getMessage(), e);
+            if (e instanceof BusinessException) {
+                throw (BusinessException) e;
+            }
+            throw new BusinessException(500, "Failed to process batch transactions: " + e.getMessage(), e);
+        } finally {
+            for (TransactionKeys keys : lockedKeys) {
+                releaseLock(keys);
+            }
+        }
+
+        for (int i : admitted) {
+            if (!applied(results[i])) {
+                velocityLimiter.release(transactions[i].getSourceAccount(), transactions[i].getAmount());
+            }
+        }
+        for (Map.Entry<Integer, Integer> duplicate : duplicates.entrySet()) {
+            TransactionResult first = results[duplicate.getValue()];
+            results[duplicate.getKey()] = first.isSuccess()
+                ? new TransactionResult(first.getTransactionId(), true, ALREADY_PROCESSED)
+                : first;
+        }
+
+        BatchResult batchResult = new BatchResult();
+        int successfulCount = 0;
+        for (TransactionResult result : results) {
+            if (result.isSuccess()) {
+                successfulCount++;
+            }
+        }
+        batchResult.setTotalTransactions(transactions.length);
+        batchResult.setSuccessfulTransactions(successfulCount);
+        batchResult.setFailedTransactions(transactions.length - successfulCount);
+        batchResult.setResults(Arrays.asList(results));
+        return batchResult;
+    }
+
+    /**
+     * 轧差批量的数据库部分，在调用方的事务中执行：按账号顺序锁定账户、模拟记账、写入净额和交易记录；
+     * 余额不足等被拒绝的交易写入 results 并记入 rejected
+     */
+    private void settleNetted(Transaction[] transactions, List<Integer> claimed, TransactionResult[] results,
+                              List<Integer> rejected) {
+        // 按账号顺序加行锁，模拟期间其他写入不能改变起始余额
+        Set<String> accountNumbers = new LinkedHashSet<>();
+        for (int i : claimed) {
+            accountNumbers.add(transactions[i].getSourceAccount());
+            accountNumbers.add(transactions[i].getDestinationAccount());
+        }
+        Map<String, Account> accounts = new HashMap<>();
+        Map<String, Double> startingBalances = new HashMap<>();
+        Map<String, Double> floors = new HashMap<>();
+        if (!accountNumbers.isEmpty()) {
+            // 行锁会一直持有到整批提交，先给这些账户上正在执行的单笔转账让行
+            executionLanes.yieldToInteractive(accountNumbers.toArray(new String[0]));
+            for (Account account : accountRepository.findAllForUpdate(accountNumbers)) {
+                accounts.put(account.getAccountNumber(), account);
+                startingBalances.put(account.getAccountNumber(), account.getBalance());
+                floors.put(account.getAccountNumber(), account.debitFloor());
+            }
+        }
+
+        BatchNetting netting = new BatchNetting(startingBalances, floors);
+        List<Transaction> accepted = new ArrayList<>();
+        for (int i : claimed) {
+            Transaction transaction = transactions[i];
+            BatchNetting.Outcome outcome = netting.apply(
+                transaction.getSourceAccount(), transaction.getDestinationAccount(), transaction.getAmount());
+            if (outcome == BatchNetting.Outcome.ACCEPTED) {
+                accepted.add(transaction);
+                results[i] = new TransactionResult(transaction.getTransactionId(), true, "Success");
+                continue;
+            }
+            results[i] = rejected(transaction, outcome);
+            rejected.add(i);
+        }
+
+        // 每个账户一次余额写入，变更事件携带净变动额
+        for (Map.Entry<String, Double> delta : netting.deltas().entrySet()) {
+            Account account = accounts.get(delta.getKey());
+            account.setBalance(netting.balanceOf(delta.getKey()));
+            account.setVersion(account.getVersion() + 1);
+            accountRepository.save(account);
+            transactionOutbox.balanceChanged(account, delta.getValue(), null);
+        }
+        transactionRepository.saveAll(accepted);
+        for (Transaction transaction : accepted) {
+            transactionOutbox.transactionProcessed(transaction.getTransactionId());
+        }
+
+        if (logger.isInfoEnabled()) {
+            logger.info("Netted batch processed. Transactions: {}, Accepted: {}, Accounts written: {}",
+                       transactions.length, accepted.size(), netting.deltas().size());
+        }
+    }
+
+    private static TransactionResult rejected(Transaction transaction, BatchNetting.Outcome outcome) {
+        switch (outcome) {
+            case SOURCE_NOT_FOUND:
+                return new TransactionResult(transaction.getTransactionId(), false,
+                    "Source account not found: " + transaction.getSourceAccount(), "404");
+            case DESTINATION_NOT_FOUND:
+                return new TransactionResult(transaction.getTransactionId(), false,
+                    "Destination account not found: " + transaction.getDestinationAccount(), "404");
+            default:
+                return new TransactionResult(transaction.getTransactionId(), false,
+                    "Insufficient balance for account: " + transaction.getSourceAccount(), "400");
+        }
+    }
+
+    /**
+     * 领取结果
+     */
+    static final class Claim {
+        // 是否持有分布式锁
+        final boolean locked;
+        // 不需要处理时直接返回的结果，为空表示已领取、可以处理
+        final TransactionResult response;
+
+        Claim(boolean locked, TransactionResult response) {
+            this.locked = locked;
+            this.response = response;
+        }
+    }
 }
@@ -0,0 +1,263 @@
+package com.sacred.balance.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按转出账户的转账频率限制：滑动窗口内的笔数和金额，在内存中判断，不访问数据库和Redis
+ * 账户按哈希分片，每个分片一把锁，不同分片的账户互不竞争。
+ * 多实例之间通过定时同步共享：各实例把本地增量按时间桶累加到Redis哈希 balance:velocity:{账号}，
+ * 同时读回窗口内全部实例的合计，作为其他实例的部分参与判断，因此跨实例的限额最多滞后一个同步周期。
+ */
+@Component
+public class VelocityLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(VelocityLimiter.class);
+
+    static final String KEY_PREFIX = "balance:velocity:";
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${balance.velocity.enabled:false}")
+    private boolean enabled;
+
+    @Value("${balance.velocity.window-seconds:60}")
+    private long windowSeconds;
+
+    // 窗口划分的时间桶数，桶越多窗口滑动越平滑
+    @Value("${balance.velocity.buckets:12}")
+    private int buckets;
+
+    // 窗口内最多笔数，0表示不限制
+    @Value("${balance.velocity.max-count:0}")
+    private long maxCount;
+
+    // 窗口内最大金额，0表示不限制
+    @Value("${balance.velocity.max-amount:0}")
+    private double maxAmount;
+
+    @Value("${balance.velocity.shards:64}")
+    private int shardCount;
+
+    private Shard[] shards;
+    private long windowMillis;
+
+    private Counter countRejections;
+    private Counter amountRejections;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            return;
+        }
+        windowMillis = TimeUnit.SECONDS.toMillis(windowSeconds);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard();
+        }
+        countRejections = Counter.builder("balance.velocity.rejections").tag("limit", "count").register(meterRegistry);
+        amountRejections = Counter.builder("balance.velocity.rejections").tag("limit", "amount").register(meterRegistry);
+        Gauge.builder("balance.velocity.accounts", this, VelocityLimiter::trackedAccounts)
+            .description("Accounts with transfers in the velocity window").register(meterRegistry);
+
+        logger.info("Velocity limits: {} transfers, {} amount per {} s per source account",
+                   maxCount > 0 ? maxCount : "unlimited", maxAmount > 0 ? maxAmount : "unlimited", windowSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 未超过限额时计入窗口并返回 true；超过时不计入，返回 false
+     */
+    public boolean tryAcquire(String accountNumber, double amount) {
+        if (!enabled) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        Shard shard = shardOf(accountNumber);
+        synchronized (shard) {
+            SlidingWindowCounter counter = shard.counters.computeIfAbsent(
+                accountNumber, k -> new SlidingWindowCounter(windowMillis, buckets));
+            if (maxCount > 0 && counter.count(now) + 1 > maxCount) {
+                countRejections.increment();
+                return false;
+            }
+            if (maxAmount > 0 && counter.amount(now) + amount > maxAmount) {
+                amountRejections.increment();
+                return false;
+            }
+            counter.add(now, 1, amount);
+            return true;
+        }
+    }
+
+    /**
+     * 撤销 tryAcquire 计入的一笔（转账最终没有执行，如余额不足或重复提交）
+     */
+    public void release(String accountNumber, double amount) {
+        if (!enabled) {
+            return;
+        }
+        Shard shard = shardOf(accountNumber);
+        synchronized (shard) {
+            SlidingWindowCounter counter = shard.counters.get(accountNumber);
+            if (counter != null) {
+                counter.add(System.currentTimeMillis(), -1, -amount);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${balance.velocity.sync-interval-millis:1000}")
+    public void synchronize() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (Shard shard : shards) {
+            try {
+                synchronize(shard, now);
+            } catch (Exception e) {
+                // 未同步的增量保留到下个周期
+                logger.warn("Failed to synchronize velocity counters with Redis: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 一个分片一次管道：写入各账户未同步的增量，读回窗口内全部实例的合计
+     */
+    private void synchronize(Shard shard, long now) {
+        List<String> accounts = new ArrayList<>();
+        List<long[]> epochs = new ArrayList<>();
+        List<long[]> counts = new ArrayList<>();
+        List<double[]> amounts = new ArrayList<>();
+        synchronized (shard) {
+            for (Iterator<Map.Entry<String, SlidingWindowCounter>> it = shard.counters.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, SlidingWindowCounter> entry = it.next();
+                SlidingWindowCounter counter = entry.getValue();
+                if (counter.idle(now)) {
+                    it.remove();
+                    continue;
+                }
+                long[] pending = counter.pendingEpochs(now);
+                long[] pendingCounts = new long[pending.length];
+                double[] pendingAmounts = new double[pending.length];
+                for (int i = 0; i < pending.length; i++) {
+                    pendingCounts[i] = counter.pendingCount(pending[i]);
+                    pendingAmounts[i] = counter.pendingAmount(pending[i]);
+                }
+                accounts.add(entry.getKey());
+                epochs.add(pending);
+                counts.add(pendingCounts);
+                amounts.add(pendingAmounts);
+            }
+        }
+        if (accounts.isEmpty()) {
+            return;
+        }
+        // 所有实例按相同的绝对时间划分桶，桶号可以直接合并
+        long currentEpoch = now / SlidingWindowCounter.bucketMillis(windowMillis, buckets);
+        byte[][] fields = new byte[buckets * 2][];
+        for (int i = 0; i < buckets; i++) {
+            fields[2 * i] = bytes("c:" + (currentEpoch - i));
+            fields[2 * i + 1] = bytes("a:" + (currentEpoch - i));
+        }
+        long ttlSeconds = TimeUnit.MILLISECONDS.toSeconds(windowMillis) * 2 + 1;
+
+        List<Object> results = stringRedisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            connection.openPipeline();
+            for (int a = 0; a < accounts.size(); a++) {
+                byte[] key = bytes(KEY_PREFIX + "{" + accounts.get(a) + "}");
+                long[] pending = epochs.get(a);
+                for (int i = 0; i < pending.length; i++) {
+                    connection.hashCommands().hIncrBy(key, bytes("c:" + pending[i]), counts.get(a)[i]);
+                    connection.hashCommands().hIncrBy(key, bytes("a:" + pending[i]), amounts.get(a)[i]);
+                }
+                if (pending.length > 0) {
+                    connection.keyCommands().expire(key, ttlSeconds);
+                }
+                connection.hashCommands().hMGet(key, fields);
+            }
+            return connection.closePipeline();
+        });
+
+        synchronized (shard) {
+            int position = 0;
+            for (int a = 0; a < accounts.size(); a++) {
+                long[] pending = epochs.get(a);
+                position += pending.length * 2 + (pending.length > 0 ? 1 : 0);
+                @SuppressWarnings("unchecked")
+                List<byte[]> values = (List<byte[]>) results.get(position++);
+                long globalCount = 0;
+                double globalAmount = 0;
+                for (int i = 0; i < buckets; i++) {
+                    globalCount += parseLong(values.get(2 * i));
+                    globalAmount += parseDouble(values.get(2 * i + 1));
+                }
+                SlidingWindowCounter counter = shard.counters.get(accounts.get(a));
+                if (counter == null) {
+                    continue;
+                }
+                for (int i = 0; i < pending.length; i++) {
+                    counter.synced(pending[i], counts.get(a)[i], amounts.get(a)[i]);
+                }
+                counter.setGlobal(now, globalCount, globalAmount);
+            }
+        }
+    }
+
+    private Shard shardOf(String accountNumber) {
+        return shards[Math.floorMod(accountNumber.hashCode(), shards.length)];
+    }
+
+    private long trackedAccounts() {
+        long total = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                total += shard.counters.size();
+            }
+        }
+        return total;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long parseLong(byte[] value) {
+        return value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static double parseDouble(byte[] value) {
+        return value == null ? 0 : Double.parseDouble(new String(value, StandardCharsets.UTF_8));
+    }
+
+    private static final class Shard {
+        private final Map<String, SlidingWindowCounter> counters = new HashMap<>();
+    }
+}
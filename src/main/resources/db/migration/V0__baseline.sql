@@ -0,0 +1,23 @@
+-- 初始的账户表和交易表，与改用 Flyway 之前 Hibernate 按实体生成的结构一致，后续脚本在此基础上修改
+-- 已有数据库不执行本脚本（baseline-version 不小于 0）
+CREATE TABLE IF NOT EXISTS accounts (
+    id             BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    account_number VARCHAR(255),
+    balance        FLOAT8 NOT NULL,
+    PRIMARY KEY (id)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_account_number ON accounts (account_number);
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    transaction_id      VARCHAR(255),
+    source_account      VARCHAR(255),
+    destination_account VARCHAR(255),
+    amount              FLOAT8 NOT NULL,
+    timestamp           TIMESTAMP(6),
+    PRIMARY KEY (id)
+);
+CREATE INDEX IF NOT EXISTS idx_transaction_id ON transactions (transaction_id);
+CREATE INDEX IF NOT EXISTS idx_source_account ON transactions (source_account);
+CREATE INDEX IF NOT EXISTS idx_destination_account ON transactions (destination_account);
+CREATE INDEX IF NOT EXISTS idx_timestamp ON transactions (timestamp);
@@ -0,0 +1,2 @@
+-- 账户余额版本号，余额查询接口返回该值供调用方判断数据新旧
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
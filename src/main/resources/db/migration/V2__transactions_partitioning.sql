@@ -0,0 +1,55 @@
+-- 交易表改为按 timestamp 范围分区（默认按月）
+-- 现有数据不复制，整体作为历史分区 transactions_legacy 挂载；后续分区由 TransactionPartitionService 预创建、到期归档
+-- 执行后设置 balance.partitioning.enabled=true 开启分区维护任务
+-- Flyway 在一个事务中执行本脚本，任一步失败整体回滚
+
+ALTER TABLE transactions RENAME TO transactions_legacy;
+ALTER INDEX IF EXISTS idx_transaction_id RENAME TO transactions_legacy_transaction_id_idx;
+ALTER INDEX IF EXISTS idx_source_account RENAME TO transactions_legacy_source_account_idx;
+ALTER INDEX IF EXISTS idx_destination_account RENAME TO transactions_legacy_destination_account_idx;
+ALTER INDEX IF EXISTS idx_timestamp RENAME TO transactions_legacy_timestamp_idx;
+
+-- 分区键不允许为空；主键必须包含分区键
+UPDATE transactions_legacy SET timestamp = now() WHERE timestamp IS NULL;
+ALTER TABLE transactions_legacy ALTER COLUMN timestamp SET NOT NULL;
+ALTER TABLE transactions_legacy ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE transactions_legacy ALTER COLUMN id DROP DEFAULT;
+-- 原主键只有 id，且约束名 transactions_pkey 会与新父表的主键重名；换成与父表一致的 (id, timestamp)，挂载时复用
+ALTER TABLE transactions_legacy DROP CONSTRAINT IF EXISTS transactions_pkey;
+ALTER TABLE transactions_legacy ADD CONSTRAINT transactions_legacy_pkey PRIMARY KEY (id, timestamp);
+
+CREATE TABLE transactions (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    transaction_id      VARCHAR(255),
+    source_account      VARCHAR(255),
+    destination_account VARCHAR(255),
+    amount              FLOAT8 NOT NULL,
+    timestamp           TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- 分区索引，挂载历史分区时复用定义相同的已有索引
+CREATE INDEX idx_transaction_id ON transactions (transaction_id);
+CREATE INDEX idx_source_account ON transactions (source_account);
+CREATE INDEX idx_destination_account ON transactions (destination_account);
+CREATE INDEX idx_timestamp ON transactions (timestamp);
+
+DO $$
+DECLARE
+    next_month TIMESTAMP := date_trunc('month', now()) + INTERVAL '1 month';
+    next_id BIGINT;
+BEGIN
+    EXECUTE format('ALTER TABLE transactions ATTACH PARTITION transactions_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   next_month);
+
+    SELECT COALESCE(MAX(id), 0) + 1 INTO next_id FROM transactions_legacy;
+    EXECUTE format('ALTER TABLE transactions ALTER COLUMN id RESTART WITH %s', next_id);
+
+    -- 预创建未来三个月的分区，维护任务开启前写入不会失败
+    FOR i IN 0..2 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(next_month + i * INTERVAL '1 month', 'YYYYMM'),
+                       next_month + i * INTERVAL '1 month',
+                       next_month + (i + 1) * INTERVAL '1 month');
+    END LOOP;
+END $$;
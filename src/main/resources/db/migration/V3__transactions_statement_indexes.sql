@@ -0,0 +1,6 @@
+-- 账户流水键集分页使用 (账户, timestamp, id) 组合索引，替换原单列账户索引，写入时索引数量不变
+-- 分区表上创建的索引会级联到所有分区
+CREATE INDEX IF NOT EXISTS idx_source_account_ts ON transactions (source_account, timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_destination_account_ts ON transactions (destination_account, timestamp, id);
+DROP INDEX IF EXISTS idx_source_account;
+DROP INDEX IF EXISTS idx_destination_account;
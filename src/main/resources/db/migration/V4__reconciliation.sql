@@ -0,0 +1,32 @@
+-- 日终对账：账户基线、对账批次及差异明细
+CREATE TABLE IF NOT EXISTS account_reconciliation (
+    account_number VARCHAR(255) PRIMARY KEY,
+    balance        FLOAT8 NOT NULL,
+    watermark_id   BIGINT NOT NULL,
+    watermark_time TIMESTAMP(6),
+    reconciled_at  TIMESTAMP(6)
+);
+
+CREATE TABLE IF NOT EXISTS reconciliation_runs (
+    id                   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status               VARCHAR(255),
+    started_at           TIMESTAMP(6),
+    finished_at          TIMESTAMP(6),
+    watermark_id         BIGINT NOT NULL,
+    accounts_checked     BIGINT NOT NULL,
+    accounts_initialized BIGINT NOT NULL,
+    discrepancies        BIGINT NOT NULL,
+    total_abs_difference FLOAT8 NOT NULL,
+    elapsed_millis       BIGINT NOT NULL,
+    message              VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS reconciliation_discrepancies (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    run_id           BIGINT,
+    account_number   VARCHAR(255),
+    expected_balance FLOAT8 NOT NULL,
+    actual_balance   FLOAT8 NOT NULL,
+    difference       FLOAT8 NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_discrepancy_run ON reconciliation_discrepancies (run_id);
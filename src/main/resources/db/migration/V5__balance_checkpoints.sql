@@ -0,0 +1,9 @@
+-- 余额检查点，按账户 + 时间查询最近检查点
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    account_number  VARCHAR(255),
+    checkpoint_time TIMESTAMP(6),
+    balance         FLOAT8 NOT NULL
+);
+CREATE UNIQUE INDEX IF NOT EXISTS idx_checkpoint_account_time ON balance_checkpoints (account_number, checkpoint_time);
+CREATE INDEX IF NOT EXISTS idx_checkpoint_time ON balance_checkpoints (checkpoint_time);
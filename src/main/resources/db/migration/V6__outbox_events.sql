@@ -0,0 +1,14 @@
+-- 事务发件箱，与余额更新同事务写入，由中继按ID顺序同步到Redis后删除
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    event_type      VARCHAR(32) NOT NULL,
+    account_id      BIGINT,
+    account_number  VARCHAR(255),
+    balance         FLOAT8 NOT NULL,
+    delta           FLOAT8 NOT NULL,
+    account_version BIGINT NOT NULL,
+    transaction_id  VARCHAR(255),
+    created_at      BIGINT NOT NULL
+);
+-- 写入后很快删除，死元组多，提高自动清理频率
+ALTER TABLE outbox_events SET (autovacuum_vacuum_scale_factor = 0.01, autovacuum_vacuum_threshold = 1000);
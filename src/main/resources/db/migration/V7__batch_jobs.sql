@@ -0,0 +1,31 @@
+-- 服务端批量任务：分块持久化提交的交易与逐块结果，游标之前的块均已完成，崩溃后由任一实例按租约接管
+CREATE TABLE IF NOT EXISTS batch_jobs (
+    batch_id                VARCHAR(255) PRIMARY KEY,
+    status                  VARCHAR(255),
+    netted                  BOOLEAN NOT NULL,
+    total_transactions      INTEGER NOT NULL,
+    chunk_size              INTEGER NOT NULL,
+    total_chunks            INTEGER NOT NULL,
+    next_chunk              INTEGER NOT NULL,
+    successful_transactions INTEGER NOT NULL,
+    failed_transactions     INTEGER NOT NULL,
+    owner                   VARCHAR(255),
+    lease_until             BIGINT NOT NULL,
+    created_at              TIMESTAMP(6),
+    updated_at              TIMESTAMP(6),
+    finished_at             TIMESTAMP(6)
+);
+CREATE INDEX IF NOT EXISTS idx_batch_job_status_lease ON batch_jobs (status, lease_until);
+
+CREATE TABLE IF NOT EXISTS batch_job_chunks (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    batch_id                VARCHAR(255),
+    chunk_index             INTEGER NOT NULL,
+    transaction_count       INTEGER NOT NULL,
+    transactions            TEXT,
+    results                 TEXT,
+    successful_transactions INTEGER NOT NULL,
+    failed_transactions     INTEGER NOT NULL,
+    completed_at            TIMESTAMP(6),
+    CONSTRAINT uk_batch_chunk UNIQUE (batch_id, chunk_index)
+);
@@ -0,0 +1,4 @@
+-- 账户额度：透支额度、最低余额和冻结金额，转出时在条件更新中校验 balance - amount >= minimum_balance - overdraft_limit + held_amount
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS overdraft_limit FLOAT8 NOT NULL DEFAULT 0;
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS minimum_balance FLOAT8 NOT NULL DEFAULT 0;
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS held_amount FLOAT8 NOT NULL DEFAULT 0;
@@ -0,0 +1,101 @@
+package com.sacred.balance;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 端到端冒烟测试：经过控制器、切面、JSON绑定、JPA和Redis完成转账与查询
+ * 同时作为 native image 的测试入口：mvn -PnativeTest -Dtest=NativeSmokeTest test，
+ * 用来发现反射、序列化和代理相关的可达性元数据缺失（见 BalanceRuntimeHints）
+ */
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class NativeSmokeTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldTransferAndQueryThroughTheApi() throws Exception {
+        accountRepository.save(new Account("N001", 100.0));
+        accountRepository.save(new Account("N002", 0.0));
+
+        mockMvc.perform(post("/api/transactions/single")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"transactionId\":\"NATIVE-1\",\"sourceAccount\":\"N001\",\"destinationAccount\":\"N002\",\"amount\":30}"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.success").value(true))
+            .andExpect(jsonPath("$.data.transactionId").value("NATIVE-1"));
+
+        // 重复提交按幂等处理
+        mockMvc.perform(post("/api/transactions/single")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"transactionId\":\"NATIVE-1\",\"sourceAccount\":\"N001\",\"destinationAccount\":\"N002\",\"amount\":30}"))
+            .andExpect(jsonPath("$.success").value(true));
+
+        mockMvc.perform(get("/api/transactions/result/NATIVE-1"))
+            .andExpect(jsonPath("$.success").value(true));
+
+        mockMvc.perform(get("/api/accounts/N001/balance"))
+            .andExpect(jsonPath("$.data.balance").value(70.0));
+        mockMvc.perform(get("/api/accounts/N002/balance"))
+            .andExpect(jsonPath("$.data.balance").value(30.0));
+    }
+
+    @Test
+    void shouldReturnErrorResponseForMissingAccount() throws Exception {
+        mockMvc.perform(post("/api/transactions/single")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sourceAccount\":\"N404\",\"destinationAccount\":\"N002\",\"amount\":1}"))
+            .andExpect(jsonPath("$.success").value(false))
+            .andExpect(jsonPath("$.code").value(404));
+    }
+
+    @Test
+    void shouldKeepErrorStatusForStreamingExport() throws Exception {
+        // CSV导出无法返回 ApiResponse，业务异常的状态码原样作为HTTP状态返回
+        mockMvc.perform(get("/api/accounts/N404/transactions/export").accept("text/csv"))
+            .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,93 @@
+package com.sacred.balance.benchmark;
+
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.service.ExecutionLanes;
+import com.sacred.balance.service.TransactionIdGenerator;
+import com.sacred.balance.service.TransactionIngestion;
+import com.sacred.balance.service.TransactionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接入环与请求线程直接记账的对比，两者执行的都是真实的 processTransaction（Redis和仓库为桩，见 StubbedTransferPath）
+ * 分区消费线程同步执行整笔转账，同时在途的转账数不超过分区数；roundTripMicros 为每次Redis往返的模拟延迟，
+ * 延迟不为0时 ring 的吞吐受分区数限制，direct 受请求线程数限制
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class IngestionRingBenchmark {
+
+    static final int ACCOUNTS = 4096;
+
+    @Param({"4"})
+    public int partitions;
+
+    @Param({"0", "500"})
+    public long roundTripMicros;
+
+    private final TransactionIdGenerator idGenerator = new TransactionIdGenerator();
+    private String[] accountNumbers;
+    private TransactionService transactionService;
+    private TransactionIngestion ingestion;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountNumbers = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNumbers[i] = "ACC" + i;
+        }
+        transactionService = StubbedTransferPath.transactionService(idGenerator,
+            TimeUnit.MICROSECONDS.toNanos(roundTripMicros));
+
+        ingestion = new TransactionIngestion();
+        StubbedTransferPath.inject(ingestion, "transactionService", transactionService);
+        StubbedTransferPath.inject(ingestion, "executionLanes", new ExecutionLanes());
+        StubbedTransferPath.inject(ingestion, "meterRegistry", new SimpleMeterRegistry());
+        StubbedTransferPath.inject(ingestion, "enabled", true);
+        StubbedTransferPath.inject(ingestion, "partitions", partitions);
+        StubbedTransferPath.inject(ingestion, "capacity", 16384);
+        StubbedTransferPath.inject(ingestion, "replyTimeoutMillis", 5000L);
+        ingestion.init();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        ingestion.shutdown();
+    }
+
+    @Benchmark
+    public TransactionResult ring() {
+        return ingestion.process(nextTransaction());
+    }
+
+    @Benchmark
+    public TransactionResult direct() {
+        return transactionService.processTransaction(nextTransaction());
+    }
+
+    private Transaction nextTransaction() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(idGenerator.nextId());
+        transaction.setSourceAccount(accountNumbers[random.nextInt(ACCOUNTS)]);
+        transaction.setDestinationAccount(accountNumbers[random.nextInt(ACCOUNTS)]);
+        transaction.setAmount(1.0);
+        return transaction;
+    }
+}
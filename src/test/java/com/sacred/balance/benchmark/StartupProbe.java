@@ -0,0 +1,55 @@
+package com.sacred.balance.benchmark;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.service.TransactionService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
+/**
+ * 在独立JVM中启动应用并完成第一笔转账，输出从JVM启动开始计算的耗时
+ * 输出格式：READY_MILLIS=... FIRST_TRANSFER_MILLIS=...，由 StartupTimeBenchmarkTest 解析
+ * 参数为额外的 Spring 命令行参数（如 --spring.profiles.active=startup）
+ */
+public class StartupProbe {
+
+    public static void main(String[] args) {
+        long jvmStart = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+        String[] arguments = new String[args.length + 7];
+        arguments[0] = "--spring.datasource.url=jdbc:h2:mem:startup";
+        arguments[1] = "--spring.datasource.driver-class-name=org.h2.Driver";
+        arguments[2] = "--spring.jpa.hibernate.ddl-auto=create-drop";
+        arguments[3] = "--spring.data.redis.database=1";
+        arguments[4] = "--server.port=0";
+        arguments[5] = "--balance.warmup.enabled=false";
+        arguments[6] = "--spring.flyway.enabled=false";
+        System.arraycopy(args, 0, arguments, 7, args.length);
+
+        ConfigurableApplicationContext context = SpringApplication.run(BalanceCalculationApplication.class, arguments);
+        long ready = System.currentTimeMillis() - jvmStart;
+
+        String suffix = UUID.randomUUID().toString().substring(0, 8);
+        AccountRepository accountRepository = context.getBean(AccountRepository.class);
+        accountRepository.save(new Account("SRC-" + suffix, 100.0));
+        accountRepository.save(new Account("DST-" + suffix, 0.0));
+
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId("STARTUP-" + suffix);
+        transaction.setSourceAccount("SRC-" + suffix);
+        transaction.setDestinationAccount("DST-" + suffix);
+        transaction.setAmount(1.0);
+        TransactionResult result = context.getBean(TransactionService.class).processTransaction(transaction);
+        long firstTransfer = System.currentTimeMillis() - jvmStart;
+
+        System.out.println("READY_MILLIS=" + ready + " FIRST_TRANSFER_MILLIS=" + firstTransfer
+            + " SUCCESS=" + result.isSuccess());
+        System.exit(SpringApplication.exit(context, () -> result.isSuccess() ? 0 : 1));
+    }
+}
@@ -0,0 +1,77 @@
+package com.sacred.balance.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比默认配置与 startup profile 的启动耗时和首笔转账耗时
+ * 每种配置在全新JVM中启动若干次取中位数，避免同一JVM中类加载和JIT的影响
+ * 运行：mvn test -Pbenchmark（需要本地Redis）；AOT和CDS依赖打包产物，用 target/cds 中的启动命令单独测量
+ */
+@Tag("benchmark")
+class StartupTimeBenchmarkTest {
+
+    private static final int RUNS = 3;
+    private static final Pattern OUTPUT = Pattern.compile("READY_MILLIS=(\\d+) FIRST_TRANSFER_MILLIS=(\\d+) SUCCESS=(\\w+)");
+
+    @Test
+    void startupProfileShouldReachFirstTransferFaster() throws Exception {
+        long[] baseline = measure();
+        long[] optimized = measure("--spring.profiles.active=startup");
+
+        System.out.printf("default: ready %d ms, first transfer %d ms%n", baseline[0], baseline[1]);
+        System.out.printf("startup: ready %d ms, first transfer %d ms%n", optimized[0], optimized[1]);
+        assertTrue(optimized[1] < baseline[1],
+                  "startup profile first transfer " + optimized[1] + " ms, default " + baseline[1] + " ms");
+    }
+
+    /**
+     * 返回 [就绪耗时中位数, 首笔转账耗时中位数]
+     */
+    private static long[] measure(String... arguments) throws Exception {
+        long[] ready = new long[RUNS];
+        long[] firstTransfer = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(StartupProbe.class.getName());
+            command.addAll(Arrays.asList(arguments));
+
+            Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+            Matcher matched = null;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Matcher matcher = OUTPUT.matcher(line);
+                    if (matcher.find()) {
+                        matched = matcher;
+                    }
+                }
+            }
+            assertTrue(process.waitFor(2, TimeUnit.MINUTES), "Startup probe did not exit");
+            assertNotNull(matched, "Startup probe produced no timing output");
+            assertEquals("true", matched.group(3), "First transfer failed");
+            ready[i] = Long.parseLong(matched.group(1));
+            firstTransfer[i] = Long.parseLong(matched.group(2));
+        }
+        Arrays.sort(ready);
+        Arrays.sort(firstTransfer);
+        return new long[] {ready[RUNS / 2], firstTransfer[RUNS / 2]};
+    }
+}
@@ -0,0 +1,231 @@
+package com.sacred.balance.benchmark;
+
+import ch.qos.logback.classic.Level;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.OutboxEventRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import com.sacred.balance.service.AccountService;
+import com.sacred.balance.service.ExecutionLanes;
+import com.sacred.balance.service.LocalBalanceStore;
+import com.sacred.balance.service.OutboxRelay;
+import com.sacred.balance.service.TransactionIdFilter;
+import com.sacred.balance.service.TransactionIdGenerator;
+import com.sacred.balance.service.TransactionOutbox;
+import com.sacred.balance.service.TransactionService;
+import com.sacred.balance.service.VelocityLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 组装一个走真实转账代码路径的 TransactionService：AccountService、发件箱、交易ID过滤器和事务模板都是真实实现，
+ * Redis连接和JPA仓库替换为不做I/O的桩，事务管理器不连接数据库。
+ * 可选的往返延迟在每次取得Redis连接时休眠，模拟网络上的一次往返；日志只输出 WARN 及以上
+ */
+final class StubbedTransferPath {
+
+    // 领取脚本首次领取成功的返回值 {3}
+    private static final List<Object> CLAIM_ACQUIRED = List.of(3L);
+
+    private StubbedTransferPath() {
+    }
+
+    static TransactionService transactionService(TransactionIdGenerator idGenerator, long roundTripNanos) {
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        RedisConnectionFactory connectionFactory = stub(RedisConnectionFactory.class, (proxy, method, args) -> {
+            if (!"getConnection".equals(method.getName())) {
+                return defaultValue(proxy, method, args);
+            }
+            if (roundTripNanos > 0) {
+                LockSupport.parkNanos(roundTripNanos);
+            }
+            return StubConnection.open();
+        });
+        RedisTemplate<String, String> stringRedisTemplate = new RedisTemplate<>();
+        stringRedisTemplate.setConnectionFactory(connectionFactory);
+        stringRedisTemplate.setDefaultSerializer(StringRedisSerializer.UTF_8);
+        stringRedisTemplate.afterPropertiesSet();
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(connectionFactory);
+        redisTemplate.afterPropertiesSet();
+
+        AccountRepository accountRepository = stub(AccountRepository.class, (proxy, method, args) -> switch (method.getName()) {
+            case "debitWithinLimits", "credit" -> 1;
+            case "findByAccountNumber" -> Optional.of(new Account((String) args[0], 1_000_000.0));
+            default -> defaultValue(proxy, method, args);
+        });
+        TransactionRepository transactionRepository = stub(TransactionRepository.class, (proxy, method, args) ->
+            "save".equals(method.getName()) ? args[0] : defaultValue(proxy, method, args));
+        OutboxEventRepository outboxEventRepository = stub(OutboxEventRepository.class, (proxy, method, args) ->
+            "save".equals(method.getName()) ? args[0] : defaultValue(proxy, method, args));
+
+        TransactionOutbox transactionOutbox = new TransactionOutbox();
+        inject(transactionOutbox, "outboxEventRepository", outboxEventRepository);
+        inject(transactionOutbox, "outboxRelay", new OutboxRelay());
+        inject(transactionOutbox, "localBalanceStore", new LocalBalanceStore());
+
+        AccountService accountService = new AccountService();
+        inject(accountService, "accountRepository", accountRepository);
+        inject(accountService, "transactionOutbox", transactionOutbox);
+
+        // 交易ID过滤器按默认配置开启，频率限制按默认配置关闭
+        TransactionIdFilter transactionIdFilter = new TransactionIdFilter();
+        inject(transactionIdFilter, "meterRegistry", new SimpleMeterRegistry());
+        inject(transactionIdFilter, "enabled", true);
+        inject(transactionIdFilter, "memoryMb", 32L);
+        inject(transactionIdFilter, "falsePositiveRate", 0.01);
+        inject(transactionIdFilter, "windowHours", 48L);
+        transactionIdFilter.init();
+
+        TransactionService transactionService = new TransactionService();
+        inject(transactionService, "accountService", accountService);
+        inject(transactionService, "transactionRepository", transactionRepository);
+        inject(transactionService, "accountRepository", accountRepository);
+        inject(transactionService, "redisTemplate", redisTemplate);
+        inject(transactionService, "stringRedisTemplate", stringRedisTemplate);
+        inject(transactionService, "transactionIdGenerator", idGenerator);
+        inject(transactionService, "transactionOutbox", transactionOutbox);
+        inject(transactionService, "transactionIdFilter", transactionIdFilter);
+        inject(transactionService, "velocityLimiter", new VelocityLimiter());
+        inject(transactionService, "executionLanes", new ExecutionLanes());
+        inject(transactionService, "transactionManager", new NoOpTransactionManager());
+        inject(transactionService, "legacyKeyFallback", true);
+        return transactionService;
+    }
+
+    static void inject(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalArgumentException(target.getClass().getSimpleName() + " has no field " + name);
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    /**
+     * Object 方法按代理对象自身实现，其余方法返回返回类型的默认值
+     */
+    private static Object defaultValue(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "stub " + method.getDeclaringClass().getSimpleName();
+            default:
+                break;
+        }
+        Class<?> type = method.getReturnType();
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    /**
+     * 不做网络访问的Redis连接：领取脚本总是首次领取成功，读取不到任何键，写入和删除都成功；
+     * 管道模式下按命令顺序收集结果，closePipeline 时一并返回
+     */
+    private static final class StubConnection implements InvocationHandler {
+
+        private List<Object> pipelined;
+
+        static RedisConnection open() {
+            return stub(RedisConnection.class, new StubConnection());
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "scriptingCommands":
+                case "stringCommands":
+                case "keyCommands":
+                    return proxy;
+                case "openPipeline":
+                    pipelined = new ArrayList<>();
+                    return null;
+                case "closePipeline":
+                    List<Object> results = pipelined;
+                    pipelined = null;
+                    return results;
+                case "isPipelined":
+                    return pipelined != null;
+                case "evalSha":
+                    return reply(CLAIM_ACQUIRED);
+                case "get":
+                    return reply(null);
+                case "set":
+                    return reply(Boolean.TRUE);
+                case "del":
+                    return reply(1L);
+                default:
+                    return defaultValue(proxy, method, args);
+            }
+        }
+
+        private Object reply(Object value) {
+            if (pipelined == null) {
+                return value;
+            }
+            pipelined.add(value);
+            return null;
+        }
+    }
+
+    /**
+     * 不连接数据库的事务管理器，事务同步照常生效，发件箱的提交后回调会执行
+     */
+    @SuppressWarnings("serial")
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
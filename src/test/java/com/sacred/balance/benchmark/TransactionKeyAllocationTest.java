@@ -0,0 +1,61 @@
+package com.sacred.balance.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 通过JMH GC profiler验证每笔交易键、开始时间和交易ID的分配量
+ * 运行：mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class TransactionKeyAllocationTest {
+
+    // 每次操作允许的最大分配字节数（交易ID字符串 + 三个键 + 时间戳编码）
+    private static final double MAX_BYTES_PER_OP = 768;
+
+    @Test
+    void transactionKeysShouldAllocateFarLessThanLegacyKeys() throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TransactionKeyBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(3)
+            .measurementTime(TimeValue.seconds(1))
+            .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+
+        double legacy = allocatedBytesPerOp(results, "legacy");
+        double current = allocatedBytesPerOp(results, "current");
+
+        assertTrue(current <= MAX_BYTES_PER_OP,
+                  "Transaction keys allocate " + current + " B/op, budget " + MAX_BYTES_PER_OP);
+        assertTrue(current * 2 < legacy,
+                  "Transaction keys (" + current + " B/op) should allocate less than half of legacy (" + legacy + " B/op)");
+    }
+
+    private static double allocatedBytesPerOp(Collection<RunResult> results, String benchmark) {
+        for (RunResult result : results) {
+            if (result.getParams().getBenchmark().endsWith("." + benchmark)) {
+                Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+                assertNotNull(allocation, "GC profiler result missing for " + benchmark);
+                return allocation.getScore();
+            }
+        }
+        fail("Benchmark result missing: " + benchmark);
+        return 0;
+    }
+}
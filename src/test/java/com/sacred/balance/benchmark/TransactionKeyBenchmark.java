@@ -0,0 +1,57 @@
+package com.sacred.balance.benchmark;
+
+import com.sacred.balance.service.TransactionIdGenerator;
+import com.sacred.balance.service.TransactionKeys;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每笔交易的Redis键构造、开始时间编解码和交易ID生成开销，不含Redis和数据库访问本身
+ * legacy 为改造前的写法，current 为当前写法；配合 GC profiler 对比每次操作的分配字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransactionKeyBenchmark {
+
+    private final TransactionIdGenerator idGenerator = new TransactionIdGenerator();
+    private final String transactionId = "TX9f3c2a1b7d4e";
+
+    @Benchmark
+    public void legacy(Blackhole blackhole) {
+        String generatedId = UUID.randomUUID().toString();
+        String lockKey = "transaction:lock:" + transactionId;
+        String idempotentKey = "transaction:idempotent:" + transactionId;
+        String startTimeKey = idempotentKey + ":starttime";
+        String startTime = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
+        long minutesElapsed = java.time.Duration.between(LocalDateTime.parse(startTime), LocalDateTime.now()).toMinutes();
+
+        blackhole.consume(generatedId);
+        blackhole.consume(lockKey);
+        blackhole.consume(startTimeKey);
+        blackhole.consume(minutesElapsed);
+    }
+
+    @Benchmark
+    public void current(Blackhole blackhole) {
+        String generatedId = idGenerator.nextId();
+        TransactionKeys keys = TransactionKeys.of(transactionId);
+        byte[] startTime = TransactionKeys.encodeStartTime(System.currentTimeMillis());
+        long elapsedMillis = System.currentTimeMillis() - TransactionKeys.parseStartTimeMillis(startTime);
+
+        blackhole.consume(generatedId);
+        blackhole.consume(keys.lock());
+        blackhole.consume(keys.startTime());
+        blackhole.consume(elapsedMillis);
+    }
+}
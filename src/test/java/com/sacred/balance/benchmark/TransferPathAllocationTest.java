@@ -0,0 +1,47 @@
+package com.sacred.balance.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 通过JMH GC profiler验证一笔转账走完 processTransaction 的分配量（Redis连接和JPA仓库为桩）
+ * 运行：mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class TransferPathAllocationTest {
+
+    // 每笔转账允许的最大分配字节数；实测约3.5KB，其中包含桩的反射参数数组和账户对象
+    private static final double MAX_BYTES_PER_OP = 6 * 1024;
+
+    @Test
+    void transferShouldStayWithinAllocationBudget() throws Exception {
+        Options options = new OptionsBuilder()
+            .include(TransferPathBenchmark.class.getName())
+            .addProfiler(GCProfiler.class)
+            .forks(1)
+            .warmupIterations(3)
+            .warmupTime(TimeValue.seconds(1))
+            .measurementIterations(3)
+            .measurementTime(TimeValue.seconds(1))
+            .build();
+
+        Collection<RunResult> results = new Runner(options).run();
+        assertEquals(1, results.size(), "Benchmark result missing: transfer");
+
+        Result<?> allocation = results.iterator().next().getSecondaryResults().get("gc.alloc.rate.norm");
+        assertNotNull(allocation, "GC profiler result missing for transfer");
+        assertTrue(allocation.getScore() <= MAX_BYTES_PER_OP,
+                  "Transfer path allocates " + allocation.getScore() + " B/op, budget " + MAX_BYTES_PER_OP);
+    }
+}
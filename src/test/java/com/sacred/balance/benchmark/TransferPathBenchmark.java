@@ -0,0 +1,48 @@
+package com.sacred.balance.benchmark;
+
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.service.TransactionIdGenerator;
+import com.sacred.balance.service.TransactionService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单笔转账经过 TransactionService.processTransaction 的完整代码路径：领取脚本、交易ID过滤器、事务模板、
+ * 扣款入账、交易记录、发件箱和释放锁。Redis连接和JPA仓库替换为不做I/O的桩（见 StubbedTransferPath），
+ * 结果只反映本服务自身的CPU和分配开销，不含网络、数据库和日志输出
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferPathBenchmark {
+
+    private final TransactionIdGenerator idGenerator = new TransactionIdGenerator();
+    private TransactionService transactionService;
+
+    @Setup
+    public void setUp() {
+        transactionService = StubbedTransferPath.transactionService(idGenerator, 0);
+    }
+
+    @Benchmark
+    public TransactionResult transfer() {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(idGenerator.nextId());
+        transaction.setSourceAccount("ACC000001");
+        transaction.setDestinationAccount("ACC000002");
+        transaction.setAmount(10.0);
+        TransactionResult result = transactionService.processTransaction(transaction);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException("Transfer failed: " + result.getMessage());
+        }
+        return result;
+    }
+}
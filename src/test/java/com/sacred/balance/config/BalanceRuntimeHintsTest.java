@@ -0,0 +1,40 @@
+package com.sacred.balance.config;
+
+import com.sacred.balance.aspect.PerformanceAspect;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.ApiResponse;
+import com.sacred.balance.model.TransactionResult;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BalanceRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    BalanceRuntimeHintsTest() {
+        new BalanceRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void shouldRegisterCachedAccountForSerialization() {
+        assertTrue(RuntimeHintsPredicates.serialization().onType(Account.class).test(hints));
+    }
+
+    @Test
+    void shouldRegisterApiModelsForJsonBinding() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(ApiResponse.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+            .onMethod(TransactionResult.class.getMethod("getTransactionId")).test(hints));
+    }
+
+    @Test
+    void shouldRegisterAspectAdviceMethods() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection()
+            .onMethod(PerformanceAspect.class.getMethod("logExecutionTime", ProceedingJoinPoint.class))
+            .test(hints));
+    }
+}
@@ -0,0 +1,25 @@
+package com.sacred.balance.config;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataSourcePoolConfigTest {
+
+    @Test
+    void shouldSizePoolFromCoresAndSpindles() {
+        assertEquals(9, DataSourcePoolConfig.poolSize(4, 1, 0));
+        assertEquals(17, DataSourcePoolConfig.poolSize(8, 1, 0));
+    }
+
+    @Test
+    void shouldNotExceedRedisPool() {
+        assertEquals(8, DataSourcePoolConfig.poolSize(8, 1, 8));
+        assertEquals(9, DataSourcePoolConfig.poolSize(4, 1, 64));
+    }
+
+    @Test
+    void shouldKeepMinimumPool() {
+        assertEquals(2, DataSourcePoolConfig.poolSize(1, 0, 1));
+    }
+}
@@ -0,0 +1,55 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.spi.ThrowableProxy;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonLineEncoderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final JsonLineEncoder encoder = new JsonLineEncoder();
+
+    JsonLineEncoderTest() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        encoder.setContext(context);
+        encoder.start();
+    }
+
+    @Test
+    void shouldEncodeEventAsOneEscapedJsonLine() {
+        LoggingEvent event = event(Level.WARN, "Account \"{}\" not found\n", "A001");
+
+        String json = new String(encoder.encode(event), StandardCharsets.UTF_8);
+
+        assertEquals("{\"ts\":1700000000000,\"level\":\"WARN\",\"logger\":\"com.sacred.balance.service.AccountService\","
+            + "\"thread\":\"http-nio-1\",\"msg\":\"Account \\\"A001\\\" not found\\n\"}\n", json);
+    }
+
+    @Test
+    void shouldIncludeStackTrace() {
+        LoggingEvent event = event(Level.ERROR, "Update failed");
+        event.setThrowableProxy(new ThrowableProxy(new IllegalStateException("boom")));
+
+        String json = new String(encoder.encode(event), StandardCharsets.UTF_8);
+
+        assertTrue(json.contains(",\"stack\":\"java.lang.IllegalStateException: boom\\n\\tat "));
+        assertTrue(json.endsWith("}\n"));
+        assertEquals(1, json.split("\n").length);
+    }
+
+    private LoggingEvent event(Level level, String message, Object... arguments) {
+        Logger logger = context.getLogger("com.sacred.balance.service.AccountService");
+        LoggingEvent event = new LoggingEvent(Logger.class.getName(), logger, level, message, null, arguments);
+        event.setThreadName("http-nio-1");
+        event.setTimeStamp(1700000000000L);
+        return event;
+    }
+}
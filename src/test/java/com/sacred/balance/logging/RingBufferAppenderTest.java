@@ -0,0 +1,129 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.AppenderBase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RingBufferAppenderTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final Logger logger = context.getLogger("test");
+    private RingBufferAppender appender;
+
+    RingBufferAppenderTest() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (appender != null) {
+            appender.stop();
+        }
+    }
+
+    @Test
+    void shouldDeliverEventsFromManyThreadsInPublishOrderPerThread() throws Exception {
+        CollectingAppender sink = new CollectingAppender(null);
+        appender = start(sink, 1024);
+
+        int threads = 4;
+        int perThread = 5_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    while (appender.size() >= appender.getCapacity() - threads) {
+                        Thread.onSpinWait();
+                    }
+                    appender.doAppend(event(Level.INFO, thread + ":" + i));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        appender.stop();
+
+        assertEquals(threads * perThread, sink.events.size());
+        assertEquals(0, appender.getDropped(Level.INFO));
+        int[] next = new int[threads];
+        for (ILoggingEvent event : sink.events) {
+            String[] parts = event.getMessage().split(":");
+            int thread = Integer.parseInt(parts[0]);
+            assertEquals(next[thread]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    @Test
+    void shouldDropAndCountWhenFullInsteadOfBlocking() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingAppender sink = new CollectingAppender(release);
+        appender = start(sink, 8);
+        appender.setWarnSpinMillis(0);
+
+        // 后台线程卡在第一条事件上，之后最多再放入8条
+        for (int i = 0; i < 20; i++) {
+            appender.doAppend(event(Level.INFO, "event " + i));
+        }
+
+        long dropped = appender.getDropped(Level.INFO);
+        assertTrue(dropped >= 11, "dropped " + dropped);
+        assertEquals(0, appender.getDropped(Level.ERROR));
+
+        release.countDown();
+        appender.stop();
+        assertEquals(20 - dropped, sink.events.size());
+    }
+
+    private RingBufferAppender start(CollectingAppender sink, int bufferSize) {
+        sink.setContext(context);
+        sink.start();
+        RingBufferAppender ring = new RingBufferAppender();
+        ring.setContext(context);
+        ring.setName("ring");
+        ring.setBufferSize(bufferSize);
+        ring.addAppender(sink);
+        ring.start();
+        return ring;
+    }
+
+    private LoggingEvent event(Level level, String message) {
+        return new LoggingEvent(Logger.class.getName(), logger, level, message, null, null);
+    }
+
+    private static class CollectingAppender extends AppenderBase<ILoggingEvent> {
+        private final List<ILoggingEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch release;
+
+        CollectingAppender(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        protected void append(ILoggingEvent event) {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            events.add(event);
+        }
+    }
+}
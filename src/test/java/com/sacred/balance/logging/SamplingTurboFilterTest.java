@@ -0,0 +1,53 @@
+package com.sacred.balance.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.util.LogbackMDCAdapter;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingTurboFilterTest {
+
+    private final LoggerContext context = new LoggerContext();
+    private final ListAppender<ILoggingEvent> sink = new ListAppender<>();
+    private SamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        context.setMDCAdapter(new LogbackMDCAdapter());
+        sink.setContext(context);
+        sink.start();
+        context.getLogger(Logger.ROOT_LOGGER_NAME).addAppender(sink);
+        context.getLogger(Logger.ROOT_LOGGER_NAME).setLevel(Level.INFO);
+
+        filter = new SamplingTurboFilter();
+        filter.setContext(context);
+        filter.setLogger("com.sacred.balance.service.TransactionService");
+        filter.setSampleRate(10);
+        filter.start();
+        context.addTurboFilter(filter);
+    }
+
+    @Test
+    void shouldSampleInfoButKeepWarningsAndOtherLoggers() {
+        Logger sampled = context.getLogger("com.sacred.balance.service.TransactionService");
+        Logger other = context.getLogger("com.sacred.balance.service.AccountService");
+
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sampled.isInfoEnabled());
+            sampled.info("Transaction processed successfully. Transaction ID: {}", i);
+            sampled.debug("below the logger level: {}", i);
+        }
+        sampled.warn("Insufficient balance");
+        other.info("Account balance updated");
+
+        // 100条INFO保留10条，WARN和其他logger不受影响，低于生效级别的DEBUG不占采样名额
+        assertEquals(12, sink.list.size());
+        assertEquals(90, filter.getSampledOut());
+    }
+}
@@ -0,0 +1,88 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.ImportResult;
+import com.sacred.balance.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1", // 使用Redis数据库1进行测试
+        "balance.import.chunk-size=2"
+})
+class AccountImportServiceTest {
+
+    @Autowired
+    private AccountImportService accountImportService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldImportAccountsInChunks() throws Exception {
+        String csv = "id,accountNumber,balance\n" +
+                     "1,IMP001,100.50\n" +
+                     "2,IMP002,200.00\n" +
+                     "3,IMP003,not-a-number\n" +
+                     "4,IMP004,400.25\n";
+
+        ImportResult result = accountImportService.importAccounts(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+
+        assertEquals(4, result.getRowsRead());
+        assertEquals(3, result.getRowsImported());
+        assertEquals(1, result.getRowsRejected());
+        assertEquals(2, result.getChunks());
+
+        Optional<Account> account = accountRepository.findByAccountNumber("IMP004");
+        assertTrue(account.isPresent());
+        assertEquals(400.25, account.get().getBalance());
+
+        // 余额视图已预热
+        assertEquals("0:100.5", stringRedisTemplate.opsForValue().get("account:balance:{IMP001}"));
+    }
+
+    @Test
+    void shouldSkipExistingAccounts() throws Exception {
+        accountRepository.save(new Account("IMP010", 10.0));
+        String csv = "IMP010,999.0\nIMP011,11.0\nIMP011,12.0\n";
+
+        ImportResult result = accountImportService.importAccounts(
+            new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), false);
+
+        assertEquals(3, result.getRowsRead());
+        assertEquals(1, result.getRowsImported());
+        assertEquals(2, result.getRowsSkipped());
+
+        // 已存在的账户余额不被覆盖
+        assertEquals(10.0, accountRepository.findByAccountNumber("IMP010").get().getBalance());
+        assertEquals(11.0, accountRepository.findByAccountNumber("IMP011").get().getBalance());
+    }
+}
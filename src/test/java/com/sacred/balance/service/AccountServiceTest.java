@@ -2,6 +2,7 @@ package com.sacred.balance.service;
 
 import com.sacred.BalanceCalculationApplication;
 import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountLimits;
 import com.sacred.balance.repository.AccountRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -24,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
         "spring.datasource.url=jdbc:h2:mem:testdb",
         "spring.datasource.driver-class-name=org.h2.Driver",
         "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
         "spring.data.redis.database=1" // 使用Redis数据库1进行测试
 
         })
@@ -49,6 +51,9 @@ class AccountServiceTest {
         if (cacheManager.getCache("accounts") != null) {
             cacheManager.getCache("accounts").clear();
         }
+
+        // 清空Redis中的测试数据（余额视图带版本号，残留的旧视图会挡住缓存刷新）
+        redisTemplate.getConnectionFactory().getConnection().flushAll();
     }
 
     @Test
@@ -102,13 +107,13 @@ class AccountServiceTest {
         assertEquals(300.0, accountFromService.get().getBalance());
 
         // 验证缓存中存在该账户
-        Object cachedAccount = redisTemplate.opsForValue().get("accounts::A004");
+        Object cachedAccount = redisTemplate.opsForValue().get("accounts::{A004}");
         assertNotNull(cachedAccount);
         assertEquals(300.0, ((Account) cachedAccount).getBalance());
     }
 
     @Test
-    void shouldUpdateCacheWhenAccountIsModified() {
+    void shouldUpdateCacheWhenAccountIsModified() throws InterruptedException {
         // 准备测试数据
         Account account = new Account("A005", 400.0);
         Account savedAccount = accountRepository.save(account);
@@ -122,8 +127,14 @@ class AccountServiceTest {
         // 验证更新成功
         assertTrue(updated);
 
-        // 验证缓存中数据已更新
-        Object cachedAccount = redisTemplate.opsForValue().get("accounts::A005");
+        // 验证缓存中数据已更新（由发件箱中继在提交后异步写入）
+        Object cachedAccount = redisTemplate.opsForValue().get("accounts::{A005}");
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((cachedAccount == null || ((Account) cachedAccount).getBalance() != 500.0)
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            cachedAccount = redisTemplate.opsForValue().get("accounts::{A005}");
+        }
         assertNotNull(cachedAccount);
         assertEquals(500.0, ((Account) cachedAccount).getBalance());
 
@@ -210,4 +221,50 @@ class AccountServiceTest {
         // 验证重试机制确实被触发（通过日志可以观察到，这里通过结果验证）
         assertTrue(finalAccount.get().getBalance() <= 275.0, "Balance should not exceed maximum possible");
     }
+
+    @Test
+    void shouldDebitDownToTheFloorSetByLimits() {
+        accountRepository.save(new Account("A009", 100.0));
+        // 下限 = 最低余额10 - 透支额度50 + 冻结20 = -20
+        assertTrue(accountService.updateLimits("A009", new AccountLimits(50.0, 10.0, 20.0)));
+
+        assertTrue(accountService.debit("A009", 121.0, "TL01").isEmpty());
+        Optional<Account> debited = accountService.debit("A009", 120.0, "TL02");
+        assertTrue(debited.isPresent());
+        assertEquals(-20.0, debited.get().getBalance());
+        assertEquals(1, debited.get().getVersion());
+        assertTrue(accountService.debit("A009", 0.01, "TL03").isEmpty());
+
+        assertTrue(accountService.debit("NON_EXISTENT", 1.0, "TL04").isEmpty());
+        assertFalse(accountService.exists("NON_EXISTENT"));
+        assertFalse(accountService.updateLimits("NON_EXISTENT", new AccountLimits()));
+    }
+
+    @Test
+    void shouldNeverOverdrawUnderConcurrentDebits() throws InterruptedException {
+        accountRepository.save(new Account("A010", 100.0));
+
+        int threadCount = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+        AtomicInteger successCount = new AtomicInteger(0);
+        for (int i = 0; i < threadCount; i++) {
+            String transactionId = "TL1" + i;
+            executor.submit(() -> {
+                try {
+                    if (accountService.debit("A010", 30.0, transactionId).isPresent()) {
+                        successCount.incrementAndGet();
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        executor.shutdown();
+
+        // 条件更新由行锁串行，只有3笔能在余额内扣款
+        assertEquals(3, successCount.get());
+        assertEquals(10.0, accountRepository.findByAccountNumber("A010").get().getBalance());
+    }
 }
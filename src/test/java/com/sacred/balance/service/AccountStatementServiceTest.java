@@ -0,0 +1,154 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.StatementEntry;
+import com.sacred.balance.model.StatementPage;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class AccountStatementServiceTest {
+
+    @Autowired
+    private AccountStatementService accountStatementService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+
+        accountRepository.save(new Account("S001", 1000.0));
+        accountRepository.save(new Account("S002", 1000.0));
+        accountRepository.save(new Account("S003", 1000.0));
+    }
+
+    @Test
+    void shouldPageThroughDebitsAndCreditsWithoutGapsOrDuplicates() {
+        for (int i = 0; i < 25; i++) {
+            if (i % 3 == 0) {
+                saveTransaction("TX-" + i, "S002", "S001", i + 1);
+            } else {
+                saveTransaction("TX-" + i, "S001", "S003", i + 1);
+            }
+        }
+        // 与查询账户无关的交易不应出现
+        saveTransaction("TX-OTHER", "S002", "S003", 1);
+
+        List<StatementEntry> all = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            StatementPage page = accountStatementService.getStatement("S001", null, null, cursor, 10);
+            all.addAll(page.getEntries());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(25, all.size());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < all.size(); i++) {
+            StatementEntry entry = all.get(i);
+            assertTrue(ids.add(entry.getTransactionId()));
+            if (i > 0) {
+                StatementEntry previous = all.get(i - 1);
+                assertFalse(entry.getTimestamp().isAfter(previous.getTimestamp()));
+                assertTrue(entry.getTimestamp().isBefore(previous.getTimestamp()) || entry.getId() < previous.getId());
+            }
+            boolean credit = "S002".equals(entry.getCounterparty());
+            assertEquals(credit ? StatementEntry.CREDIT : StatementEntry.DEBIT, entry.getDirection());
+        }
+        // 最新的记录排在最前
+        assertEquals("TX-24", all.get(0).getTransactionId());
+    }
+
+    @Test
+    void shouldListSelfTransferOnce() {
+        saveTransaction("TX-SELF", "S001", "S001", 5);
+
+        StatementPage page = accountStatementService.getStatement("S001", null, null, null, 10);
+
+        assertEquals(1, page.getEntries().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void shouldFilterByTimeRange() {
+        saveTransaction("TX-1", "S001", "S002", 5);
+
+        LocalDateTime future = LocalDateTime.now().plusDays(1);
+        assertTrue(accountStatementService.getStatement("S001", future, null, null, 10).getEntries().isEmpty());
+        assertEquals(1, accountStatementService.getStatement("S001", null, future, null, 10).getEntries().size());
+    }
+
+    @Test
+    void shouldExportAllPages() {
+        for (int i = 0; i < 1500; i++) {
+            saveTransaction("TX-" + i, i % 2 == 0 ? "S001" : "S002", i % 2 == 0 ? "S002" : "S001", 1);
+        }
+
+        List<StatementEntry> exported = new ArrayList<>();
+        accountStatementService.exportStatement("S001", null, null, exported::addAll);
+
+        assertEquals(1500, exported.size());
+    }
+
+    @Test
+    void shouldRejectUnknownAccountAndInvalidCursor() {
+        BusinessException notFound = assertThrows(BusinessException.class,
+            () -> accountStatementService.getStatement("NOPE", null, null, null, 10));
+        assertEquals(404, notFound.getCode());
+
+        BusinessException badCursor = assertThrows(BusinessException.class,
+            () -> accountStatementService.getStatement("S001", null, null, "not-a-cursor", 10));
+        assertEquals(400, badCursor.getCode());
+
+        assertThrows(BusinessException.class,
+            () -> accountStatementService.getStatement("S001", null, null, null, 0));
+    }
+
+    private void saveTransaction(String transactionId, String source, String destination, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        transactionRepository.save(transaction);
+    }
+}
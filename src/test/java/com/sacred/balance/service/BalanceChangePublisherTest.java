@@ -0,0 +1,84 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.BalanceChangeEvent;
+import com.sacred.balance.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class BalanceChangePublisherTest {
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private BalanceChangePublisher balanceChangePublisher;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldPublishBalanceChangesToStream() throws Exception {
+        accountRepository.save(new Account("EV001", 100.0));
+
+        accountService.updateBalance("EV001", -30.0, "EV-TX-1");
+        accountService.updateBalance("EV001", 10.0);
+
+        // 事件写入发件箱，由中继线程批量发布
+        List<BalanceChangeEvent> events = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (events.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            events.clear();
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                .range(balanceChangePublisher.getStreamKey(), Range.unbounded());
+            for (MapRecord<String, Object, Object> record : records) {
+                events.add(BalanceChangeEvent.fromFields(record.getId().getValue(), record.getValue()));
+            }
+        }
+
+        assertEquals(2, events.size());
+        BalanceChangeEvent first = events.get(0);
+        assertEquals("EV001", first.getAccountNumber());
+        assertEquals(-30.0, first.getDelta());
+        assertEquals(70.0, first.getBalance());
+        assertEquals(1L, first.getSequence());
+        assertEquals("EV-TX-1", first.getTransactionId());
+
+        BalanceChangeEvent second = events.get(1);
+        assertEquals(80.0, second.getBalance());
+        assertEquals(2L, second.getSequence());
+        assertNull(second.getTransactionId());
+    }
+}
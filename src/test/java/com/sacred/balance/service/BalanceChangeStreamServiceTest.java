@@ -0,0 +1,207 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class BalanceChangeStreamServiceTest {
+
+    @Autowired
+    private BalanceChangeStreamService balanceChangeStreamService;
+
+    @Autowired
+    private BalanceChangePublisher balanceChangePublisher;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldPushLiveChangesForSubscribedAccounts() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        balanceChangeStreamService.subscribe(emitter, List.of("SS001"), null);
+
+        String first = publish("SS001");
+        publish("SS002");
+        String second = publish("SS001");
+
+        awaitTrue(() -> emitter.ids.size() >= 2);
+        assertEquals(List.of(first, second), emitter.ids);
+    }
+
+    @Test
+    void shouldResumeAfterOffsetWithoutDuplicates() throws Exception {
+        String first = publish("SS003");
+        String second = publish("SS003");
+        String third = publish("SS003");
+
+        RecordingEmitter emitter = new RecordingEmitter(null);
+        balanceChangeStreamService.subscribe(emitter, null, first);
+        // 补齐期间写入的消息既可能由补齐读到，也会由分发线程推送，只应送达一次
+        String fourth = publish("SS003");
+        String fifth = publish("SS003");
+
+        awaitTrue(() -> emitter.ids.size() >= 4);
+        Thread.sleep(200);
+        assertEquals(List.of(second, third, fourth, fifth), emitter.ids);
+    }
+
+    @Test
+    void shouldResumeFromLastEventIdHeader() throws Exception {
+        String first = publish("SS004");
+        String second = publish("SS004");
+
+        MvcResult result = mockMvc.perform(get("/api/balance-changes/stream")
+                .param("accounts", "SS004")
+                .header("Last-Event-ID", first))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+
+        awaitTrue(() -> content(result).contains("id:" + second));
+        assertFalse(content(result).contains("id:" + first + "\n"));
+    }
+
+    @Test
+    void shouldDisconnectSlowSubscriberWithoutStallingOthers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(release);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        balanceChangeStreamService.subscribe(slow, List.of("SS005"), null);
+        balanceChangeStreamService.subscribe(fast, List.of("SS005"), null);
+
+        try {
+            int count = BalanceChangeStreamService.MAX_PENDING_EVENTS + 10;
+            publishMany("SS005", count);
+
+            // 慢速订阅者的队列满后被断开，另一个订阅者照常收到全部消息
+            awaitTrue(() -> slow.failure != null);
+            assertInstanceOf(IllegalStateException.class, slow.failure);
+            awaitTrue(() -> fast.ids.size() >= count);
+            assertEquals(count, fast.ids.size());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private String publish(String accountNumber) {
+        return stringRedisTemplate.opsForStream()
+            .add(MapRecord.create(balanceChangePublisher.getStreamKey(), fields(accountNumber)))
+            .getValue();
+    }
+
+    private void publishMany(String accountNumber, int count) {
+        List<Map<String, String>> batch = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            batch.add(fields(accountNumber));
+        }
+        byte[] streamKey = balanceChangePublisher.getStreamKey().getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Map<String, String> fields : batch) {
+                Map<byte[], byte[]> raw = new LinkedHashMap<>();
+                fields.forEach((key, value) ->
+                    raw.put(key.getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8)));
+                connection.streamCommands().xAdd(streamKey, raw);
+            }
+            return null;
+        });
+    }
+
+    private static Map<String, String> fields(String accountNumber) {
+        return Map.of("a", accountNumber, "d", "1.0", "b", "1.0", "s", "1",
+                      "ts", Long.toString(System.currentTimeMillis()));
+    }
+
+    private static String content(MvcResult result) {
+        try {
+            return result.getResponse().getContentAsString();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * 记录推送的消息ID；给定 release 时每次发送都等待放行，模拟写不动的客户端
+     */
+    private static final class RecordingEmitter extends SseEmitter {
+        final List<String> ids = new CopyOnWriteArrayList<>();
+        final CountDownLatch release;
+        volatile Throwable failure;
+
+        RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            for (DataWithMediaType data : builder.build()) {
+                String text = String.valueOf(data.getData());
+                if (text.startsWith("id:")) {
+                    ids.add(text.substring(3, text.indexOf('\n')));
+                }
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            failure = ex;
+            super.completeWithError(ex);
+        }
+    }
+}
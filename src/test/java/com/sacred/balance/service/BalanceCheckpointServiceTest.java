@@ -0,0 +1,138 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.BalanceCheckpoint;
+import com.sacred.balance.model.PointInTimeBalance;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.BalanceCheckpointRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1", // 使用Redis数据库1进行测试
+        "balance.checkpoint.enabled=false",
+        "balance.checkpoint.interval-minutes=60",
+        "balance.checkpoint.lag-minutes=0"
+})
+class BalanceCheckpointServiceTest {
+
+    @Autowired
+    private BalanceCheckpointService balanceCheckpointService;
+
+    @Autowired
+    private BalanceCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        checkpointRepository.deleteAll();
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldAnswerPointInTimeBalanceFromCheckpoint() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime boundary = now.withMinute(0).withSecond(0).withNano(0);
+
+        // 期初30，区间内转入50，边界时刻转出20，当前余额60
+        accountRepository.save(new Account("CP001", 60.0));
+        accountRepository.save(new Account("CP002", 1000.0));
+        saveTransaction("CP-TX-1", "CP002", "CP001", 50.0, boundary.minusMinutes(30));
+        saveTransaction("CP-TX-2", "CP001", "CP002", 20.0, boundary);
+
+        balanceCheckpointService.createCheckpoints();
+        assertEquals(2, checkpointRepository.count());
+        assertEquals(80.0, checkpointRepository
+            .findTopByAccountNumberAndCheckpointTimeLessThanEqualOrderByCheckpointTimeDesc("CP001", boundary)
+            .orElseThrow().getBalance(), 0.000001);
+        // 已生成的区间不会重复写入
+        assertEquals(0, balanceCheckpointService.createCheckpoints());
+
+        PointInTimeBalance atBoundary = balanceCheckpointService.getBalanceAt("CP001", boundary);
+        assertEquals(80.0, atBoundary.getBalance(), 0.000001);
+        assertEquals(boundary, atBoundary.getCheckpointTime());
+
+        // 早于第一个检查点：从检查点往回减
+        assertEquals(30.0, balanceCheckpointService.getBalanceAt("CP001", boundary.minusMinutes(30)).getBalance(), 0.000001);
+        assertEquals(80.0, balanceCheckpointService.getBalanceAt("CP001", boundary.minusMinutes(29)).getBalance(), 0.000001);
+        assertEquals(60.0, balanceCheckpointService.getBalanceAt("CP001", now.plusMinutes(1)).getBalance(), 0.000001);
+    }
+
+    @Test
+    void shouldSkipIdleIntervalsSinceLastCheckpoint() {
+        LocalDateTime boundary = LocalDateTime.now().withMinute(0).withSecond(0).withNano(0);
+
+        // 上一个检查点在100个区间之前，其间没有交易；超过单次最多处理的48个区间，仍应追到最近的区间
+        accountRepository.save(new Account("CP005", 25.0));
+        accountRepository.save(new Account("CP006", 0.0));
+        checkpointRepository.save(new BalanceCheckpoint("CP005", boundary.minusHours(100), 30.0));
+        saveTransaction("CP-TX-4", "CP005", "CP006", 5.0, boundary.minusMinutes(30));
+
+        assertEquals(2, balanceCheckpointService.createCheckpoints());
+        assertEquals(boundary, checkpointRepository.findLatestCheckpointTime());
+        assertEquals(25.0, checkpointRepository
+            .findTopByAccountNumberAndCheckpointTimeLessThanEqualOrderByCheckpointTimeDesc("CP005", boundary)
+            .orElseThrow().getBalance(), 0.000001);
+    }
+
+    @Test
+    void shouldFallBackToCurrentBalanceWithoutCheckpoint() {
+        LocalDateTime now = LocalDateTime.now();
+        accountRepository.save(new Account("CP003", 10.0));
+        accountRepository.save(new Account("CP004", 0.0));
+        saveTransaction("CP-TX-3", "CP004", "CP003", 10.0, now.minusSeconds(5));
+
+        PointInTimeBalance balance = balanceCheckpointService.getBalanceAt("CP003", now.minusSeconds(10));
+        assertEquals(0.0, balance.getBalance(), 0.000001);
+        assertNull(balance.getCheckpointTime());
+
+        BusinessException notFound = assertThrows(BusinessException.class,
+            () -> balanceCheckpointService.getBalanceAt("NOPE", now));
+        assertEquals(404, notFound.getCode());
+    }
+
+    private void saveTransaction(String transactionId, String source, String destination, double amount,
+                                 LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        transaction = transactionRepository.save(transaction);
+        // @CreationTimestamp 总是取当前时间，测试中改写为指定时间
+        jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?", timestamp, transaction.getId());
+    }
+}
@@ -0,0 +1,120 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountBalance;
+import com.sacred.balance.repository.AccountRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class BalanceQueryServiceTest {
+
+    @Autowired
+    private BalanceQueryService balanceQueryService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldLoadBalanceFromDatabaseAndFillCache() {
+        accountRepository.save(new Account("Q001", 120.0));
+
+        Optional<AccountBalance> balance = balanceQueryService.getBalance("Q001");
+
+        assertTrue(balance.isPresent());
+        assertEquals(120.0, balance.get().getBalance());
+        assertEquals(0L, balance.get().getVersion());
+
+        // 回源后余额视图应已写入缓存
+        assertEquals("0:120.0", stringRedisTemplate.opsForValue().get("account:balance:{Q001}"));
+    }
+
+    @Test
+    void shouldNotOverwriteNewerBalanceViewWhenBackfilling() {
+        // 回源读到版本0后，中继已写入版本1的视图，回填不能覆盖
+        stringRedisTemplate.opsForValue().set("account:balance:{Q004}", "1:75.0");
+
+        balanceQueryService.cacheBalances(List.of(new AccountBalance("Q004", 100.0, 0L)));
+
+        assertEquals("1:75.0", stringRedisTemplate.opsForValue().get("account:balance:{Q004}"));
+    }
+
+    @Test
+    void shouldServeBalanceFromCacheWithoutDatabase() {
+        // 只写缓存不写数据库，命中缓存时不应回源
+        stringRedisTemplate.opsForValue().set("account:balance:{Q002}", "7:88.5");
+
+        Optional<AccountBalance> balance = balanceQueryService.getBalance("Q002");
+
+        assertTrue(balance.isPresent());
+        assertEquals(88.5, balance.get().getBalance());
+        assertEquals(7L, balance.get().getVersion());
+    }
+
+    @Test
+    void shouldIncreaseVersionWhenBalanceUpdated() {
+        accountRepository.save(new Account("Q003", 100.0));
+
+        accountService.updateBalance("Q003", 25.0);
+        accountService.updateBalance("Q003", -5.0);
+
+        Optional<AccountBalance> balance = balanceQueryService.getBalance("Q003");
+
+        assertTrue(balance.isPresent());
+        assertEquals(120.0, balance.get().getBalance());
+        assertEquals(2L, balance.get().getVersion());
+    }
+
+    @Test
+    void shouldQueryBalancesInBulkKeepingRequestOrder() {
+        accountRepository.save(new Account("Q004", 10.0));
+        accountRepository.save(new Account("Q005", 20.0));
+        stringRedisTemplate.opsForValue().set("account:balance:{Q006}", "3:30.0");
+
+        List<AccountBalance> balances = balanceQueryService.getBalances(
+            List.of("Q006", "Q004", "NON_EXISTENT", "Q005", "Q004"));
+
+        // 不存在的账户不返回，重复账号只返回一次
+        assertEquals(3, balances.size());
+        assertEquals("Q006", balances.get(0).getAccountNumber());
+        assertEquals(30.0, balances.get(0).getBalance());
+        assertEquals("Q004", balances.get(1).getAccountNumber());
+        assertEquals("Q005", balances.get(2).getAccountNumber());
+    }
+
+    @Test
+    void shouldReturnEmptyForNonExistentAccount() {
+        assertFalse(balanceQueryService.getBalance("NON_EXISTENT").isPresent());
+    }
+}
@@ -0,0 +1,188 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.BatchJob;
+import com.sacred.balance.model.BatchJobChunk;
+import com.sacred.balance.model.BatchJobProgress;
+import com.sacred.balance.model.BatchResult;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.BatchJobChunkRepository;
+import com.sacred.balance.repository.BatchJobRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1",
+        "balance.batch.jobs.chunk-size=2",
+        "balance.batch.jobs.min-transactions=3",
+        // 测试中手动接管
+        "balance.batch.jobs.resume-interval-millis=3600000"
+})
+class BatchJobServiceTest {
+
+    @Autowired
+    private BatchJobService batchJobService;
+
+    @Autowired
+    private BatchJobRepository jobRepository;
+
+    @Autowired
+    private BatchJobChunkRepository chunkRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        chunkRepository.deleteAll();
+        jobRepository.deleteAll();
+        accountRepository.deleteAll();
+        transactionRepository.deleteAll();
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+        accountRepository.save(new Account("J001", 1000.0));
+        accountRepository.save(new Account("J002", 0.0));
+    }
+
+    @Test
+    void shouldProcessLargeBatchesInChunks() {
+        assertFalse(batchJobService.isJob(null, 2));
+        assertTrue(batchJobService.isJob(null, 3));
+        assertTrue(batchJobService.isJob("B-explicit", 1));
+
+        BatchResult result = batchJobService.submit("B001", batch("TJ0", 5), false);
+
+        assertEquals("B001", result.getBatchId());
+        assertEquals(5, result.getTotalTransactions());
+        assertEquals(5, result.getSuccessfulTransactions());
+        assertEquals(5, result.getResults().size());
+        assertEquals("TJ04", result.getResults().get(4).getTransactionId());
+        assertEquals(950.0, accountRepository.findByAccountNumber("J001").get().getBalance());
+
+        BatchJobProgress progress = batchJobService.getProgress("B001", false);
+        assertEquals(BatchJob.COMPLETED, progress.getStatus());
+        assertEquals(3, progress.getTotalChunks());
+        assertEquals(3, progress.getCompletedChunks());
+        assertNull(progress.getResults());
+        assertEquals(5, batchJobService.getProgress("B001", true).getResults().size());
+    }
+
+    @Test
+    void shouldSkipCompletedChunksWhenResubmitted() {
+        Transaction[] transactions = batch("TJ1", 4);
+        batchJobService.submit("B002", transactions, false);
+        crashAfterFirstChunk("B002");
+
+        BatchResult result = batchJobService.submit("B002", transactions, false);
+
+        // 第一块被整体跳过，其中替换进去的交易没有执行；第二块重新处理，已记账的交易按幂等返回
+        assertFalse(transactionRepository.existsByTransactionId("TJ-SKIPPED"));
+        assertEquals(4, result.getResults().size());
+        assertEquals(4, result.getSuccessfulTransactions());
+        assertEquals(960.0, accountRepository.findByAccountNumber("J001").get().getBalance());
+        assertEquals(BatchJob.COMPLETED, batchJobService.getProgress("B002", false).getStatus());
+    }
+
+    @Test
+    void shouldTakeOverJobsWithExpiredLeases() throws Exception {
+        batchJobService.submit("B003", batch("TJ2", 4), false);
+        crashAfterFirstChunk("B003");
+
+        batchJobService.resumeAbandonedJobs();
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!BatchJob.COMPLETED.equals(batchJobService.getProgress("B003", false).getStatus())
+               && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        BatchJobProgress progress = batchJobService.getProgress("B003", true);
+        assertEquals(BatchJob.COMPLETED, progress.getStatus());
+        assertEquals(2, progress.getCompletedChunks());
+        assertEquals(4, progress.getResults().size());
+        assertFalse(transactionRepository.existsByTransactionId("TJ-SKIPPED"));
+    }
+
+    @Test
+    void shouldRejectMismatchedResubmissionsAndUnknownBatches() {
+        batchJobService.submit("B004", batch("TJ3", 3), false);
+
+        BusinessException mismatch = assertThrows(BusinessException.class,
+            () -> batchJobService.submit("B004", batch("TJ3", 4), false));
+        assertEquals(409, mismatch.getCode());
+
+        BusinessException missing = assertThrows(BusinessException.class,
+            () -> batchJobService.getProgress("B-missing", false));
+        assertEquals(404, missing.getCode());
+    }
+
+    @Test
+    void shouldDeriveStableBatchIdsFromTransactionIds() {
+        assertEquals(BatchJobService.batchIdOf(batch("TJ4", 3)), BatchJobService.batchIdOf(batch("TJ4", 3)));
+        assertNotEquals(BatchJobService.batchIdOf(batch("TJ4", 3)), BatchJobService.batchIdOf(batch("TJ5", 3)));
+
+        Transaction withoutId = transfer(null, "J001", "J002", 1.0);
+        assertNull(BatchJobService.batchIdOf(transfer("TJ6", "J001", "J002", 1.0), withoutId));
+    }
+
+    /**
+     * 模拟处理实例在完成第一块后崩溃：游标退回第二块、租约过期，并把第一块的交易换成一笔新交易，
+     * 若第一块被重新处理就会记账
+     */
+    private void crashAfterFirstChunk(String batchId) {
+        BatchJob job = jobRepository.findById(batchId).get();
+        BatchJobChunk second = chunkRepository.findByBatchIdAndChunkIndex(batchId, 1).get();
+        job.setStatus(BatchJob.RUNNING);
+        job.setNextChunk(1);
+        job.setSuccessfulTransactions(job.getSuccessfulTransactions() - second.getSuccessfulTransactions());
+        job.setFailedTransactions(job.getFailedTransactions() - second.getFailedTransactions());
+        job.setOwner("crashed-instance");
+        job.setLeaseUntil(System.currentTimeMillis() - 1);
+        job.setFinishedAt(null);
+        jobRepository.save(job);
+
+        second.setResults(null);
+        chunkRepository.save(second);
+
+        BatchJobChunk first = chunkRepository.findByBatchIdAndChunkIndex(batchId, 0).get();
+        first.setTransactions("[{\"transactionId\":\"TJ-SKIPPED\",\"sourceAccount\":\"J001\","
+            + "\"destinationAccount\":\"J002\",\"amount\":500.0}]");
+        chunkRepository.save(first);
+    }
+
+    private Transaction[] batch(String prefix, int count) {
+        Transaction[] transactions = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            transactions[i] = transfer(prefix + i, "J001", "J002", 10.0);
+        }
+        return transactions;
+    }
+
+    private Transaction transfer(String transactionId, String source, String destination, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        return transaction;
+    }
+}
@@ -0,0 +1,99 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1", // 使用Redis数据库1进行测试
+        "balance.warmup.accounts=2",
+        "balance.warmup.activity-hours=24"
+})
+class CacheWarmupServiceTest {
+
+    @Autowired
+    private CacheWarmupService cacheWarmupService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldPickMostActiveRecentAccounts() {
+        LocalDateTime now = LocalDateTime.now();
+        saveTransaction("W-1", "W001", "D001", now.minusHours(1));
+        saveTransaction("W-2", "W001", "D002", now.minusHours(2));
+        saveTransaction("W-3", "W001", "D003", now.minusHours(3));
+        saveTransaction("W-7", "W002", "D004", now.minusHours(4));
+        saveTransaction("W-8", "W002", "D005", now.minusHours(5));
+        // 超出统计窗口的交易不计入
+        saveTransaction("W-4", "W003", "W004", now.minusHours(30));
+        saveTransaction("W-5", "W003", "W004", now.minusHours(30));
+        saveTransaction("W-6", "W003", "W004", now.minusHours(30));
+
+        assertEquals(List.of("W001", "W002"), cacheWarmupService.findActiveAccounts());
+    }
+
+    @Test
+    void shouldFillMissingCacheEntriesWithoutOverwritingNewerOnes() throws Exception {
+        accountRepository.save(new Account("W001", 100.0));
+        accountRepository.save(new Account("W002", 200.0));
+        saveTransaction("W-1", "W001", "W002", LocalDateTime.now().minusMinutes(5));
+        // 中继已写入的更新值不应被预热覆盖
+        stringRedisTemplate.opsForValue().set("account:balance:{W002}", "9:250.0");
+
+        assertEquals(2, cacheWarmupService.warmUp());
+
+        assertEquals("0:100.0", stringRedisTemplate.opsForValue().get("account:balance:{W001}"));
+        assertEquals("9:250.0", stringRedisTemplate.opsForValue().get("account:balance:{W002}"));
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey("accounts::{W001}")));
+        assertTrue(Boolean.TRUE.equals(stringRedisTemplate.hasKey("accounts::{W002}")));
+    }
+
+    private void saveTransaction(String transactionId, String source, String destination, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(1.0);
+        transaction = transactionRepository.save(transaction);
+        // @CreationTimestamp 总是取当前时间，测试中改写为指定时间
+        jdbcTemplate.update("UPDATE transactions SET timestamp = ? WHERE id = ?", timestamp, transaction.getId());
+    }
+}
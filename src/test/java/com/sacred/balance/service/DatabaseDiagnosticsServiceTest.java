@@ -0,0 +1,55 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.DatabaseDiagnostics;
+import com.sacred.balance.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "balance.diagnostics.slow-query-millis=0",
+        "balance.diagnostics.slow-query-samples=2"
+})
+class DatabaseDiagnosticsServiceTest {
+
+    @Autowired
+    private DatabaseDiagnosticsService databaseDiagnosticsService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Test
+    void shouldReportPoolAndStatementStatistics() {
+        accountRepository.save(new Account("D001", 10.0));
+        for (int i = 0; i < 3; i++) {
+            accountRepository.findByAccountNumberIn(List.of("D001"));
+            accountRepository.findBalancesByAccountNumberIn(List.of("D001"));
+            accountRepository.findByAccountNumber("D001");
+        }
+
+        DatabaseDiagnostics diagnostics = databaseDiagnosticsService.collect();
+
+        assertTrue(diagnostics.getMaxPoolSize() > 0);
+        assertTrue(diagnostics.getConnectionAcquireCount() > 0);
+        assertTrue(diagnostics.getPreparedStatements() > 0);
+        assertTrue(diagnostics.getStatementCacheHitRate() > 0);
+        // 阈值为0时所有查询都计入，只保留配置的条数
+        assertEquals(2, diagnostics.getSlowQueries().size());
+        assertTrue(diagnostics.getSlowQueries().get(0).getMaxMillis()
+                   >= diagnostics.getSlowQueries().get(1).getMaxMillis());
+    }
+}
@@ -0,0 +1,145 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.exception.BusinessException;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1",
+        "balance.lanes.interactive.max-concurrent=1",
+        "balance.lanes.interactive.acquire-timeout-millis=100",
+        "balance.lanes.bulk.threads=1",
+        "balance.lanes.bulk.queue-capacity=1",
+        "balance.lanes.bulk.yield-max-millis=200"
+})
+class ExecutionLanesTest {
+
+    @Autowired
+    private ExecutionLanes executionLanes;
+
+    @Test
+    void shouldRejectInteractiveTransfersOverBudget() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TransactionResult> first = CompletableFuture.supplyAsync(() ->
+            executionLanes.interactive(transfer("L001", "A", "B"), () -> {
+                running.countDown();
+                await(release);
+                return new TransactionResult("L001", true, "Success");
+            }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        TransactionResult second = executionLanes.interactive(transfer("L002", "C", "D"),
+            () -> new TransactionResult("L002", true, "Success"));
+        assertEquals("503", second.getErrorCode());
+
+        release.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS).isSuccess());
+        assertTrue(executionLanes.interactive(transfer("L003", "C", "D"),
+            () -> new TransactionResult("L003", true, "Success")).isSuccess());
+    }
+
+    @Test
+    void shouldRunBulkWorkOnBulkThreadsAndRejectWhenSaturated() throws Exception {
+        assertTrue(executionLanes.bulk(() -> Thread.currentThread().getName()).startsWith("bulk-lane-"));
+
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // 一个占用批量线程，一个排在队列中
+        CompletableFuture<Integer> busy = CompletableFuture.supplyAsync(() -> executionLanes.bulk(() -> {
+            running.countDown();
+            await(release);
+            return 1;
+        }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Integer> queued = CompletableFuture.supplyAsync(() -> executionLanes.bulk(() -> 2));
+        Thread.sleep(100);
+
+        BusinessException rejected = assertThrows(BusinessException.class, () -> executionLanes.bulk(() -> 3));
+        assertEquals(503, rejected.getCode());
+
+        release.countDown();
+        assertEquals(1, busy.get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(2, queued.get(5, TimeUnit.SECONDS).intValue());
+    }
+
+    @Test
+    void shouldPropagateBulkFailures() {
+        BusinessException e = assertThrows(BusinessException.class, () -> executionLanes.bulk(() -> {
+            throw new BusinessException(400, "Transactions are required");
+        }));
+        assertEquals(400, e.getCode());
+    }
+
+    @Test
+    void bulkShouldYieldOnlyOnAccountsWithInteractiveTransfers() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<TransactionResult> interactive = CompletableFuture.supplyAsync(() ->
+            executionLanes.interactive(transfer("L004", "HOT-1", "HOT-2"), () -> {
+                running.countDown();
+                await(release);
+                return new TransactionResult("L004", true, "Success");
+            }));
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        long start = System.nanoTime();
+        executionLanes.yieldToInteractive("COLD-1", "COLD-2");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 100);
+
+        start = System.nanoTime();
+        executionLanes.yieldToInteractive("COLD-1", "HOT-2");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+
+        // 交互转账完成后立即继续
+        CompletableFuture.runAsync(() -> {
+            sleep(50);
+            release.countDown();
+        });
+        start = System.nanoTime();
+        executionLanes.yieldToInteractive("HOT-1");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 190);
+        assertTrue(interactive.get(5, TimeUnit.SECONDS).isSuccess());
+    }
+
+    private static Transaction transfer(String transactionId, String source, String destination) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(1.0);
+        return transaction;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
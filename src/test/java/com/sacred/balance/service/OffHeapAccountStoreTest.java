@@ -0,0 +1,133 @@
+package com.sacred.balance.service;
+
+import com.sacred.balance.model.Account;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapAccountStoreTest {
+
+    @Test
+    void testPutAndGet() {
+        OffHeapAccountStore store = new OffHeapAccountStore(10_000, 16);
+        assertEquals(64, store.slotSize());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(store.put(i + 1, "ACC" + i, i * 10.0, 1, 0));
+        }
+        assertEquals(10_000, store.size());
+
+        for (int i = 0; i < 10_000; i++) {
+            Account account = store.get("ACC" + i);
+            assertNotNull(account, "Missing ACC" + i);
+            assertEquals(i + 1L, account.getId());
+            assertEquals(i * 10.0, account.getBalance(), 0.001);
+            assertEquals(1, account.getVersion());
+        }
+        assertNull(store.get("ACC10000"));
+        assertEquals(-1, store.flags("ACC10000"));
+    }
+
+    @Test
+    void testStaleVersionDoesNotOverwrite() {
+        OffHeapAccountStore store = new OffHeapAccountStore(16, 16);
+        assertTrue(store.put(1, "ACC001", 100.0, 5, 0));
+        assertFalse(store.put(1, "ACC001", 50.0, 4, 0));
+        assertFalse(store.update("ACC001", 50.0, 5));
+        assertEquals(100.0, store.get("ACC001").getBalance(), 0.001);
+
+        assertTrue(store.update("ACC001", 80.0, 6));
+        assertEquals(80.0, store.get("ACC001").getBalance(), 0.001);
+        // 不存在的账户不会被 update 加入
+        assertFalse(store.update("ACC002", 80.0, 1));
+        assertNull(store.get("ACC002"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void testCompareAndSet() {
+        OffHeapAccountStore store = new OffHeapAccountStore(16, 16);
+        store.put(1, "ACC001", 100.0, 1, 3);
+        assertFalse(store.compareAndSet("ACC001", 2, 90.0, 3));
+        assertTrue(store.compareAndSet("ACC001", 1, 90.0, 2));
+        Account account = store.get("ACC001");
+        assertEquals(90.0, account.getBalance(), 0.001);
+        assertEquals(2, account.getVersion());
+        assertEquals(3, store.flags("ACC001"));
+    }
+
+    @Test
+    void testMinFlagsTreatsOlderEntriesAsMissing() {
+        OffHeapAccountStore store = new OffHeapAccountStore(16, 16);
+        // 标志位记录写入时间，小于 minFlags 的条目视为过期
+        store.put(1, "ACC001", 100.0, 1, 10);
+        assertNotNull(store.get("ACC001", 10));
+        assertNull(store.get("ACC001", 11));
+        // 变更事件不刷新写入时间
+        assertTrue(store.update("ACC001", 90.0, 2));
+        assertNull(store.get("ACC001", 11));
+        // 同版本重新加载只刷新写入时间
+        assertFalse(store.put(1, "ACC001", 90.0, 2, 20));
+        Account account = store.get("ACC001", 11);
+        assertNotNull(account);
+        assertEquals(90.0, account.getBalance(), 0.001);
+        assertEquals(20, store.flags("ACC001"));
+    }
+
+    @Test
+    void testCapacityAndKeyLength() {
+        OffHeapAccountStore store = new OffHeapAccountStore(4, 8);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(store.put(i, "A" + i, 0, 1, 0));
+        }
+        assertFalse(store.put(9, "A9", 0, 1, 0));
+        assertTrue(store.put(0, "A0", 1.0, 2, 0), "Existing accounts are still updated when full");
+
+        OffHeapAccountStore small = new OffHeapAccountStore(4, 8);
+        assertFalse(small.put(1, "TOO-LONG-ACCOUNT", 0, 1, 0));
+        assertNull(small.get("TOO-LONG-ACCOUNT"));
+        assertTrue(small.put(2, "账户", 1.0, 1, 0));
+        assertEquals(1.0, small.get("账户").getBalance(), 0.001);
+    }
+
+    @Test
+    void testConcurrentReadersSeeConsistentSnapshots() throws Exception {
+        OffHeapAccountStore store = new OffHeapAccountStore(16, 16);
+        // 余额始终等于版本号的10倍，读到不一致的快照说明读写交错
+        store.put(1, "ACC001", 10.0, 1, 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger torn = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 2; t++) {
+            executor.execute(() -> {
+                while (running.get()) {
+                    Account account = store.get("ACC001");
+                    if (account.getBalance() != account.getVersion() * 10.0) {
+                        torn.incrementAndGet();
+                    }
+                }
+            });
+        }
+        for (int t = 0; t < 2; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    Account account = store.get("ACC001");
+                    long next = account.getVersion() + 1;
+                    store.compareAndSet("ACC001", account.getVersion(), next * 10.0, next);
+                }
+            });
+        }
+        Thread.sleep(500);
+        running.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(0, torn.get());
+        Account account = store.get("ACC001");
+        assertEquals(account.getVersion() * 10.0, account.getBalance(), 0.001);
+    }
+}
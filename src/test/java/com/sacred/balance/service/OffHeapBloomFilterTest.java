@@ -0,0 +1,80 @@
+package com.sacred.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapBloomFilterTest {
+
+    @Test
+    void testNoFalseNegativesAndBoundedFalsePositives() {
+        int insertions = 100_000;
+        double rate = 0.01;
+        OffHeapBloomFilter filter = new OffHeapBloomFilter(
+            OffHeapBloomFilter.optimalBitCount(insertions, rate), OffHeapBloomFilter.optimalHashCount(rate));
+
+        for (int i = 0; i < insertions; i++) {
+            filter.put(h1("TX-" + i), h2("TX-" + i));
+        }
+        for (int i = 0; i < insertions; i++) {
+            assertTrue(filter.mightContain(h1("TX-" + i), h2("TX-" + i)), "False negative for TX-" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < insertions; i++) {
+            if (filter.mightContain(h1("NEW-" + i), h2("NEW-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < insertions * rate * 2, "False positives: " + falsePositives);
+        assertEquals(rate, filter.expectedFalsePositiveRate(), rate / 2);
+    }
+
+    @Test
+    void testConcurrentPutsAreNotLost() throws Exception {
+        OffHeapBloomFilter filter = new OffHeapBloomFilter(1 << 20, 5);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                for (int i = 0; i < 20_000; i++) {
+                    String id = thread + "-" + i;
+                    filter.put(h1(id), h2(id));
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        for (int t = 0; t < 4; t++) {
+            for (int i = 0; i < 20_000; i++) {
+                String id = t + "-" + i;
+                assertTrue(filter.mightContain(h1(id), h2(id)), "Lost concurrent put " + id);
+            }
+        }
+    }
+
+    @Test
+    void testClear() {
+        OffHeapBloomFilter filter = new OffHeapBloomFilter(4096, 3);
+        filter.put(h1("A"), h2("A"));
+        assertTrue(filter.mightContain(h1("A"), h2("A")));
+
+        filter.clear();
+
+        assertFalse(filter.mightContain(h1("A"), h2("A")));
+        assertEquals(0, filter.approximateElementCount());
+    }
+
+    private static long h1(String id) {
+        return StringHash.hash64(id, StringHash.SEED_1);
+    }
+
+    private static long h2(String id) {
+        return StringHash.hash64(id, StringHash.SEED_2) | 1;
+    }
+}
@@ -0,0 +1,95 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1" // 使用Redis数据库1进行测试
+})
+class OutboxRelayTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldRelayProcessedMarkerAndCacheAfterCommit() throws Exception {
+        accountRepository.save(new Account("OB001", 100.0));
+        accountRepository.save(new Account("OB002", 0.0));
+
+        Transaction tx = new Transaction();
+        tx.setTransactionId("OB-TX-1");
+        tx.setSourceAccount("OB001");
+        tx.setDestinationAccount("OB002");
+        tx.setAmount(30.0);
+        TransactionResult result = transactionService.processTransaction(tx);
+        assertTrue(result.isSuccess());
+
+        // 中继同步前，数据库中已存在的交易也应判定为已处理
+        assertTrue(transactionService.isTransactionProcessed("OB-TX-1"));
+
+        awaitOutboxDrained();
+
+        String idempotentKey = TransactionKeys.TRANSACTION_IDEMPOTENT_KEY_PREFIX + "OB-TX-1";
+        assertEquals("processed", stringRedisTemplate.opsForValue().get(idempotentKey));
+        assertNull(stringRedisTemplate.opsForValue().get(idempotentKey + TransactionKeys.START_TIME_KEY_SUFFIX));
+        assertEquals("1:70.0", stringRedisTemplate.opsForValue().get(BalanceQueryService.balanceViewKey("OB001")));
+        assertEquals("1:30.0", stringRedisTemplate.opsForValue().get(BalanceQueryService.balanceViewKey("OB002")));
+    }
+
+    @Test
+    void shouldNotOverwriteNewerCacheWithStaleSnapshot() throws Exception {
+        accountRepository.save(new Account("OB003", 100.0));
+        String viewKey = BalanceQueryService.balanceViewKey("OB003");
+        stringRedisTemplate.opsForValue().set(viewKey, "5:999.0");
+
+        assertTrue(accountService.updateBalance("OB003", 10.0));
+        awaitOutboxDrained();
+
+        assertEquals("5:999.0", stringRedisTemplate.opsForValue().get(viewKey));
+    }
+
+    private void awaitOutboxDrained() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (outboxEventRepository.count() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(0, outboxEventRepository.count());
+    }
+}
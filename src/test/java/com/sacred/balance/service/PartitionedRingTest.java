@@ -0,0 +1,142 @@
+package com.sacred.balance.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PartitionedRingTest {
+
+    private PartitionedRing<String, String> ring;
+
+    @AfterEach
+    void tearDown() {
+        if (ring != null) {
+            ring.close(1000);
+        }
+    }
+
+    @Test
+    void shouldRunCommandsForOneKeyInOrderOnOneThread() throws Exception {
+        List<String> applied = new ArrayList<>();
+        ring = new PartitionedRing<>("test-ring", 4, 1024, command -> {
+            applied.add(command);
+            return Thread.currentThread().getName();
+        });
+
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            replies.add(ring.publish("A001", "c" + i));
+        }
+        String thread = replies.get(0).get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<String> reply : replies) {
+            assertEquals(thread, reply.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals("test-ring-" + ring.partitionOf("A001"), thread);
+        for (int i = 0; i < 500; i++) {
+            assertEquals("c" + i, applied.get(i));
+        }
+    }
+
+    @Test
+    void shouldApplyEveryCommandFromConcurrentProducers() throws Exception {
+        int[] counts = new int[8];
+        ring = new PartitionedRing<>("test-ring", 8, 256, command -> {
+            // 同一账户只由所在分区的线程写入
+            counts[Integer.parseInt(command)]++;
+            return command;
+        });
+
+        int producers = 8;
+        int perProducer = 5000;
+        AtomicInteger rejected = new AtomicInteger();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            done.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    String account = Integer.toString(i % counts.length);
+                    CompletableFuture<String> reply;
+                    while ((reply = ring.publish("ACC" + account, account)) == null) {
+                        rejected.incrementAndGet();
+                        Thread.onSpinWait();
+                    }
+                    reply.join();
+                }
+            }));
+        }
+        CompletableFuture.allOf(done.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        assertEquals(producers * perProducer, total);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void shouldRejectWhenPartitionIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ring = new PartitionedRing<>("test-ring", 1, 2, command -> {
+            running.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return command;
+        });
+
+        CompletableFuture<String> first = ring.publish("A", "1");
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> second = ring.publish("A", "2");
+        CompletableFuture<String> third = ring.publish("A", "3");
+        assertNotNull(second);
+        assertNotNull(third);
+        assertNull(ring.publish("A", "4"));
+        assertEquals(2, ring.capacity());
+
+        release.countDown();
+        assertEquals("1", first.get(5, TimeUnit.SECONDS));
+        assertEquals("3", third.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldCompleteExceptionallyWhenHandlerFails() throws Exception {
+        ring = new PartitionedRing<>("test-ring", 2, 16, command -> {
+            if ("bad".equals(command)) {
+                throw new IllegalStateException("rejected " + command);
+            }
+            return command;
+        });
+
+        CompletableFuture<String> failed = ring.publish("A", "bad");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertEquals("rejected bad", e.getCause().getMessage());
+        assertEquals("ok", ring.publish("A", "ok").get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void shouldDrainPublishedCommandsOnClose() throws Exception {
+        ring = new PartitionedRing<>("test-ring", 2, 1024, command -> command);
+        List<CompletableFuture<String>> replies = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            replies.add(ring.publish("K" + i, "c" + i));
+        }
+        ring.close(5000);
+
+        for (CompletableFuture<String> reply : replies) {
+            assertTrue(reply.isDone());
+        }
+        assertNull(ring.publish("K0", "late"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.ReconciliationDiscrepancy;
+import com.sacred.balance.model.ReconciliationReport;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1", // 使用Redis数据库1进行测试
+        "balance.reconciliation.lag-minutes=0",
+        "balance.reconciliation.range-size=1"
+})
+class ReconciliationServiceTest {
+
+    @Autowired
+    private ReconciliationService reconciliationService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionRepository.deleteAll();
+        accountRepository.deleteAll();
+        jdbcTemplate.update("DELETE FROM reconciliation_discrepancies");
+        jdbcTemplate.update("DELETE FROM reconciliation_runs");
+        jdbcTemplate.update("DELETE FROM account_reconciliation");
+
+        // 清空Redis中的测试数据
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldReconcileIncrementallyAndReportDiscrepancies() {
+        Account source = accountRepository.save(new Account("REC001", 100.0));
+        Account destination = accountRepository.save(new Account("REC002", 50.0));
+
+        // 首次对账：没有基线，以当前余额建立基线
+        ReconciliationReport first = reconciliationService.reconcile();
+        assertEquals(2, first.getRun().getAccountsChecked());
+        assertEquals(2, first.getRun().getAccountsInitialized());
+        assertEquals(0, first.getRun().getDiscrepancies());
+
+        // 正常转账：余额与流水一致
+        saveTransaction("REC-TX-1", "REC001", "REC002", 30.0);
+        source.setBalance(70.0);
+        destination.setBalance(80.0);
+        source = accountRepository.save(source);
+        accountRepository.save(destination);
+
+        ReconciliationReport second = reconciliationService.reconcile();
+        assertEquals(2, second.getRun().getAccountsChecked());
+        assertEquals(0, second.getRun().getAccountsInitialized());
+        assertEquals(0, second.getRun().getDiscrepancies());
+        assertTrue(second.getRun().getWatermarkId() > first.getRun().getWatermarkId());
+
+        // 余额被改动但没有对应流水
+        source.setBalance(75.0);
+        accountRepository.save(source);
+
+        ReconciliationReport third = reconciliationService.reconcile();
+        assertEquals(1, third.getRun().getDiscrepancies());
+        ReconciliationDiscrepancy discrepancy = third.getDiscrepancies().get(0);
+        assertEquals("REC001", discrepancy.getAccountNumber());
+        assertEquals(70.0, discrepancy.getExpectedBalance(), 0.000001);
+        assertEquals(75.0, discrepancy.getActualBalance(), 0.000001);
+
+        assertEquals(third.getRun().getId(), reconciliationService.getLatestReport().getRun().getId());
+    }
+
+    private void saveTransaction(String transactionId, String source, String destination, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        transactionRepository.save(transaction);
+    }
+}
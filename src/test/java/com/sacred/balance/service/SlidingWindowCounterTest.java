@@ -0,0 +1,67 @@
+package com.sacred.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SlidingWindowCounterTest {
+
+    // 60秒窗口，6个10秒的桶
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(60_000, 6);
+
+    @Test
+    void shouldExpireBucketsThatSlideOutOfTheWindow() {
+        counter.add(0, 1, 10.0);
+        counter.add(15_000, 1, 20.0);
+        counter.add(59_999, 1, 30.0);
+
+        assertEquals(3, counter.count(59_999));
+        assertEquals(60.0, counter.amount(59_999));
+
+        // 第一个桶 [0, 10s) 在60秒后滑出窗口
+        assertEquals(2, counter.count(60_000));
+        assertEquals(50.0, counter.amount(60_000));
+        assertEquals(0, counter.count(130_000));
+        assertTrue(counter.idle(130_000));
+    }
+
+    @Test
+    void shouldReuseExpiredSlotFromZero() {
+        counter.add(5_000, 4, 40.0);
+        counter.add(65_000, 1, 1.0);
+
+        assertEquals(1, counter.count(65_000));
+        assertEquals(1.0, counter.amount(65_000));
+    }
+
+    @Test
+    void shouldTrackPendingDeltasUntilSynced() {
+        counter.add(1_000, 1, 10.0);
+        counter.add(11_000, 1, 5.0);
+
+        long[] pending = counter.pendingEpochs(11_000);
+        assertEquals(2, pending.length);
+        long epoch = counter.epochOf(11_000);
+        assertEquals(1, counter.pendingCount(epoch));
+
+        // 同步期间新增的一笔保留为未同步
+        counter.add(11_500, 1, 2.0);
+        counter.synced(epoch, 1, 5.0);
+        assertEquals(1, counter.pendingCount(epoch));
+        assertEquals(2.0, counter.pendingAmount(epoch));
+    }
+
+    @Test
+    void shouldAddOtherInstancesFromGlobalTotals() {
+        counter.add(1_000, 2, 20.0);
+        long epoch = counter.epochOf(1_000);
+        counter.synced(epoch, 2, 20.0);
+
+        // Redis中全部实例合计5笔，其中本实例已同步2笔
+        counter.setGlobal(2_000, 5, 70.0);
+
+        assertEquals(5, counter.count(2_000));
+        assertEquals(70.0, counter.amount(2_000));
+        assertFalse(counter.idle(200_000));
+    }
+}
@@ -0,0 +1,59 @@
+package com.sacred.balance.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIdGeneratorTest {
+
+    @Test
+    void testIdsAreTimeOrderedAndUnique() {
+        TransactionIdGenerator generator = new TransactionIdGenerator();
+        Set<String> ids = new HashSet<>();
+        String previous = null;
+        for (int i = 0; i < 20000; i++) {
+            String id = generator.nextId();
+            assertTrue(ids.add(id), "Duplicate id: " + id);
+            if (previous != null) {
+                // 同一节点内字典序与生成顺序一致
+                assertTrue(previous.compareTo(id) < 0, previous + " should sort before " + id);
+            }
+            previous = id;
+        }
+    }
+
+    @Test
+    void testDecodeTimestampAndNode() {
+        TransactionIdGenerator generator = new TransactionIdGenerator();
+        generator.setNodeId(513);
+
+        long before = System.currentTimeMillis();
+        String id = generator.nextId();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, UUID.fromString(id).version());
+        long epochMillis = TransactionIdGenerator.epochMillisOf(id);
+        assertTrue(epochMillis >= before && epochMillis <= after);
+        assertEquals(513, TransactionIdGenerator.nodeIdOf(id));
+
+        LocalDateTime day = TransactionIdGenerator.timeBucketOf(id, ChronoUnit.DAYS);
+        LocalDateTime month = TransactionIdGenerator.timeBucketOf(id, ChronoUnit.MONTHS);
+        assertEquals(day.withDayOfMonth(1), month);
+        assertEquals(LocalDateTime.MIN.toLocalTime(), day.toLocalTime());
+    }
+
+    @Test
+    void testForeignIdsAreNotDecoded() {
+        assertEquals(-1, TransactionIdGenerator.epochMillisOf(UUID.randomUUID().toString()));
+        assertEquals(-1, TransactionIdGenerator.epochMillisOf("client-tx-1"));
+        assertEquals(-1, TransactionIdGenerator.nodeIdOf(null));
+        assertNull(TransactionIdGenerator.timeBucketOf("client-tx-1", ChronoUnit.DAYS));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator().setNodeId(1024));
+    }
+}
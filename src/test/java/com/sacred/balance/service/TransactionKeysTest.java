@@ -0,0 +1,49 @@
+package com.sacred.balance.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionKeysTest {
+
+    @Test
+    void testKeysOfOneTransactionShareSlot() {
+        TransactionKeys keys = TransactionKeys.of("T-001");
+
+        assertEquals("transaction:lock:{T-001}", string(keys.lock()));
+        assertEquals("transaction:idempotent:{T-001}", string(keys.idempotent()));
+        assertEquals("transaction:idempotent:{T-001}:starttime", string(keys.startTime()));
+
+        int slot = ClusterSlotHashUtil.calculateSlot(keys.idempotent());
+        assertEquals(slot, ClusterSlotHashUtil.calculateSlot(keys.lock()));
+        assertEquals(slot, ClusterSlotHashUtil.calculateSlot(keys.startTime()));
+    }
+
+    @Test
+    void testTransactionsSpreadAcrossSlots() {
+        Set<Integer> slots = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            slots.add(ClusterSlotHashUtil.calculateSlot(TransactionKeys.of("T-" + i).idempotent()));
+        }
+        assertTrue(slots.size() > 900, "Only " + slots.size() + " distinct slots");
+    }
+
+    @Test
+    void testLegacyKeysAndTransactionIdOf() {
+        TransactionKeys keys = TransactionKeys.of("交易-1");
+
+        assertEquals("transaction:idempotent:交易-1", string(keys.legacyIdempotent()));
+        assertEquals("transaction:idempotent:交易-1:starttime", string(keys.legacyStartTime()));
+        assertEquals("交易-1", TransactionKeys.transactionIdOf(string(keys.idempotent())));
+        assertEquals("交易-1", TransactionKeys.transactionIdOf(string(keys.legacyIdempotent())));
+    }
+
+    private static String string(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
@@ -18,6 +18,7 @@ import static org.junit.jupiter.api.Assertions.*;
         "spring.datasource.url=jdbc:h2:mem:testdb",
         "spring.datasource.driver-class-name=org.h2.Driver",
         "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
         "spring.data.redis.database=1" // 使用Redis数据库1进行测试
 })
 class TransactionRecoveryServiceTest {
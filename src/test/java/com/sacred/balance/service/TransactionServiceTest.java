@@ -2,6 +2,7 @@ package com.sacred.balance.service;
 
 import com.sacred.BalanceCalculationApplication;
 import com.sacred.balance.model.Account;
+import com.sacred.balance.model.AccountLimits;
 import com.sacred.balance.model.BatchResult;
 import com.sacred.balance.model.Transaction;
 import com.sacred.balance.model.TransactionResult;
@@ -28,6 +29,7 @@ import static org.junit.jupiter.api.Assertions.*;
         "spring.datasource.url=jdbc:h2:mem:testdb",
         "spring.datasource.driver-class-name=org.h2.Driver",
         "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
         "spring.data.redis.database=1" // 使用Redis数据库1进行测试
 
 })
@@ -371,7 +373,7 @@ class TransactionServiceTest {
         String transactionId = "T014";
 
         // 手动设置一个超时的处理状态
-        String idempotentKey = "transaction:idempotent:" + transactionId;
+        String idempotentKey = "transaction:idempotent:{" + transactionId + "}";
         String startTimeKey = idempotentKey + ":starttime";
 
         stringRedisTemplate.opsForValue().set(idempotentKey, "processing");
@@ -464,4 +466,140 @@ class TransactionServiceTest {
         assertEquals("400", result.getErrorCode());
         assertTrue(result.getMessage().contains("Source and destination accounts are required"));
     }
+
+    @Test
+    void nettedBatchShouldValidateInOrderAndWriteEachAccountOnce() {
+        accountRepository.save(new Account("N001", 100.0));
+        accountRepository.save(new Account("N002", 0.0));
+
+        // 净额足够，但按顺序第二笔发生时 N002 余额不足，应被拒绝
+        Transaction tx1 = transfer("TN01", "N001", "N002", 60.0);
+        Transaction tx2 = transfer("TN02", "N002", "N001", 80.0);
+        Transaction tx3 = transfer("TN03", "N001", "N002", 40.0);
+        Transaction tx4 = transfer("TN04", "N002", "N001", 70.0);
+
+        BatchResult result = transactionService.processBatchNetted(tx1, tx2, tx3, tx4);
+
+        assertEquals(4, result.getTotalTransactions());
+        assertEquals(3, result.getSuccessfulTransactions());
+        assertEquals(1, result.getFailedTransactions());
+        assertFalse(result.getResults().get(1).isSuccess());
+        assertEquals("400", result.getResults().get(1).getErrorCode());
+
+        // N001: 100 - 60 - 40 + 70 = 70，N002: 0 + 60 + 40 - 70 = 30
+        Account source = accountRepository.findByAccountNumber("N001").get();
+        Account dest = accountRepository.findByAccountNumber("N002").get();
+        assertEquals(70.0, source.getBalance());
+        assertEquals(30.0, dest.getBalance());
+        // 每个账户只写一次
+        assertEquals(1, source.getVersion());
+        assertEquals(1, dest.getVersion());
+
+        // 每笔成功的交易仍单独入库，被拒绝的可以重新提交
+        assertTrue(transactionRepository.existsByTransactionId("TN01"));
+        assertFalse(transactionRepository.existsByTransactionId("TN02"));
+        assertTrue(transactionRepository.existsByTransactionId("TN03"));
+        assertTrue(transactionRepository.existsByTransactionId("TN04"));
+        assertFalse(stringRedisTemplate.hasKey("transaction:idempotent:{TN02}"));
+    }
+
+    @Test
+    void nettedBatchShouldHandleDuplicatesAndMissingAccounts() {
+        accountRepository.save(new Account("N003", 100.0));
+        accountRepository.save(new Account("N004", 0.0));
+
+        Transaction tx1 = transfer("TN05", "N003", "N004", 10.0);
+        Transaction duplicate = transfer("TN05", "N003", "N004", 10.0);
+        Transaction missing = transfer("TN06", "N003", "N999", 10.0);
+
+        BatchResult result = transactionService.processBatchNetted(tx1, duplicate, missing);
+
+        assertEquals(2, result.getSuccessfulTransactions());
+        assertEquals("Already processed", result.getResults().get(1).getMessage());
+        assertEquals("404", result.getResults().get(2).getErrorCode());
+        assertEquals(90.0, accountRepository.findByAccountNumber("N003").get().getBalance());
+        assertEquals(10.0, accountRepository.findByAccountNumber("N004").get().getBalance());
+
+        // 再次提交整批，已处理的交易不会重复记账
+        BatchResult replay = transactionService.processBatchNetted(transfer("TN05", "N003", "N004", 10.0));
+        assertEquals("Already processed", replay.getResults().get(0).getMessage());
+        assertEquals(90.0, accountRepository.findByAccountNumber("N003").get().getBalance());
+    }
+
+    @Test
+    void shouldApplyOverdraftAndHoldsToTransfers() {
+        accountRepository.save(new Account("O001", 100.0));
+        accountRepository.save(new Account("O002", 0.0));
+        // 可透支50，其中冻结30：最多转出 100 + 50 - 30 = 120
+        accountService.updateLimits("O001", new AccountLimits(50.0, 0.0, 30.0));
+
+        TransactionResult overLimit = transactionService.processTransaction(transfer("TO01", "O001", "O002", 121.0));
+        assertEquals("400", overLimit.getErrorCode());
+        assertTrue(overLimit.getMessage().contains("Insufficient balance"));
+
+        assertTrue(transactionService.processTransaction(transfer("TO02", "O001", "O002", 120.0)).isSuccess());
+        assertEquals(-20.0, accountRepository.findByAccountNumber("O001").get().getBalance());
+        assertEquals(120.0, accountRepository.findByAccountNumber("O002").get().getBalance());
+    }
+
+    @Test
+    void rejectedTransfersShouldRollBackAndBeRetryable() {
+        accountRepository.save(new Account("R001", 0.0));
+        accountRepository.save(new Account("R002", 100.0));
+        accountRepository.save(new Account("R003", 0.0));
+        long sourceVersion = accountRepository.findByAccountNumber("R002").get().getVersion();
+
+        // 逐笔批量没有外层事务：转入账户不存在时已扣的款随事务回滚；
+        // 转入账户R001排在转出账户之前，先入账后扣款，扣款被拒绝时入账一并回滚
+        BatchResult rejected = transactionService.processBatchTransactions(
+            transfer("TR01", "R002", "R999", 10.0),
+            transfer("TR02", "R002", "R001", 500.0),
+            transfer("TR03", "R002", "R003", 500.0));
+
+        assertEquals(0, rejected.getSuccessfulTransactions());
+        assertEquals("404", rejected.getResults().get(0).getErrorCode());
+        assertEquals("400", rejected.getResults().get(1).getErrorCode());
+        assertEquals("400", rejected.getResults().get(2).getErrorCode());
+        Account source = accountRepository.findByAccountNumber("R002").get();
+        assertEquals(100.0, source.getBalance());
+        assertEquals(sourceVersion, source.getVersion());
+        assertEquals(0.0, accountRepository.findByAccountNumber("R001").get().getBalance());
+        assertEquals(0.0, accountRepository.findByAccountNumber("R003").get().getBalance());
+        assertEquals(0, transactionRepository.count());
+
+        // 被拒绝的交易没有留下处理中标记，修正后可以立即用同一交易ID重试
+        assertFalse(stringRedisTemplate.hasKey("transaction:idempotent:{TR02}"));
+        assertTrue(transactionService.processTransaction(transfer("TR02", "R002", "R001", 10.0)).isSuccess());
+        assertEquals(10.0, accountRepository.findByAccountNumber("R001").get().getBalance());
+        assertEquals(90.0, accountRepository.findByAccountNumber("R002").get().getBalance());
+    }
+
+    @Test
+    void shouldApplyPerAccountFloorsToNettedBatches() {
+        accountRepository.save(new Account("O003", 100.0));
+        accountRepository.save(new Account("O004", 100.0));
+        accountService.updateLimits("O003", new AccountLimits(0.0, 40.0, 0.0));
+        accountService.updateLimits("O004", new AccountLimits(100.0, 0.0, 0.0));
+
+        BatchResult result = transactionService.processBatchNetted(
+            transfer("TO10", "O003", "O004", 70.0),
+            transfer("TO11", "O004", "O003", 180.0),
+            transfer("TO12", "O004", "O003", 30.0));
+
+        // O003 不得低于最低余额40；O004 可透支到 -100
+        assertEquals("400", result.getResults().get(0).getErrorCode());
+        assertTrue(result.getResults().get(1).isSuccess());
+        assertEquals("400", result.getResults().get(2).getErrorCode());
+        assertEquals(280.0, accountRepository.findByAccountNumber("O003").get().getBalance());
+        assertEquals(-80.0, accountRepository.findByAccountNumber("O004").get().getBalance());
+    }
+
+    private static Transaction transfer(String transactionId, String source, String destination, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        return transaction;
+    }
 }
@@ -0,0 +1,120 @@
+package com.sacred.balance.service;
+
+import com.sacred.BalanceCalculationApplication;
+import com.sacred.balance.model.Account;
+import com.sacred.balance.model.Transaction;
+import com.sacred.balance.model.TransactionResult;
+import com.sacred.balance.repository.AccountRepository;
+import com.sacred.balance.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.TestPropertySource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = BalanceCalculationApplication.class)
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:testdb",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.flyway.enabled=false",
+        "spring.data.redis.database=1",
+        "balance.velocity.enabled=true",
+        "balance.velocity.max-count=3",
+        "balance.velocity.max-amount=100",
+        "balance.velocity.window-seconds=3600",
+        // 测试中手动同步
+        "balance.velocity.sync-interval-millis=3600000"
+})
+class VelocityLimiterTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private VelocityLimiter velocityLimiter;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private RedisTemplate<String, String> stringRedisTemplate;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository.deleteAll();
+        transactionRepository.deleteAll();
+        stringRedisTemplate.getConnectionFactory().getConnection().flushAll();
+    }
+
+    @Test
+    void shouldRejectTransfersOverTheCountLimit() {
+        accountRepository.save(new Account("V001", 1000.0));
+        accountRepository.save(new Account("V002", 0.0));
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(transactionService.processTransaction(transfer("TV0" + i, "V001", "V002", 1.0)).isSuccess());
+        }
+        TransactionResult rejected = transactionService.processTransaction(transfer("TV03", "V001", "V002", 1.0));
+
+        assertFalse(rejected.isSuccess());
+        assertEquals("429", rejected.getErrorCode());
+        assertFalse(transactionRepository.existsByTransactionId("TV03"));
+        assertEquals(997.0, accountRepository.findByAccountNumber("V001").get().getBalance());
+    }
+
+    @Test
+    void shouldNotCountFailedTransfersOrReplays() {
+        accountRepository.save(new Account("V003", 50.0));
+        accountRepository.save(new Account("V004", 0.0));
+
+        // 余额不足和重复提交不占用额度
+        assertFalse(transactionService.processTransaction(transfer("TV10", "V003", "V004", 80.0)).isSuccess());
+        assertTrue(transactionService.processTransaction(transfer("TV11", "V003", "V004", 10.0)).isSuccess());
+        assertTrue(transactionService.processTransaction(transfer("TV11", "V003", "V004", 10.0)).isSuccess());
+        assertTrue(transactionService.processTransaction(transfer("TV12", "V003", "V004", 10.0)).isSuccess());
+        assertTrue(transactionService.processTransaction(transfer("TV13", "V003", "V004", 10.0)).isSuccess());
+    }
+
+    @Test
+    void shouldRejectTransfersOverTheAmountLimit() {
+        assertTrue(velocityLimiter.tryAcquire("V005", 60.0));
+        assertFalse(velocityLimiter.tryAcquire("V005", 50.0));
+        assertTrue(velocityLimiter.tryAcquire("V005", 40.0));
+        assertTrue(velocityLimiter.tryAcquire("V006", 50.0));
+    }
+
+    @Test
+    void shouldShareWindowTotalsAcrossInstancesThroughRedis() {
+        assertTrue(velocityLimiter.tryAcquire("V007", 10.0));
+        velocityLimiter.synchronize();
+
+        String key = VelocityLimiter.KEY_PREFIX + "{V007}";
+        assertEquals(1, stringRedisTemplate.opsForHash().entries(key).values().stream()
+            .filter(v -> v.equals("1")).count());
+
+        // 模拟另一个实例在当前桶中的两笔转账
+        String countField = stringRedisTemplate.opsForHash().keys(key).stream()
+            .map(Object::toString).filter(f -> f.startsWith("c:")).findFirst().get();
+        stringRedisTemplate.opsForHash().increment(key, countField, 2);
+        velocityLimiter.synchronize();
+
+        // 本实例1笔 + 其他实例2笔，已达到3笔上限
+        assertFalse(velocityLimiter.tryAcquire("V007", 1.0));
+    }
+
+    private static Transaction transfer(String transactionId, String source, String destination, double amount) {
+        Transaction transaction = new Transaction();
+        transaction.setTransactionId(transactionId);
+        transaction.setSourceAccount(source);
+        transaction.setDestinationAccount(destination);
+        transaction.setAmount(amount);
+        return transaction;
+    }
+}
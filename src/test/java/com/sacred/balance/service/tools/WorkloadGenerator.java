@@ -0,0 +1,492 @@
+package com.sacred.balance.service.tools;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 流式压测数据生成器
+ * 逐条生成交易并直接写出或回放到服务，内存占用与交易数量无关；支持均匀、Zipf、热点账户分布及可配置的重复交易比例
+ *
+ * 用法示例：
+ * --accounts=1000000 --transactions=500000000 --distribution=zipf --zipf-exponent=1.1 --duplicate-rate=0.01
+ * --format=ndjson --output=transactions.ndjson --accounts-output=accounts.csv
+ * --replay-url=http://localhost:8080/api/transactions/single --rate=5000 --concurrency=256
+ */
+public class WorkloadGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorkloadGenerator.class);
+
+    public enum Distribution { UNIFORM, ZIPF, HOT }
+
+    public enum Format { CSV, NDJSON }
+
+    // 重复交易从最近生成的交易中抽取，窗口固定大小
+    private static final int RECENT_WINDOW = 4096;
+    // 进度日志间隔
+    private static final long PROGRESS_INTERVAL = 1_000_000L;
+    // 写出缓冲区大小
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final int accountCount;
+    private final long transactionCount;
+    private final Distribution distribution;
+    private final int hotAccounts;
+    private final double hotRatio;
+    private final double duplicateRate;
+    private final long amountMinCents;
+    private final long amountMaxCents;
+    private final String accountPrefix;
+    private final int accountDigits;
+    private final String transactionIdPrefix;
+    private final SplittableRandom random;
+    private final ZipfSampler zipfSampler;
+    private final long permutationStride;
+
+    // 最近交易环形缓冲，全部为基本类型数组
+    private final long[] recentSequence = new long[RECENT_WINDOW];
+    private final int[] recentSource = new int[RECENT_WINDOW];
+    private final int[] recentDestination = new int[RECENT_WINDOW];
+    private final long[] recentAmount = new long[RECENT_WINDOW];
+    private int recentSize;
+
+    /**
+     * 单条交易记录，生成过程中复用同一个实例
+     */
+    public static final class Record {
+        long sequence;
+        int source;
+        int destination;
+        long amountCents;
+        boolean duplicate;
+    }
+
+    public interface Sink extends AutoCloseable {
+        void accept(WorkloadGenerator generator, Record record) throws IOException;
+
+        @Override
+        default void close() throws IOException {}
+    }
+
+    public WorkloadGenerator(Map<String, String> options) {
+        this.accountCount = Integer.parseInt(options.getOrDefault("accounts", "1000"));
+        this.transactionCount = Long.parseLong(options.getOrDefault("transactions", "100000"));
+        this.distribution = Distribution.valueOf(options.getOrDefault("distribution", "uniform").toUpperCase(Locale.ROOT));
+        this.hotAccounts = Math.min(accountCount, Integer.parseInt(options.getOrDefault("hot-accounts", "100")));
+        this.hotRatio = Double.parseDouble(options.getOrDefault("hot-ratio", "0.8"));
+        this.duplicateRate = Double.parseDouble(options.getOrDefault("duplicate-rate", "0"));
+        this.amountMinCents = Math.round(Double.parseDouble(options.getOrDefault("amount-min", "1.0")) * 100);
+        this.amountMaxCents = Math.round(Double.parseDouble(options.getOrDefault("amount-max", "5000.0")) * 100);
+        this.accountPrefix = options.getOrDefault("account-prefix", "ACC");
+        this.accountDigits = Integer.parseInt(options.getOrDefault("account-digits", "6"));
+        long seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(System.nanoTime())));
+        this.transactionIdPrefix = "WL" + Long.toString(seed & 0xFFFFFFL, 36) + "-";
+        this.random = new SplittableRandom(seed);
+        this.zipfSampler = distribution == Distribution.ZIPF
+            ? new ZipfSampler(accountCount, Double.parseDouble(options.getOrDefault("zipf-exponent", "1.1")))
+            : null;
+        this.permutationStride = coprimeStride(accountCount);
+
+        if (accountCount < 2) {
+            throw new IllegalArgumentException("At least 2 accounts are required");
+        }
+        if (amountMaxCents < amountMinCents || amountMinCents <= 0) {
+            throw new IllegalArgumentException("Invalid amount range");
+        }
+    }
+
+    public static void main(String[] args) {
+        Map<String, String> options = parseOptions(args);
+        WorkloadGenerator generator = new WorkloadGenerator(options);
+        List<Sink> sinks = new ArrayList<>();
+        try {
+            if (options.containsKey("accounts-output")) {
+                generator.writeAccounts(Path.of(options.get("accounts-output")));
+            }
+            if (options.containsKey("output")) {
+                Format format = Format.valueOf(options.getOrDefault("format", "csv").toUpperCase(Locale.ROOT));
+                Writer writer = "-".equals(options.get("output"))
+                    ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)
+                    : Files.newBufferedWriter(Path.of(options.get("output")), StandardCharsets.UTF_8);
+                sinks.add(new FileSink(writer, format));
+            }
+            if (options.containsKey("replay-url")) {
+                sinks.add(new ReplaySink(
+                    URI.create(options.get("replay-url")),
+                    Double.parseDouble(options.getOrDefault("rate", "1000")),
+                    Integer.parseInt(options.getOrDefault("concurrency", "64"))));
+            }
+            if (!sinks.isEmpty()) {
+                generator.generate(sinks);
+            } else if (!options.containsKey("accounts-output")) {
+                logger.warn("Nothing to do: specify --output, --replay-url or --accounts-output");
+            }
+        } catch (Exception e) {
+            logger.error("Workload generation failed", e);
+        } finally {
+            for (Sink sink : sinks) {
+                try {
+                    sink.close();
+                } catch (Exception e) {
+                    logger.warn("Error closing sink: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐条生成交易并交给所有输出端
+     */
+    public void generate(List<Sink> sinks) throws IOException {
+        long startTime = System.currentTimeMillis();
+        Record record = new Record();
+        long duplicates = 0;
+        for (long sequence = 0; sequence < transactionCount; sequence++) {
+            next(record, sequence);
+            if (record.duplicate) {
+                duplicates++;
+            }
+            for (Sink sink : sinks) {
+                sink.accept(this, record);
+            }
+            if ((sequence + 1) % PROGRESS_INTERVAL == 0) {
+                long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+                logger.info("Generated {} transactions ({} duplicates), {} tx/s",
+                           sequence + 1, duplicates, (sequence + 1) * 1000 / elapsed);
+            }
+        }
+        logger.info("Workload generation completed. Transactions: {}, Duplicates: {}, Elapsed: {} ms",
+                   transactionCount, duplicates, System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 生成下一条交易；按重复比例从最近窗口中复用已生成的交易（相同交易ID）
+     */
+    void next(Record record, long sequence) {
+        if (recentSize > 0 && duplicateRate > 0 && random.nextDouble() < duplicateRate) {
+            int slot = random.nextInt(recentSize);
+            record.sequence = recentSequence[slot];
+            record.source = recentSource[slot];
+            record.destination = recentDestination[slot];
+            record.amountCents = recentAmount[slot];
+            record.duplicate = true;
+            return;
+        }
+
+        int source = pickAccount();
+        int destination = pickAccount();
+        while (destination == source) {
+            destination = pickAccount();
+        }
+
+        record.sequence = sequence;
+        record.source = source;
+        record.destination = destination;
+        record.amountCents = amountMinCents + random.nextLong(amountMaxCents - amountMinCents + 1);
+        record.duplicate = false;
+
+        int slot = (int) (sequence % RECENT_WINDOW);
+        recentSequence[slot] = record.sequence;
+        recentSource[slot] = record.source;
+        recentDestination[slot] = record.destination;
+        recentAmount[slot] = record.amountCents;
+        if (recentSize < RECENT_WINDOW) {
+            recentSize++;
+        }
+    }
+
+    private int pickAccount() {
+        switch (distribution) {
+            case ZIPF:
+                return permute(zipfSampler.sample(random) - 1);
+            case HOT:
+                if (random.nextDouble() < hotRatio) {
+                    return permute(random.nextInt(hotAccounts));
+                }
+                return random.nextInt(accountCount);
+            default:
+                return random.nextInt(accountCount);
+        }
+    }
+
+    /**
+     * 将热度排名打散到账户空间，避免热点集中在编号最小的账户
+     */
+    private int permute(int rank) {
+        return (int) ((rank * permutationStride) % accountCount);
+    }
+
+    private static long coprimeStride(int n) {
+        long stride = 2_654_435_761L % n;
+        while (stride <= 1 || gcd(stride, n) != 1) {
+            stride = (stride + 1) % n;
+        }
+        return stride;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /**
+     * 流式写出账户CSV，格式与 files/accounts.csv 一致，可直接用于批量导入
+     */
+    public void writeAccounts(Path file) throws IOException {
+        SplittableRandom balanceRandom = random.split();
+        StringBuilder line = new StringBuilder(64);
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("id,accountNumber,balance\n");
+            for (int i = 0; i < accountCount; i++) {
+                line.setLength(0);
+                line.append(i + 1).append(',');
+                appendAccountNumber(line, i);
+                line.append(',');
+                appendAmount(line, 100_000L + balanceRandom.nextLong(1_000_000_000L));
+                line.append('\n');
+                writer.append(line);
+            }
+        }
+        logger.info("Accounts written to {}: {}", file, accountCount);
+    }
+
+    void appendTransactionId(StringBuilder sb, long sequence) {
+        sb.append(transactionIdPrefix).append(sequence);
+    }
+
+    void appendAccountNumber(StringBuilder sb, int index) {
+        sb.append(accountPrefix);
+        long number = index + 1L;
+        int digits = 1;
+        for (long v = number; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = digits; i < accountDigits; i++) {
+            sb.append('0');
+        }
+        sb.append(number);
+    }
+
+    static void appendAmount(StringBuilder sb, long cents) {
+        sb.append(cents / 100).append('.');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        sb.append(fraction);
+    }
+
+    void appendJson(StringBuilder sb, Record record) {
+        sb.append("{\"transactionId\":\"");
+        appendTransactionId(sb, record.sequence);
+        sb.append("\",\"sourceAccount\":\"");
+        appendAccountNumber(sb, record.source);
+        sb.append("\",\"destinationAccount\":\"");
+        appendAccountNumber(sb, record.destination);
+        sb.append("\",\"amount\":");
+        appendAmount(sb, record.amountCents);
+        sb.append('}');
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 写出CSV或NDJSON；CSV表头与 TestDataGenerator 一致，可被JMeter计划直接使用
+     */
+    static final class FileSink implements Sink {
+        private final Writer writer;
+        private final Format format;
+        private final StringBuilder line = new StringBuilder(160);
+        private final String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+
+        FileSink(Writer writer, Format format) throws IOException {
+            this.writer = writer;
+            this.format = format;
+            if (format == Format.CSV) {
+                writer.write("id,transactionId,sourceAccount,destinationAccount,amount,timestamp\n");
+            }
+        }
+
+        @Override
+        public void accept(WorkloadGenerator generator, Record record) throws IOException {
+            line.setLength(0);
+            if (format == Format.NDJSON) {
+                generator.appendJson(line, record);
+            } else {
+                line.append(',');
+                generator.appendTransactionId(line, record.sequence);
+                line.append(',');
+                generator.appendAccountNumber(line, record.source);
+                line.append(',');
+                generator.appendAccountNumber(line, record.destination);
+                line.append(',');
+                appendAmount(line, record.amountCents);
+                line.append(',').append(timestamp);
+            }
+            line.append('\n');
+            writer.append(line);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * 按目标速率回放到 /api/transactions/single，使用异步HTTP客户端并限制在途请求数
+     */
+    static final class ReplaySink implements Sink {
+        // 延迟直方图按2的幂划分微秒区间
+        private static final int LATENCY_BUCKETS = 40;
+        // 统计日志间隔（纳秒）
+        private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+        private final HttpClient client;
+        private final URI uri;
+        private final long intervalNanos;
+        private final int concurrency;
+        private final Semaphore inFlight;
+        private final StringBuilder body = new StringBuilder(160);
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder succeeded = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final AtomicLongArray latencyHistogram = new AtomicLongArray(LATENCY_BUCKETS);
+        private final long startNanos = System.nanoTime();
+        private long nextSendNanos = startNanos;
+        private long nextReportNanos = startNanos + REPORT_INTERVAL_NANOS;
+
+        ReplaySink(URI uri, double ratePerSecond, int concurrency) {
+            this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+            this.uri = uri;
+            this.intervalNanos = (long) (1_000_000_000L / ratePerSecond);
+            this.concurrency = concurrency;
+            this.inFlight = new Semaphore(concurrency);
+        }
+
+        @Override
+        public void accept(WorkloadGenerator generator, Record record) {
+            // 按固定节拍发送，落后于计划时立即发送以追上目标速率
+            long now = System.nanoTime();
+            if (nextSendNanos > now) {
+                LockSupport.parkNanos(nextSendNanos - now);
+            }
+            nextSendNanos += intervalNanos;
+
+            body.setLength(0);
+            generator.appendJson(body, record);
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+
+            inFlight.acquireUninterruptibly();
+            long sendNanos = System.nanoTime();
+            sent.increment();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    recordLatency(System.nanoTime() - sendNanos);
+                    if (error != null || response.statusCode() >= 500) {
+                        errors.increment();
+                    } else if (response.body().contains("\"success\":true")) {
+                        succeeded.increment();
+                    } else {
+                        rejected.increment();
+                    }
+                    inFlight.release();
+                });
+
+            if (sendNanos >= nextReportNanos) {
+                nextReportNanos = sendNanos + REPORT_INTERVAL_NANOS;
+                report();
+            }
+        }
+
+        private void recordLatency(long nanos) {
+            long micros = Math.max(1, nanos / 1000);
+            int bucket = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+            latencyHistogram.incrementAndGet(bucket);
+        }
+
+        /**
+         * 返回分位数所在区间的上界（微秒）
+         */
+        private long percentileMicros(double percentile) {
+            long total = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                total += latencyHistogram.get(i);
+            }
+            long target = (long) Math.ceil(total * percentile);
+            long seen = 0;
+            for (int i = 0; i < LATENCY_BUCKETS; i++) {
+                seen += latencyHistogram.get(i);
+                if (seen >= target && seen > 0) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0;
+        }
+
+        private void report() {
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+            logger.info("Replay: sent={}, success={}, rejected={}, errors={}, rate={} tx/s, p50<={} us, p99<={} us",
+                       sent.sum(), succeeded.sum(), rejected.sum(), errors.sum(),
+                       Math.round(sent.sum() / elapsedSeconds), percentileMicros(0.50), percentileMicros(0.99));
+        }
+
+        @Override
+        public void close() {
+            // 等待所有在途请求完成
+            inFlight.acquireUninterruptibly(concurrency);
+            inFlight.release(concurrency);
+            report();
+        }
+    }
+}